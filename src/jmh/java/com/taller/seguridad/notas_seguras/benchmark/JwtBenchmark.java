@@ -0,0 +1,76 @@
+package com.taller.seguridad.notas_seguras.benchmark;
+
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import com.taller.seguridad.notas_seguras.security.RevokedTokenSet;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación y validación de JWT: parseo completo (HMAC + JSON) vs. cache de tokens verificados,
+ * y el costo de consultar la revocación con {@code revoked} tokens revocados.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"0", "100000"})
+    public int revoked;
+
+    private JwtService jwtService;
+    private String token;
+    private String jti;
+    private String revokedJti;
+    private RevokedTokenSet revokedTokens;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService(10_000);
+        token = jwtService.generateToken(1L, "user@demo.com", "USER");
+        jti = jwtService.verify(token).getId();
+
+        revokedTokens = new RevokedTokenSet(100_000);
+        long expiresAt = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2);
+        for (int i = 0; i < revoked; i++) revokedTokens.add(UUID.randomUUID().toString(), expiresAt);
+        revokedJti = UUID.randomUUID().toString();
+        revokedTokens.add(revokedJti, expiresAt);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(1L, "user@demo.com", "USER");
+    }
+
+    @Benchmark
+    public Jws<Claims> validateToken() {
+        return jwtService.validateToken(token);
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return jwtService.verify(token);
+    }
+
+    // Lo que agrega el filtro por request: el jti sale de los claims cacheados (hashCode ya calculado)
+    @Benchmark
+    public boolean revocationCheck() {
+        return revokedTokens.contains(jti);
+    }
+
+    @Benchmark
+    public boolean revocationCheckRevoked() {
+        return revokedTokens.contains(revokedJti);
+    }
+
+    @Benchmark
+    public boolean verifyCachedAndCheckRevocation() {
+        return revokedTokens.contains(jwtService.verify(token).getId());
+    }
+}
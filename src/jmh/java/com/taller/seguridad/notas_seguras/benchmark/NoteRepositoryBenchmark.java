@@ -0,0 +1,91 @@
+package com.taller.seguridad.notas_seguras.benchmark;
+
+import com.taller.seguridad.notas_seguras.NotasSegurasApplication;
+import com.taller.seguridad.notas_seguras.model.Note;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteRepository;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas de notas sobre H2 con un usuario que tiene entre 10^3 y 10^6 notas.
+ * Los datos se cargan una vez por valor de {@code notes} con inserts JDBC por lotes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NoteRepositoryBenchmark {
+
+    private static final int SEED_BATCH = 10_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int notes;
+
+    private ConfigurableApplicationContext context;
+    private NoteRepository noteRepository;
+    private User owner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SpringApplication.run(NotasSegurasApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:jmh-" + notes,
+                "--logging.level.root=WARN");
+        try {
+            seed();
+        } catch (RuntimeException e) {
+            // JMH no llama a tearDown si setup falla: sin esto el contexto queda abierto en el fork
+            context.close();
+            throw e;
+        }
+    }
+
+    private void seed() {
+        noteRepository = context.getBean(NoteRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+
+        User user = new User();
+        user.setEmail("bench@demo.com");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z4zI8S6h7Xk3r4tP8xq1yW2e");
+        user.setRole(User.Role.USER);
+        owner = userRepository.save(user);
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        String content = "contenido ".repeat(20);
+        for (int from = 1; from <= notes; from += SEED_BATCH) {
+            List<Object[]> rows = new ArrayList<>(SEED_BATCH);
+            for (int id = from; id < from + SEED_BATCH && id <= notes; id++) {
+                rows.add(new Object[]{(long) id, "nota " + id, content, content.length(), 0L, owner.getId()});
+            }
+            jdbc.batchUpdate("insert into note (id, title, content, content_length, version, user_id) values (?, ?, ?, ?, ?, ?)", rows);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) context.close();
+    }
+
+    @Benchmark
+    public List<Note> findByOwner() {
+        return noteRepository.findByOwner(owner);
+    }
+
+    @Benchmark
+    public Optional<Note> findByIdAndOwner() {
+        long id = ThreadLocalRandom.current().nextLong(1, notes + 1);
+        return noteRepository.findByIdAndOwner(id, owner);
+    }
+}
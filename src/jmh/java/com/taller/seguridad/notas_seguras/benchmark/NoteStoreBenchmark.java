@@ -0,0 +1,99 @@
+package com.taller.seguridad.notas_seguras.benchmark;
+
+import com.taller.seguridad.notas_seguras.NotasSegurasApplication;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.storage.NoteDraft;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code NoteStore} con JPA/H2 frente al log en disco ({@code notes.store=log}):
+ * creación, actualización, lectura por id y página de 50 con 10^4 notas de un usuario.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NoteStoreBenchmark {
+
+    private static final int NOTES = 10_000;
+
+    @Param({"jpa", "log"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private NoteStore noteStore;
+    private Path logDir;
+    private Long ownerId;
+    private final NoteDraft draft = new NoteDraft("nota", "contenido ".repeat(20));
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        logDir = Files.createTempDirectory("jmh-notes-log");
+        context = SpringApplication.run(NotasSegurasApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:jmh-store-" + store,
+                "--notes.store=" + store,
+                "--notes.store.log.dir=" + logDir,
+                "--search.rebuild-on-startup=false",
+                "--logging.level.root=WARN");
+        noteStore = context.getBean(NoteStore.class);
+
+        User user = new User();
+        user.setEmail("bench@demo.com");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z4zI8S6h7Xk3r4tP8xq1yW2e");
+        user.setRole(User.Role.USER);
+        ownerId = context.getBean(UserRepository.class).save(user).getId();
+
+        for (int i = 0; i < NOTES; i += 500) {
+            noteStore.upsert(ownerId, Collections.nCopies(500, draft), Map.of());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+        FileSystemUtils.deleteRecursively(logDir);
+    }
+
+    @Benchmark
+    public NoteSummary create() {
+        return noteStore.create(ownerId, draft);
+    }
+
+    @Benchmark
+    public Optional<NoteSummary> update() {
+        return noteStore.update(ownerId, randomId(), draft, null);
+    }
+
+    @Benchmark
+    public Optional<NoteSummary> find() {
+        return noteStore.find(ownerId, randomId());
+    }
+
+    @Benchmark
+    public List<NoteMetadata> page() {
+        return noteStore.page(ownerId, randomId(), 50);
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, NOTES + 1);
+    }
+}
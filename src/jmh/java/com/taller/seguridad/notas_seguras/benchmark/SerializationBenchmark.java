@@ -0,0 +1,149 @@
+package com.taller.seguridad.notas_seguras.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.taller.seguridad.notas_seguras.controller.AuthController;
+import com.taller.seguridad.notas_seguras.controller.NoteController;
+import com.taller.seguridad.notas_seguras.model.Note;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.repository.UserSummary;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialización Jackson de las respuestas más frecuentes: entidades frente a DTOs, JSON frente a
+ * Smile/CBOR, y serializadores por reflexión frente a Blackbird ({@code accessors}).
+ * Al preparar cada trial imprime el tamaño de cada respuesta, sin comprimir y con gzip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int PAGE = 50;
+
+    @Param({"reflection", "blackbird"})
+    public String accessors;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter smileWriter;
+    private ObjectWriter cborWriter;
+    private Note note;
+    private NoteSummary noteSummary;
+    private AuthController.UserDTO userDTO;
+    private NoteController.NotePage notePage;
+    private List<User> userEntities;
+    private List<UserSummary> userSummaries;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = mapper(new JsonFactory());
+        smileWriter = mapper(new SmileFactory()).writer();
+        cborWriter = mapper(new CBORFactory()).writer();
+
+        User owner = user(1);
+        String content = "x".repeat(400);
+        note = new Note("Título de la nota", content, owner);
+        noteSummary = new NoteSummary(1L, "Título de la nota", content, content.length(), 0);
+        userDTO = new AuthController.UserDTO("user@demo.com", User.Role.USER);
+
+        List<NoteMetadata> items = new ArrayList<>();
+        for (long id = 1; id <= PAGE; id++) items.add(new NoteMetadata(id, "Título de la nota " + id, 400, 3));
+        notePage = new NoteController.NotePage(items, (long) PAGE);
+
+        userEntities = new ArrayList<>();
+        userSummaries = new ArrayList<>();
+        for (int i = 1; i <= PAGE; i++) {
+            User u = user(i);
+            userEntities.add(u);
+            userSummaries.add(new UserSummary(u.getId(), u.getEmail(), u.getRole(), u.isLocked(), u.getLastLogin()));
+        }
+
+        report("note (entidad)", objectMapper.writeValueAsBytes(note));
+        report("noteSummary", objectMapper.writeValueAsBytes(noteSummary));
+        report("notePage json", objectMapper.writeValueAsBytes(notePage));
+        report("notePage smile", smileWriter.writeValueAsBytes(notePage));
+        report("notePage cbor", cborWriter.writeValueAsBytes(notePage));
+        report("users (entidades)", objectMapper.writeValueAsBytes(userEntities));
+        report("users (UserSummary)", objectMapper.writeValueAsBytes(userSummaries));
+    }
+
+    private ObjectMapper mapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory).registerModule(new JavaTimeModule());
+        return accessors.equals("blackbird") ? mapper.registerModule(new BlackbirdModule()) : mapper;
+    }
+
+    private static User user(int i) {
+        User user = new User();
+        user.setId((long) i);
+        user.setEmail("user" + i + "@demo.com");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z4zI8S6h7Xk3r4tP8xq1yW2e");
+        user.setRole(User.Role.USER);
+        user.setLastLogin(LocalDateTime.of(2025, 1, 1, 12, 0));
+        return user;
+    }
+
+    private static void report(String name, byte[] payload) throws Exception {
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+            out.write(payload);
+        }
+        System.out.printf("%n[tamaño] %-22s %6d bytes, gzip %6d bytes%n", name, payload.length, gz.size());
+    }
+
+    @Benchmark
+    public byte[] noteEntity() throws Exception {
+        return objectMapper.writeValueAsBytes(note);
+    }
+
+    @Benchmark
+    public byte[] noteSummary() throws Exception {
+        return objectMapper.writeValueAsBytes(noteSummary);
+    }
+
+    @Benchmark
+    public byte[] userDTO() throws Exception {
+        return objectMapper.writeValueAsBytes(userDTO);
+    }
+
+    @Benchmark
+    public byte[] notePageJson() throws Exception {
+        return objectMapper.writeValueAsBytes(notePage);
+    }
+
+    @Benchmark
+    public byte[] notePageSmile() throws Exception {
+        return smileWriter.writeValueAsBytes(notePage);
+    }
+
+    @Benchmark
+    public byte[] notePageCbor() throws Exception {
+        return cborWriter.writeValueAsBytes(notePage);
+    }
+
+    @Benchmark
+    public byte[] userEntities() throws Exception {
+        return objectMapper.writeValueAsBytes(userEntities);
+    }
+
+    @Benchmark
+    public byte[] userSummaries() throws Exception {
+        return objectMapper.writeValueAsBytes(userSummaries);
+    }
+}
@@ -0,0 +1,94 @@
+package com.taller.seguridad.notas_seguras;
+
+import com.taller.seguridad.notas_seguras.controller.AdminController;
+import com.taller.seguridad.notas_seguras.controller.AuthController;
+import com.taller.seguridad.notas_seguras.controller.NoteChangeFeed;
+import com.taller.seguridad.notas_seguras.controller.NoteController;
+import com.taller.seguridad.notas_seguras.metrics.AdminSummary;
+import com.taller.seguridad.notas_seguras.metrics.QueryCountInspector;
+import com.taller.seguridad.notas_seguras.model.AuditEvent;
+import com.taller.seguridad.notas_seguras.model.Note;
+import com.taller.seguridad.notas_seguras.model.NoteChangeEntry;
+import com.taller.seguridad.notas_seguras.model.NoteChunk;
+import com.taller.seguridad.notas_seguras.model.NoteShardBucket;
+import com.taller.seguridad.notas_seguras.model.ReplicationHeartbeat;
+import com.taller.seguridad.notas_seguras.model.ShardRebalanceLease;
+import com.taller.seguridad.notas_seguras.model.RevokedToken;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.repository.UserStats;
+import com.taller.seguridad.notas_seguras.repository.UserSummary;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Lo que el procesamiento AOT no descubre solo y la imagen nativa necesita en tiempo de ejecución.
+ * <p>
+ * La configuración de seguridad, los controladores y los repositorios los genera el propio AOT como
+ * código; aquí quedan las clases que se usan por reflexión o por nombre:
+ * <ul>
+ *   <li>Entidades JPA, que Hibernate instancia y recorre por reflexión.</li>
+ *   <li>Proyecciones de las consultas {@code select new ...}, creadas con su constructor.</li>
+ *   <li>Las respuestas declaradas como {@code ResponseEntity<?>}, cuyo tipo real no se ve desde la
+ *       firma del método; Jackson las serializa por reflexión.</li>
+ *   <li>JJWT, que carga su implementación y el serializador Jackson por nombre y con ServiceLoader.</li>
+ *   <li>El StatementInspector de Hibernate, configurado por nombre de clase.</li>
+ * </ul>
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> ENTITIES = List.of(
+            Note.class, User.class, NoteChunk.class, NoteChangeEntry.class, RevokedToken.class,
+            ReplicationHeartbeat.class, NoteShardBucket.class, AuditEvent.class,
+            ShardRebalanceLease.class);
+
+    private static final List<Class<?>> RESPONSES = List.of(
+            NoteSummary.class, NoteMetadata.class, UserSummary.class, UserStats.class, NoteChange.class,
+            AuthController.UserDTO.class,
+            NoteController.NotePage.class, NoteController.BatchItemResult.class,
+            NoteChangeFeed.Change.class, NoteChangeFeed.ChangePage.class,
+            AdminController.UserRow.class, AdminController.UserPage.class,
+            AdminController.AuditRow.class, AdminController.AuditPage.class,
+            AdminSummary.Snapshot.class);
+
+    private static final List<String> JJWT_CLASSES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> entity : ENTITIES) {
+            hints.reflection().registerType(entity, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+
+        BindingReflectionHintsRegistrar binding = new BindingReflectionHintsRegistrar();
+        for (Class<?> response : RESPONSES) {
+            binding.registerReflectionHints(hints.reflection(), response);
+            hints.reflection().registerType(response, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        }
+
+        for (String name : JJWT_CLASSES) {
+            hints.reflection().registerType(TypeReference.of(name),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        hints.reflection().registerType(QueryCountInspector.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
@@ -0,0 +1,168 @@
+package com.taller.seguridad.notas_seguras.audit;
+
+import com.taller.seguridad.notas_seguras.model.AuditEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de auditoría de autenticación, fuera del camino de la petición.
+ * <p>
+ * {@link #record} deja el evento en un {@link RingBuffer} y vuelve: no toca la base de datos ni
+ * toma locks. Un hilo propio lo vacía por lotes ({@code audit.batch-size}) con un solo
+ * {@code batchUpdate} JDBC por lote. Si el buffer está lleno, según {@code audit.overflow}:
+ * <ul>
+ *   <li>{@code drop} (por defecto): el evento se descarta y se cuenta en {@code audit_events_total{result="dropped"}}.</li>
+ *   <li>{@code block}: el login espera a que haya sitio, como mucho {@code audit.block-timeout-ms}; después se descarta igual.</li>
+ * </ul>
+ * Al cerrar la aplicación se escribe lo que quede en el buffer (antes de cerrar Hibernate, que crea
+ * la tabla: de ahí el {@code @DependsOn}).
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class AuditLog implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final String INSERT =
+            "insert into audit_events (type, user_id, email, ip, created_at) values (?, ?, ?, ?, ?)";
+    private static final int MAX_EMAIL = 255;
+    private static final long BLOCK_PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public enum Overflow { DROP, BLOCK }
+
+    private record Event(AuditEvent.Type type, Long userId, String email, String ip, LocalDateTime at) {}
+
+    private final RingBuffer<Event> buffer;
+    private final JdbcTemplate jdbc;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Overflow overflow;
+    private final long blockTimeoutNanos;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public AuditLog(DataSource dataSource,
+                    @Value("${audit.buffer-size:8192}") int bufferSize,
+                    @Value("${audit.batch-size:500}") int batchSize,
+                    @Value("${audit.flush-interval-ms:200}") long flushIntervalMillis,
+                    @Value("${audit.overflow:drop}") String overflow,
+                    @Value("${audit.block-timeout-ms:100}") long blockTimeoutMillis) {
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.overflow = Overflow.valueOf(overflow.trim().toUpperCase());
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+    }
+
+    @PostConstruct
+    void start() {
+        // Hilo de plataforma: vive lo mismo que la aplicación y duerme entre lotes
+        writer = Thread.ofPlatform().daemon().name("audit-writer").start(this::run);
+    }
+
+    /**
+     * Encola un evento. userId, email e ip pueden ser null.
+     */
+    public void record(AuditEvent.Type type, Long userId, String email, String ip) {
+        if (email != null && email.length() > MAX_EMAIL) email = email.substring(0, MAX_EMAIL);
+        Event event = new Event(type, userId, email, ip, LocalDateTime.now());
+
+        if (!buffer.offer(event) && !(overflow == Overflow.BLOCK && offerWaiting(event))) {
+            dropped.increment();
+            return;
+        }
+        // Con un lote completo esperando no hace falta esperar al intervalo
+        if (buffer.size() >= batchSize) LockSupport.unpark(writer);
+    }
+
+    private boolean offerWaiting(Event event) {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        LockSupport.unpark(writer);
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(BLOCK_PAUSE_NANOS);
+            if (buffer.offer(event)) return true;
+        }
+        return false;
+    }
+
+    private void run() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                if (!running) return;
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            write(batch);
+        }
+    }
+
+    private void write(List<Event> batch) {
+        try {
+            jdbc.batchUpdate(INSERT, batch, batch.size(), (ps, event) -> {
+                ps.setString(1, event.type().name());
+                if (event.userId() != null) ps.setLong(2, event.userId()); else ps.setNull(2, Types.BIGINT);
+                ps.setString(3, event.email());
+                ps.setString(4, event.ip());
+                ps.setTimestamp(5, Timestamp.valueOf(event.at()));
+            });
+            written.add(batch.size());
+        } catch (RuntimeException e) {
+            // La auditoría no debe tumbar los logins: el lote se pierde y se cuenta
+            failed.add(batch.size());
+            log.warn("No se pudieron escribir {} eventos de auditoría", batch.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public int getPending() { return buffer.size(); }
+    public long getWritten() { return written.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public long getFailed() { return failed.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("audit.events", written, LongAdder::sum).tag("result", "written")
+                .description("Eventos de auditoría por resultado").register(registry);
+        FunctionCounter.builder("audit.events", dropped, LongAdder::sum).tag("result", "dropped")
+                .description("Eventos de auditoría por resultado").register(registry);
+        FunctionCounter.builder("audit.events", failed, LongAdder::sum).tag("result", "failed")
+                .description("Eventos de auditoría por resultado").register(registry);
+        Gauge.builder("audit.buffer.size", buffer, RingBuffer::size)
+                .description("Eventos en el buffer pendientes de escribir (capacidad " + buffer.capacity() + ")")
+                .register(registry);
+    }
+}
@@ -0,0 +1,78 @@
+package com.taller.seguridad.notas_seguras.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cola acotada sin bloqueos para muchos productores y un solo consumidor.
+ * <p>
+ * Cada posición lleva un número de secuencia que dice si está libre para la vuelta actual o ya
+ * tiene un elemento publicado (cola acotada de Vyukov). Los productores se reparten las posiciones
+ * con un CAS sobre {@code tail} y nunca esperan: si la cola está llena, {@link #offer} devuelve
+ * false. El consumidor avanza {@code head} sin CAS porque es el único que lo escribe.
+ */
+final class RingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1; // potencia de dos >= capacity
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.getAcquire(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.setPlain(index, element);
+                    sequences.setRelease(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false; // el consumidor aún no liberó esta posición de la vuelta anterior
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Pasa a {@code out} hasta {@code max} elementos, en orden de llegada. Solo desde el consumidor.
+     */
+    int drainTo(List<E> out, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.getAcquire(index) != position + 1) break; // vacía, o un productor aún no publicó
+            out.add(slots.getPlain(index));
+            slots.setPlain(index, null);
+            sequences.setRelease(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
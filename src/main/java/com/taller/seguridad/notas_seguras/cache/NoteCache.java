@@ -0,0 +1,160 @@
+package com.taller.seguridad.notas_seguras.cache;
+
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache en memoria de notas individuales, restringido al dueño.
+ * <p>
+ * Guarda copias inmutables ({@link NoteSummary}) con caducidad ({@code notes.cache.ttl-seconds})
+ * y un máximo de entradas ({@code notes.cache.max-entries}, se descarta la menos usada).
+ * Las escrituras invalidan la entrada al instante y otra vez después del commit; una lectura
+ * que empezó antes de una invalidación no vuelve a guardar el valor que leyó.
+ * <p>
+ * Con varias instancias la cache es local a cada una: el TTL acota cuánto puede tardar
+ * en verse un cambio hecho en otra instancia.
+ */
+@Component
+public class NoteCache implements MeterBinder {
+
+    private static final class Entry {
+        final Long ownerId;
+        final NoteSummary note;
+        final long expiresAt; // epoch millis
+
+        Entry(Long ownerId, NoteSummary note, long expiresAt) {
+            this.ownerId = ownerId;
+            this.note = note;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Orden de acceso (LRU); protegido por synchronized
+    private final LinkedHashMap<Long, Entry> entries;
+
+    // Se incrementa en cada invalidación; ver stamp()
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expiredEvictions = new LongAdder();
+
+    public NoteCache(@Value("${notes.cache.max-entries:10000}") int maxEntries,
+                     @Value("${notes.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= NoteCache.this.maxEntries) return false;
+                sizeEvictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Devuelve la nota si está en cache, no ha caducado y pertenece al dueño; si no, null.
+     */
+    public NoteSummary get(Long ownerId, Long noteId) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(noteId);
+            if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(noteId);
+                expiredEvictions.increment();
+                entry = null;
+            }
+        }
+        if (entry == null || !entry.ownerId.equals(ownerId)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.note;
+    }
+
+    /**
+     * Marca que se tomó antes de leer de la base de datos y se pasa a {@link #put}.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Guarda la nota leída, salvo que haya habido una invalidación desde {@code stamp}
+     * (la lectura podría ser anterior a esa escritura).
+     */
+    public void put(Long ownerId, NoteSummary note, long stamp) {
+        if (maxEntries <= 0) return;
+
+        Entry entry = new Entry(ownerId, note, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            if (invalidations.get() != stamp) return;
+            entries.put(note.getId(), entry);
+        }
+    }
+
+    /**
+     * Invalida la nota ahora y, si hay una transacción activa, también después del commit.
+     */
+    public void invalidate(Long noteId) {
+        evict(noteId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(noteId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long noteId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(noteId);
+        }
+    }
+
+    // --- Contadores ---
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getSizeEvictions() { return sizeEvictions.sum(); }
+    public long getExpiredEvictions() { return expiredEvictions.sum(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("notes.cache.requests", this, NoteCache::getHits)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("notes.cache.requests", this, NoteCache::getMisses)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("notes.cache.evictions", this, NoteCache::getSizeEvictions)
+                .tag("cause", "size").register(registry);
+        FunctionCounter.builder("notes.cache.evictions", this, NoteCache::getExpiredEvictions)
+                .tag("cause", "expired").register(registry);
+        Gauge.builder("notes.cache.size", this, NoteCache::size).register(registry);
+    }
+}
@@ -1,29 +1,347 @@
 package com.taller.seguridad.notas_seguras.controller;
 
+import com.taller.seguridad.notas_seguras.metrics.AdminSummary;
+import com.taller.seguridad.notas_seguras.model.AuditEvent;
 import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.AuditEventRepository;
 import com.taller.seguridad.notas_seguras.repository.UserRepository;
-import jakarta.servlet.http.HttpSession;
+import com.taller.seguridad.notas_seguras.repository.UserSummary;
+import com.taller.seguridad.notas_seguras.security.AuthenticatedUser;
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import com.taller.seguridad.notas_seguras.security.PasswordHashingService;
+import com.taller.seguridad.notas_seguras.security.VerifiedTokenCache;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import com.taller.seguridad.notas_seguras.storage.shard.ShardRebalancer;
+import com.taller.seguridad.notas_seguras.storage.shard.ShardedNoteStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/admin")
 public class AdminController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final Set<String> SORT_FIELDS = Set.of("id", "email", "role", "lastLogin");
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private NoteStore noteStore;
+
+    @Autowired
+    private AdminSummary adminSummary;
+
+    @Autowired
+    private AuditEventRepository auditEventRepository;
+
+    // Solo con notes.store=sharded
+    @Autowired(required = false)
+    private ShardedNoteStore shardedNoteStore;
+
+    @Autowired(required = false)
+    private ShardRebalancer shardRebalancer;
+
+    // --- Listado de usuarios ---
+    public static class UserRow {
+        private final Long id;
+        private final String email;
+        private final User.Role role;
+        private final boolean locked;
+        private final LocalDateTime lastLogin;
+        private final long noteCount;
+
+        public UserRow(UserSummary user, long noteCount) {
+            this.id = user.getId();
+            this.email = user.getEmail();
+            this.role = user.getRole();
+            this.locked = user.isLocked();
+            this.lastLogin = user.getLastLogin();
+            this.noteCount = noteCount;
+        }
+
+        public Long getId() { return id; }
+        public String getEmail() { return email; }
+        public User.Role getRole() { return role; }
+        public boolean isLocked() { return locked; }
+        public LocalDateTime getLastLogin() { return lastLogin; }
+        public long getNoteCount() { return noteCount; }
+    }
+
+    public static class UserPage {
+        private final List<UserRow> items;
+        private final int page;
+        private final int size;
+        private final boolean hasNext;
+
+        public UserPage(List<UserRow> items, int page, int size, boolean hasNext) {
+            this.items = items;
+            this.page = page;
+            this.size = size;
+            this.hasNext = hasNext;
+        }
+
+        public List<UserRow> getItems() { return items; }
+        public int getPage() { return page; }
+        public int getSize() { return size; }
+        public boolean isHasNext() { return hasNext; }
+    }
+
+    // Listar usuarios (?page=0&size=50&sort=email,desc&role=ADMIN&locked=true).
+    // Dos consultas por página sin importar su tamaño: la de usuarios y un GROUP BY con sus notas
     @GetMapping("/users")
-    public ResponseEntity<?> listUsers(HttpSession session) {
-        User current = (User) session.getAttribute("user");
+    public ResponseEntity<?> listUsers(@RequestParam(defaultValue = "0") int page,
+                                       @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                       @RequestParam(defaultValue = "id") String sort,
+                                       @RequestParam(required = false) User.Role role,
+                                       @RequestParam(required = false) Boolean locked,
+                                       @AuthenticationPrincipal AuthenticatedUser current) {
         if (current == null) return ResponseEntity.status(401).body("No autenticado");
 
-        if (current.getRole() != User.Role.ADMIN) {
+        if (!current.isAdmin()) {
             return ResponseEntity.status(403).body("No autorizado");
         }
 
-        return ResponseEntity.ok(userRepository.findAll());
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("page debe ser >= 0 y size debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        Sort order = parseSort(sort);
+        if (order == null) {
+            return ResponseEntity.badRequest().body("sort debe ser campo[,asc|desc] con campo en " + SORT_FIELDS);
+        }
+
+        Slice<UserSummary> users = userRepository.findSummaries(role, locked, PageRequest.of(page, size, order));
+        List<Long> ids = users.stream().map(UserSummary::getId).toList();
+        Map<Long, Long> noteCounts = noteStore.countByOwner(ids);
+
+        List<UserRow> rows = users.stream()
+                .map(u -> new UserRow(u, noteCounts.getOrDefault(u.getId(), 0L)))
+                .toList();
+        return ResponseEntity.ok(new UserPage(rows, page, size, users.hasNext()));
+    }
+
+    // --- Auditoría de autenticación ---
+    public static class AuditRow {
+        private final Long id;
+        private final AuditEvent.Type type;
+        private final Long userId;
+        private final String email;
+        private final String ip;
+        private final LocalDateTime createdAt;
+
+        public AuditRow(AuditEvent event) {
+            this.id = event.getId();
+            this.type = event.getType();
+            this.userId = event.getUserId();
+            this.email = event.getEmail();
+            this.ip = event.getIp();
+            this.createdAt = event.getCreatedAt();
+        }
+
+        public Long getId() { return id; }
+        public AuditEvent.Type getType() { return type; }
+        public Long getUserId() { return userId; }
+        public String getEmail() { return email; }
+        public String getIp() { return ip; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+    }
+
+    public static class AuditPage {
+        private final List<AuditRow> items;
+        private final String next; // createdAt_id del último evento; null si no hay más páginas
+
+        public AuditPage(List<AuditRow> items, String next) {
+            this.items = items;
+            this.next = next;
+        }
+
+        public List<AuditRow> getItems() { return items; }
+        public String getNext() { return next; }
+    }
+
+    // Eventos de login, fallos, bloqueos, registros y logouts, del más reciente al más antiguo
+    // (?type=LOGIN_FAILURE&userId=3&from=2025-01-01T00:00&to=...&limit=50). La página siguiente es ?before=<next>
+    @GetMapping("/audit")
+    public ResponseEntity<?> audit(@RequestParam(required = false) AuditEvent.Type type,
+                                   @RequestParam(required = false) Long userId,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                   @RequestParam(required = false) String before,
+                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                   @AuthenticationPrincipal AuthenticatedUser current) {
+        if (current == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (!current.isAdmin()) {
+            return ResponseEntity.status(403).body("No autorizado");
+        }
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+
+        LocalDateTime beforeTime = null;
+        Long beforeId = null;
+        if (before != null) {
+            int separator = before.lastIndexOf('_');
+            try {
+                beforeTime = LocalDateTime.parse(before.substring(0, Math.max(0, separator)));
+                beforeId = Long.parseLong(before.substring(separator + 1));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                return ResponseEntity.badRequest().body("before no es válido: usa el valor de next de la página anterior");
+            }
+        }
+
+        Slice<AuditEvent> events = auditEventRepository.search(type, userId, from, to, beforeTime, beforeId,
+                PageRequest.of(0, limit));
+        List<AuditRow> rows = events.stream().map(AuditRow::new).toList();
+        AuditRow last = events.hasNext() ? rows.get(rows.size() - 1) : null;
+        String next = last == null ? null : last.getCreatedAt() + "_" + last.getId();
+        return ResponseEntity.ok(new AuditPage(rows, next));
+    }
+
+    // El id desempata para que el orden entre páginas sea estable
+    private static Sort parseSort(String sort) {
+        String[] parts = sort.split(",");
+        if (parts.length > 2 || !SORT_FIELDS.contains(parts[0].trim())) return null;
+        Sort.Direction direction = Sort.Direction.ASC;
+        if (parts.length == 2) {
+            direction = Sort.Direction.fromOptionalString(parts[1].trim()).orElse(null);
+            if (direction == null) return null;
+        }
+        String field = parts[0].trim();
+        Sort order = Sort.by(direction, field);
+        return field.equals("id") ? order : order.and(Sort.by("id"));
+    }
+
+    // Contadores globales desde una foto que se refresca en segundo plano (admin.summary.refresh-ms)
+    @GetMapping("/summary")
+    public ResponseEntity<?> summary(@AuthenticationPrincipal AuthenticatedUser current) {
+        if (current == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (!current.isAdmin()) {
+            return ResponseEntity.status(403).body("No autorizado");
+        }
+
+        return ResponseEntity.ok(adminSummary.get());
+    }
+
+    // Exportar todos los usuarios en streaming (NDJSON, sin contraseñas)
+    @GetMapping("/users/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@AuthenticationPrincipal AuthenticatedUser current) {
+        if (current == null) return NdjsonExporter.plainText(401, "No autenticado");
+
+        if (!current.isAdmin()) {
+            return NdjsonExporter.plainText(403, "No autorizado");
+        }
+
+        return ndjsonExporter.export(userRepository::streamAll);
+    }
+
+    // Estadísticas del cache de tokens verificados
+    @GetMapping("/jwt-cache")
+    public ResponseEntity<?> jwtCacheStats(@AuthenticationPrincipal AuthenticatedUser current) {
+        if (current == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (!current.isAdmin()) {
+            return ResponseEntity.status(403).body("No autorizado");
+        }
+
+        VerifiedTokenCache cache = jwtService.getTokenCache();
+        return ResponseEntity.ok(Map.of(
+                "hits", cache.getHits(),
+                "misses", cache.getMisses(),
+                "size", cache.size()
+        ));
+    }
+
+    // Estado del pool de hashing de contraseñas
+    @GetMapping("/password-hashing")
+    public ResponseEntity<?> passwordHashingStats(@AuthenticationPrincipal AuthenticatedUser current) {
+        if (current == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (!current.isAdmin()) {
+            return ResponseEntity.status(403).body("No autorizado");
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "queueDepth", passwordHashingService.getQueueDepth(),
+                "activeThreads", passwordHashingService.getActiveThreads(),
+                "operations", passwordHashingService.getOperations(),
+                "rejected", passwordHashingService.getRejected(),
+                "averageMillis", passwordHashingService.getAverageMillis()
+        ));
+    }
+
+    // Notas por shard (consultadas en paralelo) y estado del último reparto de buckets
+    @GetMapping("/shards")
+    public ResponseEntity<?> shards(@AuthenticationPrincipal AuthenticatedUser current) {
+        if (current == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (!current.isAdmin()) {
+            return ResponseEntity.status(403).body("No autorizado");
+        }
+
+        if (shardedNoteStore == null) {
+            return ResponseEntity.status(404).body("El almacenamiento de notas no está particionado");
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("shards", shardedNoteStore.stats());
+        body.put("rebalance", shardRebalancer.status());
+        return ResponseEntity.ok(body);
+    }
+
+    // Reparte los buckets entre los shards en segundo plano (?drain=2 vacía el shard 2 antes de retirarlo)
+    @PostMapping("/shards/rebalance")
+    public ResponseEntity<?> rebalance(@RequestParam(defaultValue = "") Set<Integer> drain,
+                                       @AuthenticationPrincipal AuthenticatedUser current) {
+        if (current == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (!current.isAdmin()) {
+            return ResponseEntity.status(403).body("No autorizado");
+        }
+
+        if (shardRebalancer == null) {
+            return ResponseEntity.status(404).body("El almacenamiento de notas no está particionado");
+        }
+
+        List<Map<String, Integer>> plan;
+        try {
+            plan = shardRebalancer.start(drain);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (plan == null) {
+            return ResponseEntity.status(409).body("Ya hay un reparto en curso");
+        }
+        return ResponseEntity.accepted().body(Map.of("moves", plan));
     }
 }
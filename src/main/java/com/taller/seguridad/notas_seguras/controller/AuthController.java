@@ -1,21 +1,33 @@
 package com.taller.seguridad.notas_seguras.controller;
 
+import com.taller.seguridad.notas_seguras.audit.AuditLog;
+import com.taller.seguridad.notas_seguras.model.AuditEvent;
 import com.taller.seguridad.notas_seguras.model.User;
 import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.security.JwtAuthenticationFilter;
 import com.taller.seguridad.notas_seguras.security.JwtService;
-import jakarta.servlet.http.HttpSession;
+import com.taller.seguridad.notas_seguras.security.LoginAttemptTracker;
+import com.taller.seguridad.notas_seguras.security.PasswordHashingBusyException;
+import com.taller.seguridad.notas_seguras.security.PasswordHashingService;
+import com.taller.seguridad.notas_seguras.security.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/auth")
@@ -25,11 +37,29 @@ public class AuthController {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private LoginAttemptTracker loginAttemptTracker;
+
+    @Value("${security.password-hashing.retry-after-seconds:1}")
+    private int retryAfterSeconds;
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    // Lo que sigue al hash (guardar el usuario, firmar el JWT) sale del pool de BCrypt, que solo
+    // tiene un hilo por núcleo: así no ocupa su capacidad esperando a la base de datos
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private Executor afterHashing;
+
     // --- DTO para el registro ---
     public static class RegisterRequest {
         @Email
@@ -68,92 +98,138 @@ public class AuthController {
 
     // --- Registro ---
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest req) {
+    public CompletableFuture<ResponseEntity<?>> register(@Valid @RequestBody RegisterRequest req, HttpServletRequest request) {
         if (userRepository.findByEmail(req.getEmail()).isPresent()) {
-            return ResponseEntity.badRequest().body("El email ya está registrado");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("El email ya está registrado"));
         }
 
-        User user = new User();
-        user.setEmail(req.getEmail());
-        user.setPassword(passwordEncoder.encode(req.getPassword()));
-        user.setRole(req.isAdmin() ? User.Role.ADMIN : User.Role.USER);
-        user.setFailedAttempts(0);
-        user.setLocked(false);
-        user.setLockTime(null);
+        CompletableFuture<String> hash;
+        try {
+            hash = passwordHashingService.encode(req.getPassword());
+        } catch (PasswordHashingBusyException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
 
-        userRepository.save(user);
-        return ResponseEntity.ok("Usuario registrado correctamente");
+        String ip = request.getRemoteAddr();
+        return hash.thenApplyAsync(encoded -> {
+            User user = new User();
+            user.setEmail(req.getEmail());
+            user.setPassword(encoded);
+            user.setRole(req.isAdmin() ? User.Role.ADMIN : User.Role.USER);
+            user.setFailedAttempts(0);
+            user.setLocked(false);
+            user.setLockTime(null);
+
+            try {
+                userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                // Otro registro con el mismo email terminó mientras se calculaba el hash
+                return ResponseEntity.badRequest().body("El email ya está registrado");
+            }
+            auditLog.record(AuditEvent.Type.REGISTER, user.getId(), user.getEmail(), ip);
+            return ResponseEntity.ok("Usuario registrado correctamente");
+        }, afterHashing);
     }
 
     // --- Login con bloqueo y JWT ---
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestParam String username,
-                                   @RequestParam String password,
-                                   HttpSession session) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestParam String username,
+                                                      @RequestParam String password,
+                                                      HttpServletRequest request) {
+        // Los eventos de auditoría solo se encolan: el login no espera a la base de datos
+        String ip = request.getRemoteAddr();
         Optional<User> userOpt = userRepository.findByEmail(username);
         if (userOpt.isEmpty()) {
-            return ResponseEntity.status(401).body("Usuario no encontrado");
+            auditLog.record(AuditEvent.Type.LOGIN_UNKNOWN_USER, null, username, ip);
+            return CompletableFuture.completedFuture(ResponseEntity.status(401).body("Usuario no encontrado"));
         }
 
         User user = userOpt.get();
 
-        // Si el usuario está bloqueado verificamos el tiempo
-        if (user.isLocked()) {
-            if (user.getLockTime() != null && user.getLockTime().plusMinutes(15).isBefore(LocalDateTime.now())) {
-                user.setLocked(false);
-                user.setFailedAttempts(0);
-                user.setLockTime(null);
-                userRepository.save(user);
-            } else {
-                return ResponseEntity.status(403).body("Cuenta bloqueada. Intenta de nuevo más tarde.");
-            }
+        // Bloqueo temporal (en memoria, ver LoginAttemptTracker)
+        if (loginAttemptTracker.lockedUntil(user) != 0) {
+            auditLog.record(AuditEvent.Type.LOGIN_REJECTED_LOCKED, user.getId(), user.getEmail(), ip);
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(403).body("Cuenta bloqueada. Intenta de nuevo más tarde."));
         }
 
-        // Validar contraseña
-        if (!passwordEncoder.matches(password, user.getPassword())) {
-            user.setFailedAttempts(user.getFailedAttempts() + 1);
+        // Validar contraseña (en el pool de BCrypt, no en el hilo de Tomcat)
+        CompletableFuture<PasswordHashingService.Verification> verification;
+        try {
+            verification = passwordHashingService.verify(password, user.getPassword());
+        } catch (PasswordHashingBusyException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
 
-            if (user.getFailedAttempts() >= 5) {
-                user.setLocked(true);
-                user.setLockTime(LocalDateTime.now());
-                userRepository.save(user);
-                return ResponseEntity.status(403).body("Cuenta bloqueada por demasiados intentos fallidos. Intenta en 15 minutos.");
+        return verification.thenApplyAsync(result -> {
+            if (!result.matches()) {
+                int failures = loginAttemptTracker.recordFailure(user);
+                auditLog.record(AuditEvent.Type.LOGIN_FAILURE, user.getId(), user.getEmail(), ip);
+
+                if (failures >= User.MAX_FAILED_ATTEMPTS) {
+                    if (failures == User.MAX_FAILED_ATTEMPTS) {
+                        auditLog.record(AuditEvent.Type.ACCOUNT_LOCKED, user.getId(), user.getEmail(), ip);
+                    }
+                    return ResponseEntity.status(403).body("Cuenta bloqueada por demasiados intentos fallidos. Intenta en "
+                            + User.LOCK_TIME_DURATION + " minutos.");
+                }
+                return ResponseEntity.status(401).body("Contraseña incorrecta. Intentos fallidos: " + failures);
             }
 
-            userRepository.save(user);
-            return ResponseEntity.status(401).body("Contraseña incorrecta. Intentos fallidos: " + user.getFailedAttempts());
-        }
+            // Login exitoso: el desbloqueo y lastLogin se persisten en segundo plano
+            loginAttemptTracker.recordSuccess(user);
+            auditLog.record(AuditEvent.Type.LOGIN_SUCCESS, user.getId(), user.getEmail(), ip);
+            if (result.getUpgradedHash() != null) {
+                user.setPassword(result.getUpgradedHash()); // el hash tenía otro costo: se actualiza
+                userRepository.save(user);
+            }
 
-        // Login exitoso
-        user.setFailedAttempts(0);
-        user.setLocked(false);
-        user.setLockTime(null);
-        userRepository.save(user);
+            // Generar token JWT: lleva id y rol, así cualquier instancia atiende sin sesión
+            String token = jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
 
-        session.setAttribute("user", user);
+            return ResponseEntity.ok(Map.of(
+                    "message", "Login exitoso",
+                    "token", token,
+                    "role", user.getRole()
+            ));
+        }, afterHashing);
+    }
 
-        // Generar token JWT
-        String token = jwtService.generateToken(user.getEmail(), user.getRole().name());
+    // --- Logout: revoca el token actual hasta su expiración ---
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestAttribute(value = JwtAuthenticationFilter.CLAIMS_ATTRIBUTE, required = false) Claims claims,
+                                    HttpServletRequest request) {
+        if (claims == null) {
+            return ResponseEntity.status(401).body("Token no proporcionado");
+        }
+        revocationService.revoke(claims);
+        Number userId = claims.get(JwtService.USER_ID_CLAIM, Number.class);
+        auditLog.record(AuditEvent.Type.LOGOUT, userId == null ? null : userId.longValue(), claims.getSubject(),
+                request.getRemoteAddr());
+        return ResponseEntity.ok("Sesión cerrada");
+    }
 
-        return ResponseEntity.ok(Map.of(
-                "message", "Login exitoso",
-                "token", token,
-                "role", user.getRole()
-        ));
+    // Cola de hashing llena: se rechaza de inmediato
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(503)
+                .header("Retry-After", String.valueOf(retryAfterSeconds))
+                .body("Servidor ocupado. Intenta de nuevo en unos segundos.");
     }
 
     // --- Perfil del usuario logueado ---
     @GetMapping("/me")
-    public ResponseEntity<?> profile(@RequestHeader(value = "Authorization", required = false) String header) {
+    public ResponseEntity<?> profile(@RequestHeader(value = "Authorization", required = false) String header,
+                                     @RequestAttribute(value = JwtAuthenticationFilter.CLAIMS_ATTRIBUTE, required = false) Claims verified) {
         if (header == null || !header.startsWith("Bearer ")) {
             return ResponseEntity.status(401).body("Token no proporcionado");
         }
 
         String token = header.substring(7);
         try {
-            var claims = jwtService.validateToken(token);
-            String email = claims.getBody().getSubject();
-            String role = (String) claims.getBody().get("role");
+            // El filtro JWT ya verificó el token; solo se parsea si no pasó por él
+            Claims claims = verified != null ? verified : jwtService.verify(token);
+            String email = claims.getSubject();
+            String role = (String) claims.get("role");
             return ResponseEntity.ok(Map.of("email", email, "role", role));
         } catch (Exception e) {
             return ResponseEntity.status(401).body("Token inválido o expirado");
@@ -0,0 +1,77 @@
+package com.taller.seguridad.notas_seguras.controller;
+
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import org.springframework.http.CacheControl;
+
+import java.util.List;
+
+/**
+ * ETags de las notas y comparación con If-None-Match / If-Match.
+ * <p>
+ * El ETag de una nota es su versión. El de una página del listado es débil: un hash de los
+ * pares (id, versión) que contiene y del cursor siguiente, así cambia si se crea, edita o borra
+ * alguna de sus notas sin tener que serializar la respuesta para compararla.
+ */
+final class ETags {
+
+    // Sin max-age: el cliente puede guardar la respuesta pero debe revalidarla siempre
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    // La misma versión se sirve como JSON, Smile o CBOR según Accept
+    static final String VARY = "Accept";
+
+    private ETags() {}
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String ofPage(List<NoteMetadata> items, Long nextCursor) {
+        long hash = mix(items.size());
+        for (NoteMetadata n : items) {
+            hash = mix(hash ^ n.getId());
+            hash = mix(hash ^ n.getVersion());
+        }
+        hash = mix(hash ^ (nextCursor == null ? -1 : nextCursor));
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+
+    // Finalizador de SplitMix64: cada bit de entrada afecta a todos los de salida
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * If-None-Match con comparación débil (se ignora el prefijo {@code W/}).
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String target = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(target)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Versión exigida por If-Match: null si no hay condición (sin cabecera o {@code *}) y -1 si la
+     * cabecera no es un único ETag fuerte de nota, que nunca coincide.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) return -1L;
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,81 @@
+package com.taller.seguridad.notas_seguras.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Escribe el resultado de una consulta en streaming como NDJSON (un objeto JSON por línea).
+ * La consulta se recorre dentro de una transacción de solo lectura y la memoria usada
+ * no depende del número de filas.
+ */
+@Component
+public class NdjsonExporter {
+
+    private static final int FLUSH_EVERY = 500; // filas entre cada flush (y limpieza del contexto)
+
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTx;
+
+    public NdjsonExporter(ObjectMapper objectMapper,
+                          EntityManager entityManager,
+                          PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> export(Supplier<Stream<T>> query) {
+        StreamingResponseBody body = out -> readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<T> rows = query.get();
+                 JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.setRootValueSeparator(null);
+
+                int count = 0;
+                var it = rows.iterator();
+                while (it.hasNext()) {
+                    gen.writeObject(it.next());
+                    gen.writeRaw('\n');
+                    if (++count % FLUSH_EVERY == 0) {
+                        gen.flush();
+                        // Si la consulta devolviera entidades, se sueltan para no acumularlas
+                        entityManager.clear();
+                    }
+                }
+                gen.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Respuesta de error en texto plano para los endpoints de exportación
+     * (que deben declarar StreamingResponseBody como tipo de cuerpo).
+     */
+    public static ResponseEntity<StreamingResponseBody> plainText(int status, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status)
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> out.write(bytes));
+    }
+}
@@ -0,0 +1,386 @@
+package com.taller.seguridad.notas_seguras.controller;
+
+import com.taller.seguridad.notas_seguras.datasource.ReadYourWrites;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.storage.ChangeHistoryExpiredException;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cambios de las notas para sincronizar clientes: páginas de {@code GET /notes/changes} y eventos
+ * SSE de {@code GET /notes/changes/stream}.
+ * <p>
+ * El historial del {@link NoteStore} es la única cola. Cuando el controlador escribe, cada
+ * suscriptor del dueño solo recibe un aviso, que es incrementar un contador sin bloquear. Un hilo
+ * del pool de envío ({@code notes.changes.sse.sender-threads}) lee entonces del historial lo que
+ * falta para ese suscriptor y lo envía. Lo pendiente sigue en el historial, no en memoria.
+ * <p>
+ * Un cliente lento no frena a nadie: quien escribe solo avisa, y la escritura en la respuesta se
+ * hace en otro hilo que el pool espera como mucho {@code notes.changes.sse.send-timeout-ms}.
+ * Pasado ese tiempo, o si acumula más de {@code notes.changes.sse.max-lag} cambios o el historial
+ * ya no los tiene, el suscriptor se da de baja y se le cierra la conexión (con un evento
+ * {@code resync} cuando todavía se le puede escribir).
+ * <p>
+ * Cada {@code notes.changes.sse.heartbeat-ms} se revisan todos los suscriptores. Si no hay nada
+ * que enviar, se manda un comentario para mantener viva la conexión. Esa misma revisión entrega
+ * los cambios hechos en otra instancia, que no avisa a esta.
+ * <p>
+ * Cada página se lee en una sola transacción de solo lectura, así el historial y los datos de las
+ * notas salen de la misma réplica. La secuencia desde la que empieza un cliente se lee en el
+ * primario (ver {@link ReadYourWrites#fromPrimary}).
+ */
+@Component
+public class NoteChangeFeed {
+
+    // --- Respuestas ---
+
+    // Último cambio de una nota dentro de la página; title/size/version son null si se eliminó
+    public static class Change {
+        private final long seq;
+        private final NoteChange.Type type;
+        private final Long id;
+        private final String title;
+        private final Long size;
+        private final Long version;
+
+        Change(long seq, NoteChange.Type type, Long id, NoteMetadata note) {
+            this.seq = seq;
+            this.type = type;
+            this.id = id;
+            this.title = note == null ? null : note.getTitle();
+            this.size = note == null ? null : note.getSize();
+            this.version = note == null ? null : note.getVersion();
+        }
+
+        public long getSeq() { return seq; }
+        public NoteChange.Type getType() { return type; }
+        public Long getId() { return id; }
+        public String getTitle() { return title; }
+        public Long getSize() { return size; }
+        public Long getVersion() { return version; }
+    }
+
+    public static class ChangePage {
+        private final List<Change> changes;
+        private final long since; // la próxima petición usa ?since= con este valor
+        private final boolean hasMore;
+
+        public ChangePage(List<Change> changes, long since, boolean hasMore) {
+            this.changes = changes;
+            this.since = since;
+            this.hasMore = hasMore;
+        }
+
+        public List<Change> getChanges() { return changes; }
+        public long getSince() { return since; }
+        public boolean isHasMore() { return hasMore; }
+    }
+
+    // --- Suscriptores SSE ---
+
+    private static final class Subscriber {
+        final Long ownerId;
+        final SseEmitter emitter;
+        final AtomicInteger wip = new AtomicInteger(); // avisos pendientes; >0 si hay un hilo enviando
+        volatile long since;
+        volatile boolean heartbeatDue;
+        volatile boolean closed;
+
+        Subscriber(Long ownerId, SseEmitter emitter, long since) {
+            this.ownerId = ownerId;
+            this.emitter = emitter;
+            this.since = since;
+        }
+    }
+
+    private final NoteStore noteStore;
+    private final ReadYourWrites readYourWrites;
+    private final TransactionTemplate readOnlyTx;
+    private final int maxLag;
+    private final int maxSubscribers;
+    private final int maxPerOwner;
+    private final long timeoutMs;
+    private final long sendTimeoutMs;
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Hilos de plataforma y no virtuales: la lectura del historial (JDBC) y SseEmitter.send pasan
+    // por bloques synchronized que fijarían el hilo portador. La cola no crece sin límite: cada
+    // suscriptor tiene como mucho una tarea pendiente (ver schedule)
+    private final ThreadPoolExecutor senders;
+    // Escrituras en las respuestas. Cada suscriptor tiene como mucho una en curso, así que hay como
+    // mucho un hilo por suscriptor; uno atascado solo retiene el suyo hasta que Tomcat corta la conexión
+    private final ExecutorService writers;
+    private final Counter resyncs;
+
+    public NoteChangeFeed(NoteStore noteStore,
+                          ReadYourWrites readYourWrites,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry registry,
+                          @Value("${notes.changes.sse.max-lag:500}") int maxLag,
+                          @Value("${notes.changes.sse.max-subscribers:1000}") int maxSubscribers,
+                          @Value("${notes.changes.sse.max-per-owner:4}") int maxPerOwner,
+                          @Value("${notes.changes.sse.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${notes.changes.sse.sender-threads:8}") int senderThreads,
+                          @Value("${notes.changes.sse.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.noteStore = noteStore;
+        this.readYourWrites = readYourWrites;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.maxLag = maxLag;
+        this.maxSubscribers = maxSubscribers;
+        this.maxPerOwner = maxPerOwner;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "sse-sender-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        AtomicInteger writerCount = new AtomicInteger();
+        this.writers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "sse-writer-" + writerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("notes.changes.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Suscriptores SSE de cambios de notas")
+                .register(registry);
+        this.resyncs = Counter.builder("notes.changes.resyncs")
+                .description("Suscriptores SSE cerrados por lentos o por historial expirado")
+                .register(registry);
+    }
+
+    /**
+     * Cambios posteriores a {@code since}, con un solo elemento por nota (el último) y los datos
+     * actuales de las notas que siguen existiendo.
+     *
+     * @throws ChangeHistoryExpiredException si el historial ya no cubre {@code since}
+     */
+    public ChangePage read(Long ownerId, long since, int limit) {
+        return readOnlyTx.execute(status -> readPage(ownerId, since, limit));
+    }
+
+    /**
+     * Secuencia actual del usuario, leída en el primario. Un cliente que lista sus notas justo
+     * después (como pide un evento {@code resync}) ve al menos hasta esa secuencia y puede seguir
+     * desde ella sin perder cambios.
+     */
+    public long changeSeq(Long ownerId) {
+        return readYourWrites.fromPrimary(ownerId, () -> noteStore.changeSeq(ownerId));
+    }
+
+    // changes y metadata en la misma transacción: con réplicas, una que todavía no tiene una nota
+    // del historial la daría por eliminada y since avanzaría sin entregarla
+    private ChangePage readPage(Long ownerId, long since, int limit) {
+        List<NoteChange> raw = noteStore.changes(ownerId, since, limit + 1);
+        boolean hasMore = raw.size() > limit;
+        if (hasMore) raw = raw.subList(0, limit);
+        if (raw.isEmpty()) return new ChangePage(List.of(), since, false);
+
+        // Una nota creada y luego editada en la misma página sigue siendo nueva para el cliente
+        Map<Long, NoteChange> last = new LinkedHashMap<>();
+        Map<Long, Boolean> created = new HashMap<>();
+        for (NoteChange change : raw) {
+            last.remove(change.getNoteId()); // el orden queda por el último cambio
+            last.put(change.getNoteId(), change);
+            created.putIfAbsent(change.getNoteId(), change.getType() == NoteChange.Type.CREATED);
+        }
+
+        List<Long> live = new ArrayList<>();
+        for (NoteChange change : last.values()) {
+            if (change.getType() != NoteChange.Type.DELETED) live.add(change.getNoteId());
+        }
+        Map<Long, NoteMetadata> current = new HashMap<>();
+        if (!live.isEmpty()) {
+            for (NoteMetadata note : noteStore.metadata(ownerId, live)) current.put(note.getId(), note);
+        }
+
+        List<Change> changes = new ArrayList<>(last.size());
+        for (NoteChange change : last.values()) {
+            NoteChange.Type type = change.getType();
+            NoteMetadata note = null;
+            if (type != NoteChange.Type.DELETED) {
+                note = current.get(change.getNoteId());
+                // Se eliminó después: su DELETED llega en una página siguiente
+                if (note == null) continue;
+                if (created.get(change.getNoteId())) type = NoteChange.Type.CREATED;
+            }
+            changes.add(new Change(change.getSeq(), type, change.getNoteId(), note));
+        }
+        return new ChangePage(changes, raw.get(raw.size() - 1).getSeq(), hasMore);
+    }
+
+    /**
+     * Abre un stream de eventos desde {@code since} (o desde ahora si es null). Devuelve null si
+     * se alcanzó el máximo de suscriptores, global o del usuario.
+     */
+    public SseEmitter subscribe(Long ownerId, Long since) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(ownerId, emitter, since != null ? since : changeSeq(ownerId));
+        boolean[] added = {false};
+        subscribers.compute(ownerId, (k, own) -> {
+            if (own == null) own = ConcurrentHashMap.newKeySet();
+            if (own.size() < maxPerOwner) added[0] = own.add(subscriber);
+            return own.isEmpty() ? null : own;
+        });
+        if (!added[0]) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        schedule(subscriber); // envía lo pendiente desde since
+        return emitter;
+    }
+
+    /**
+     * Aviso del controlador tras una escritura ya confirmada. No bloquea.
+     */
+    public void changed(Long ownerId) {
+        Set<Subscriber> own = subscribers.get(ownerId);
+        if (own == null) return;
+        for (Subscriber subscriber : own) schedule(subscriber);
+    }
+
+    @Scheduled(fixedDelayString = "${notes.changes.sse.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(own -> own.forEach(subscriber -> {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }));
+    }
+
+    public int size() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.values().forEach(own -> own.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    // Como mucho un hilo enviando por suscriptor; los avisos que llegan mientras tanto se acumulan en wip
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.closed) return;
+        if (subscriber.wip.getAndIncrement() == 0) senders.execute(() -> drain(subscriber));
+    }
+
+    private void drain(Subscriber subscriber) {
+        int missed = 1;
+        do {
+            if (!subscriber.closed) send(subscriber);
+            missed = subscriber.wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            ChangePage page = read(subscriber.ownerId, subscriber.since, maxLag);
+            if (page.isHasMore()) {
+                resync(subscriber, "Hay demasiados cambios pendientes");
+                return;
+            }
+            List<SseEmitter.SseEventBuilder> events = new ArrayList<>(page.getChanges().size());
+            for (Change change : page.getChanges()) {
+                events.add(SseEmitter.event()
+                        .id(Long.toString(change.getSeq()))
+                        .name("change")
+                        .data(change, MediaType.APPLICATION_JSON));
+            }
+            if (events.isEmpty() && subscriber.heartbeatDue) events.add(SseEmitter.event().comment("ping"));
+            if (!events.isEmpty() && !write(subscriber, events)) return;
+            subscriber.since = page.getSince();
+            subscriber.heartbeatDue = false;
+        } catch (ChangeHistoryExpiredException e) {
+            resync(subscriber, "El historial de cambios ya no incluye la secuencia " + subscriber.since);
+        }
+    }
+
+    // Escribe en el hilo de writers y espera como mucho sendTimeoutMs; false si el suscriptor se dio de baja
+    private boolean write(Subscriber subscriber, List<SseEmitter.SseEventBuilder> events) {
+        Future<?> written = writers.submit(() -> {
+            for (SseEmitter.SseEventBuilder event : events) subscriber.emitter.send(event);
+            return null;
+        });
+        try {
+            written.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // El cliente no lee: no se le puede mandar resync, solo se cierra cuando la escritura termine
+            resyncs.increment();
+            remove(subscriber);
+            writers.execute(subscriber.emitter::complete);
+        } catch (ExecutionException e) {
+            // El cliente se desconectó o el emitter ya terminó
+            remove(subscriber);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    // El cliente debe volver a listar GET /notes (después de leer la secuencia actual) y reconectar.
+    // El evento se escribe sin esperar: si el cliente no lee, no retiene el hilo de envío
+    private void resync(Subscriber subscriber, String reason) {
+        resyncs.increment();
+        remove(subscriber);
+        writers.execute(() -> {
+            try {
+                subscriber.emitter.send(SseEmitter.event().name("resync").data(reason, MediaType.TEXT_PLAIN));
+                subscriber.emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // ya desconectado
+            }
+        });
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.ownerId, (k, own) -> {
+            if (own.remove(subscriber)) subscriberCount.decrementAndGet();
+            return own.isEmpty() ? null : own;
+        });
+    }
+}
@@ -1,24 +1,74 @@
 package com.taller.seguridad.notas_seguras.controller;
 
+import com.taller.seguridad.notas_seguras.cache.NoteCache;
 import com.taller.seguridad.notas_seguras.model.Note;
-import com.taller.seguridad.notas_seguras.model.User;
-import com.taller.seguridad.notas_seguras.repository.NoteRepository;
-import jakarta.servlet.http.HttpSession;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.search.NoteSearchIndex;
+import com.taller.seguridad.notas_seguras.security.AuthenticatedUser;
+import com.taller.seguridad.notas_seguras.storage.ChangeHistoryExpiredException;
+import com.taller.seguridad.notas_seguras.storage.NoteContentTooLargeException;
+import com.taller.seguridad.notas_seguras.storage.NoteDraft;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import com.taller.seguridad.notas_seguras.storage.shard.ShardMovingException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/notes")
 public class NoteController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int DEFAULT_CHANGES_LIMIT = 100;
+    private static final int MAX_CHANGES_LIMIT = 1000;
+    private static final String HISTORY_EXPIRED = "El historial de cambios ya no llega hasta esa secuencia. "
+            + "Lee la secuencia actual con GET /notes/changes, vuelve a listar GET /notes y sigue desde ahí.";
+
+    @Autowired
+    private NoteStore noteStore;
+
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+
+    @Autowired
+    private Validator validator;
+
     @Autowired
-    private NoteRepository noteRepository;
+    private NoteSearchIndex searchIndex;
+
+    @Autowired
+    private NoteCache noteCache;
+
+    @Autowired
+    private NoteChangeFeed changeFeed;
+
 
     // DTO para validación de entrada
     public static class NoteDTO {
@@ -34,84 +84,435 @@ public class NoteController {
         public void setContent(String content) { this.content = content; }
     }
 
+    // --- Respuesta paginada por cursor ---
+    public static class NotePage {
+        private final List<NoteMetadata> items;
+        private final Long nextCursor; // null si no hay más páginas
+
+        public NotePage(List<NoteMetadata> items, Long nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<NoteMetadata> getItems() { return items; }
+        public Long getNextCursor() { return nextCursor; }
+    }
+
+    // --- DTOs de operaciones en lote ---
+    // Elemento de POST /notes/batch: sin id se crea, con id se actualiza
+    public static class BatchNoteItem {
+        private Long id;
+        private String title;
+        private String content;
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+        public String getContent() { return content; }
+        public void setContent(String content) { this.content = content; }
+    }
+
+    // Resultado por elemento, en el mismo orden de la petición
+    public static class BatchItemResult {
+        private final int index;
+        private final Long id;
+        private final String status; // created, updated, deleted, invalid, not_found
+        private final List<String> errors;
+
+        public BatchItemResult(int index, Long id, String status, List<String> errors) {
+            this.index = index;
+            this.id = id;
+            this.status = status;
+            this.errors = errors;
+        }
+
+        public int getIndex() { return index; }
+        public Long getId() { return id; }
+        public String getStatus() { return status; }
+        public List<String> getErrors() { return errors; }
+    }
+
     // Crear nota
     @PostMapping
-    public ResponseEntity<?> createNote(@Valid @RequestBody NoteDTO noteDTO, HttpSession session) {
-        User user = (User) session.getAttribute("user");
+    public ResponseEntity<?> createNote(@Valid @RequestBody NoteDTO noteDTO, @AuthenticationPrincipal AuthenticatedUser user) {
         if (user == null) return ResponseEntity.status(401).body("No autenticado");
 
-        Note note = new Note();
-        note.setTitle(noteDTO.getTitle());
-        note.setContent(noteDTO.getContent());
-        note.setOwner(user);
+        List<String> errors = validate(noteDTO.getTitle(), noteDTO.getContent());
+        if (!errors.isEmpty()) return ResponseEntity.badRequest().body(errors);
 
-        noteRepository.save(note);
-        return ResponseEntity.ok(note);
+        NoteSummary note = noteStore.create(user.getId(), new NoteDraft(noteDTO.getTitle(), noteDTO.getContent()));
+        searchIndex.onSaved(user.getId(), note.getId(), note.getTitle(), note.getContent());
+        changeFeed.changed(user.getId());
+        return ResponseEntity.ok().eTag(ETags.of(note.getVersion())).body(note);
     }
 
-    // Listar mis notas
+    // Listar mis notas (paginado por cursor: ?limit=50&after=<último id>). Con If-None-Match responde 304 si la página no cambió
     @GetMapping
-    public ResponseEntity<?> getMyNotes(HttpSession session) {
-        User user = (User) session.getAttribute("user");
+    public ResponseEntity<?> getMyNotes(@RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                        @RequestParam(required = false) Long after,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                        @AuthenticationPrincipal AuthenticatedUser user) {
         if (user == null) return ResponseEntity.status(401).body("No autenticado");
 
-        List<Note> notes = noteRepository.findByOwner(user);
-        return ResponseEntity.ok(notes);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+
+        // Se pide un elemento extra para saber si existe una página siguiente
+        List<NoteMetadata> rows = noteStore.page(user.getId(), after == null ? 0L : after, limit + 1);
+
+        Long nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = rows.get(limit - 1).getId();
+        }
+
+        String etag = ETags.ofPage(rows, nextCursor);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(ETags.REVALIDATE).varyBy(ETags.VARY).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).varyBy(ETags.VARY).body(new NotePage(rows, nextCursor));
     }
 
-    // Obtener una nota propia por ID
+    // Exportar todas mis notas en streaming (NDJSON)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMyNotes(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return NdjsonExporter.plainText(401, "No autenticado");
+
+        Long ownerId = user.getId();
+        return ndjsonExporter.export(() -> noteStore.stream(ownerId));
+    }
+
+    // Buscar en mis notas (?q=palabras, un término con * al final se busca como prefijo)
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMyNotes(@RequestParam String q,
+                                           @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit,
+                                           @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (q.isBlank() || q.length() > MAX_QUERY_LENGTH) {
+            return ResponseEntity.badRequest().body("q debe tener entre 1 y " + MAX_QUERY_LENGTH + " caracteres");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+
+        List<Long> ranked = searchIndex.search(user.getId(), q, limit);
+        if (ranked.isEmpty()) return ResponseEntity.ok(List.of());
+
+        // Una sola consulta para los resultados, devueltos en el orden de relevancia
+        Map<Long, NoteMetadata> byId = new HashMap<>();
+        for (NoteMetadata n : noteStore.metadata(user.getId(), ranked)) {
+            byId.put(n.getId(), n);
+        }
+        List<NoteMetadata> results = new ArrayList<>(ranked.size());
+        for (Long id : ranked) {
+            NoteMetadata n = byId.get(id);
+            if (n != null) results.add(n);
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    // Cambios desde una secuencia (?since=<seq>&limit=100). Sin since solo devuelve la secuencia actual,
+    // que es desde donde sigue un cliente que lista todas sus notas justo después
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) Long since,
+                                        @RequestParam(defaultValue = "" + DEFAULT_CHANGES_LIMIT) int limit,
+                                        @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            return ResponseEntity.badRequest().body("limit debe estar entre 1 y " + MAX_CHANGES_LIMIT);
+        }
+        if (since == null) {
+            return ResponseEntity.ok(new NoteChangeFeed.ChangePage(List.of(), changeFeed.changeSeq(user.getId()), false));
+        }
+        try {
+            return ResponseEntity.ok(changeFeed.read(user.getId(), since, limit));
+        } catch (ChangeHistoryExpiredException e) {
+            return ResponseEntity.status(410).body(HISTORY_EXPIRED);
+        }
+    }
+
+    // Cambios en vivo (Server-Sent Events) desde ?since= o Last-Event-ID; sin ninguno, desde ahora
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestParam(required = false) Long since,
+                                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                    @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).build();
+
+        Long from = since;
+        if (from == null && lastEventId != null) {
+            try {
+                from = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        SseEmitter emitter = changeFeed.subscribe(user.getId(), from);
+        if (emitter == null) {
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(emitter);
+    }
+
+    // Obtener una nota propia por ID (una nota ajena responde igual que una inexistente).
+    // Con If-None-Match y la nota sin cambios responde 304 sin cuerpo
     @GetMapping("/{id}")
-    public ResponseEntity<?> getNote(@PathVariable Long id, HttpSession session) {
-        User user = (User) session.getAttribute("user");
+    public ResponseEntity<?> getNote(@PathVariable Long id,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                     @AuthenticationPrincipal AuthenticatedUser user) {
         if (user == null) return ResponseEntity.status(401).body("No autenticado");
 
-        Optional<Note> noteOpt = noteRepository.findById(id);
-        if (noteOpt.isEmpty()) return ResponseEntity.status(404).body("Nota no encontrada");
+        NoteSummary note = findOwned(user, id);
+        if (note == null) return ResponseEntity.status(404).body("Nota no encontrada");
 
-        Note note = noteOpt.get();
-        if (!note.getOwner().getId().equals(user.getId())) {
-            return ResponseEntity.status(403).body("No tienes permiso para ver esta nota");
+        String etag = ETags.of(note.getVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(ETags.REVALIDATE).varyBy(ETags.VARY).build();
         }
+        return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).varyBy(ETags.VARY).body(note);
+    }
+
+    // Descargar el contenido en streaming; admite un rango de bytes (Range: bytes=inicio-fin)
+    @GetMapping("/{id}/content")
+    public ResponseEntity<StreamingResponseBody> downloadContent(@PathVariable Long id,
+                                                                 @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                 @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return NdjsonExporter.plainText(401, "No autenticado");
 
-        return ResponseEntity.ok(note);
+        NoteSummary note = findOwned(user, id);
+        if (note == null) return NdjsonExporter.plainText(404, "Nota no encontrada");
+
+        String etag = ETags.of(note.getVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(ETags.REVALIDATE).build();
+        }
+
+        long length = note.getSize();
+        long start = 0;
+        long end = length - 1;
+        boolean partial = false;
+        if (range != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) { // varios rangos: se responde el contenido completo
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    partial = true;
+                }
+            } catch (IllegalArgumentException e) {
+                partial = true;
+                start = length; // rango mal formado: se trata como no satisfacible
+            }
+            if (partial && (start >= length || start > end)) {
+                return ResponseEntity.status(416).header(HttpHeaders.CONTENT_RANGE, "bytes */" + length).build();
+            }
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(partial ? 206 : 200)
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .contentLength(end - start + 1)
+                .eTag(etag)
+                .cacheControl(ETags.REVALIDATE)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (partial) response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+
+        if (note.getContent() != null) {
+            byte[] bytes = note.getContent().getBytes(StandardCharsets.UTF_8);
+            int from = (int) start;
+            int count = (int) (end - start + 1);
+            return response.body(out -> out.write(bytes, from, count));
+        }
+        long from = start;
+        long to = end;
+        Long ownerId = user.getId();
+        long version = note.getVersion();
+        return response.body(out -> noteStore.copyContent(ownerId, id, version, from, to, out));
     }
 
-    // Actualizar una nota propia
+    // Reemplazar el contenido en streaming (cuerpo en bruto, hasta notes.content.max-bytes)
+    @PutMapping(value = "/{id}/content", consumes = {"text/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> uploadContent(@PathVariable Long id, HttpServletRequest request,
+                                           @AuthenticationPrincipal AuthenticatedUser user) throws IOException {
+        if (user == null) return ResponseEntity.status(401).body("No autenticado");
+
+        NoteMetadata note;
+        try {
+            note = noteStore.writeContent(user.getId(), id, request.getInputStream());
+        } catch (NoteContentTooLargeException e) {
+            return ResponseEntity.status(413).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (note == null) return ResponseEntity.status(404).body("Nota no encontrada");
+
+        noteCache.invalidate(id);
+        searchIndex.onSaved(user.getId(), id, note.getTitle(), null); // el contenido grande no se indexa
+        changeFeed.changed(user.getId());
+        return ResponseEntity.ok().eTag(ETags.of(note.getVersion())).body(note);
+    }
+
+    // Actualizar una nota propia. Con If-Match (ETag de GET /notes/{id}) solo se aplica si nadie la modificó antes
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateNote(@PathVariable Long id, @Valid @RequestBody NoteDTO updatedNote, HttpSession session) {
-        User user = (User) session.getAttribute("user");
+    public ResponseEntity<?> updateNote(@PathVariable Long id, @Valid @RequestBody NoteDTO updatedNote,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                        @AuthenticationPrincipal AuthenticatedUser user) {
         if (user == null) return ResponseEntity.status(401).body("No autenticado");
 
-        Optional<Note> noteOpt = noteRepository.findById(id);
-        if (noteOpt.isEmpty()) return ResponseEntity.status(404).body("Nota no encontrada");
+        List<String> errors = validate(updatedNote.getTitle(), updatedNote.getContent());
+        if (!errors.isEmpty()) return ResponseEntity.badRequest().body(errors);
 
-        Note note = noteOpt.get();
-        if (!note.getOwner().getId().equals(user.getId())) {
-            return ResponseEntity.status(403).body("No tienes permiso para editar esta nota");
+        Long expectedVersion = ETags.expectedVersion(ifMatch);
+        Optional<NoteSummary> noteOpt;
+        try {
+            noteOpt = noteStore.update(user.getId(), id, new NoteDraft(updatedNote.getTitle(), updatedNote.getContent()), expectedVersion);
+        } catch (OptimisticLockingFailureException e) {
+            // Con If-Match es una precondición fallida; sin él, otra escritura concurrente ganó
+            return ResponseEntity.status(expectedVersion != null ? 412 : 409)
+                    .body("La nota fue modificada por otra petición. Vuelve a obtenerla antes de editar.");
         }
+        if (noteOpt.isEmpty()) return ResponseEntity.status(404).body("Nota no encontrada");
 
-        note.setTitle(updatedNote.getTitle());
-        note.setContent(updatedNote.getContent());
-        noteRepository.save(note);
-
-        return ResponseEntity.ok(note);
+        NoteSummary note = noteOpt.get();
+        noteCache.invalidate(id);
+        searchIndex.onSaved(user.getId(), id, note.getTitle(), note.getContent());
+        changeFeed.changed(user.getId());
+        return ResponseEntity.ok().eTag(ETags.of(note.getVersion())).body(note);
     }
 
     // Eliminar una nota propia
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteNote(@PathVariable Long id, HttpSession session) {
-        User user = (User) session.getAttribute("user");
+    public ResponseEntity<?> deleteNote(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser user) {
         if (user == null) return ResponseEntity.status(401).body("No autenticado");
 
-        Optional<Note> noteOpt = noteRepository.findById(id);
-        if (noteOpt.isEmpty()) return ResponseEntity.status(404).body("Nota no encontrada");
+        if (!noteStore.delete(user.getId(), id)) {
+            return ResponseEntity.status(404).body("Nota no encontrada");
+        }
+        noteCache.invalidate(id);
+        searchIndex.onDeleted(user.getId(), id);
+        changeFeed.changed(user.getId());
+        return ResponseEntity.ok("Nota eliminada");
+    }
 
-        Note note = noteOpt.get();
-        if (!note.getOwner().getId().equals(user.getId())) {
-            return ResponseEntity.status(403).body("No tienes permiso para eliminar esta nota");
+    // Crear o actualizar muchas notas de una vez (con JPA: una transacción e inserts/updates por lotes JDBC)
+    @PostMapping("/batch")
+    public ResponseEntity<?> upsertNotes(@RequestBody List<BatchNoteItem> items, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (items.isEmpty() || items.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body("El lote debe tener entre 1 y " + MAX_BATCH_SIZE + " notas");
         }
 
-        noteRepository.delete(note);
-        return ResponseEntity.ok("Nota eliminada");
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<NoteDraft> creates = new ArrayList<>();
+        List<Integer> createIndexes = new ArrayList<>();
+        Map<Long, NoteDraft> updates = new HashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            BatchNoteItem item = items.get(i);
+
+            List<String> errors = validate(item.getTitle(), item.getContent());
+            if (!errors.isEmpty()) {
+                results.add(new BatchItemResult(i, item.getId(), "invalid", errors));
+                continue;
+            }
+
+            NoteDraft draft = new NoteDraft(item.getTitle(), item.getContent());
+            if (item.getId() == null) {
+                creates.add(draft);
+                createIndexes.add(i);
+            } else {
+                updates.put(item.getId(), draft);
+            }
+            results.add(null); // se completa con el resultado del almacenamiento
+        }
+
+        NoteStore.UpsertResult outcome;
+        try {
+            outcome = noteStore.upsert(user.getId(), creates, updates);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(409).body("Alguna nota del lote fue modificada por otra petición. Reintenta el lote.");
+        }
+
+        for (int k = 0; k < creates.size(); k++) {
+            int index = createIndexes.get(k);
+            Long id = outcome.getCreatedIds().get(k);
+            searchIndex.onSaved(user.getId(), id, creates.get(k).getTitle(), creates.get(k).getContent());
+            results.set(index, new BatchItemResult(index, id, "created", List.of()));
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (results.get(i) != null) continue;
+
+            Long id = items.get(i).getId();
+            if (!outcome.getUpdatedIds().contains(id)) {
+                results.set(i, new BatchItemResult(i, id, "not_found", List.of()));
+                continue;
+            }
+            NoteDraft draft = updates.get(id);
+            noteCache.invalidate(id);
+            searchIndex.onSaved(user.getId(), id, draft.getTitle(), draft.getContent());
+            results.set(i, new BatchItemResult(i, id, "updated", List.of()));
+        }
+        changeFeed.changed(user.getId());
+
+        return ResponseEntity.ok(results);
+    }
+
+    // Eliminar muchas notas propias de una vez
+    @DeleteMapping("/batch")
+    public ResponseEntity<?> deleteNotes(@RequestBody List<Long> ids, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).body("No autenticado");
+
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body("El lote debe tener entre 1 y " + MAX_BATCH_SIZE + " ids");
+        }
+
+        Set<Long> deleted = noteStore.deleteAll(user.getId(), ids);
+        for (Long id : deleted) {
+            noteCache.invalidate(id);
+            searchIndex.onDeleted(user.getId(), id);
+        }
+        if (!deleted.isEmpty()) changeFeed.changed(user.getId());
+
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            results.add(new BatchItemResult(i, id, deleted.contains(id) ? "deleted" : "not_found", List.of()));
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    // Nota propia desde el cache o desde el almacenamiento; null si no existe o es ajena
+    private NoteSummary findOwned(AuthenticatedUser user, Long id) {
+        NoteSummary cached = noteCache.get(user.getId(), id);
+        if (cached != null) return cached;
+
+        long stamp = noteCache.stamp();
+        Optional<NoteSummary> noteOpt = noteStore.find(user.getId(), id);
+        if (noteOpt.isEmpty()) return null;
+
+        noteCache.put(user.getId(), noteOpt.get(), stamp);
+        return noteOpt.get();
+    }
+
+    // Mismas reglas que la entidad Note (título ≤ 100, contenido ≤ 500, ambos obligatorios)
+    private List<String> validate(String title, String content) {
+        Set<ConstraintViolation<Note>> violations = validator.validate(new Note(title, content, null));
+        List<String> errors = new ArrayList<>(violations.size());
+        for (ConstraintViolation<Note> v : violations) {
+            errors.add(v.getPropertyPath() + ": " + v.getMessage());
+        }
+        return errors;
+    }
+
+    // notes.store=sharded: la escritura esperó a un bucket en movimiento más de lo permitido
+    @ExceptionHandler(ShardMovingException.class)
+    public ResponseEntity<?> shardMoving(ShardMovingException e) {
+        return ResponseEntity.status(503)
+                .header("Retry-After", "1")
+                .body(e.getMessage());
     }
 }
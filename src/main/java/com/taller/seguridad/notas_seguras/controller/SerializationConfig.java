@@ -0,0 +1,44 @@
+package com.taller.seguridad.notas_seguras.controller;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NativeDetector;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Serialización de las respuestas.
+ * <p>
+ * Las respuestas son DTOs o proyecciones (nunca entidades JPA) y Jackson cachea su serializador
+ * por tipo; Blackbird sustituye la reflexión de esos serializadores por accesores generados.
+ * Además de JSON se negocian Smile ({@code application/x-jackson-smile}) y CBOR
+ * ({@code application/cbor}) con la cabecera Accept. Estos conversores reemplazan a los que
+ * Spring MVC registra por defecto en la misma posición, después del de JSON, así que JSON sigue
+ * siendo el formato si el cliente no pide otro.
+ */
+@Configuration
+public class SerializationConfig {
+
+    // En una imagen nativa no se pueden definir clases en tiempo de ejecución: ahí se queda la reflexión
+    @Bean
+    public Module blackbirdModule() {
+        return NativeDetector.inNativeImage() ? new SimpleModule("blackbird-disabled") : new BlackbirdModule();
+    }
+
+    // Jackson2ObjectMapperBuilder es prototype: cada método recibe uno con la configuración de Spring Boot
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,87 @@
+package com.taller.seguridad.notas_seguras.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Ventana de lectura de las propias escrituras: durante {@code datasource.read-your-writes-ms}
+ * después de que un usuario escribe, sus lecturas van al primario aunque sean de solo lectura, así
+ * no ve una réplica que todavía no tiene su cambio.
+ * <p>
+ * La decisión se toma por petición en {@link ReadYourWritesFilter} y viaja en un ThreadLocal hasta
+ * {@link ReplicaRouter}. Las respuestas que se generan en otro hilo (exportaciones en streaming,
+ * eventos SSE) leen de las réplicas. Las escrituras recientes se recuerdan por instancia.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<Long, Long> recentWriters = new ConcurrentHashMap<>(); // userId -> hasta (epoch millis)
+    private final boolean enabled;
+    private final long windowMillis;
+
+    public ReadYourWrites(@Value("${datasource.replica.urls:}") String replicaUrls,
+                          @Value("${datasource.read-your-writes-ms:5000}") long windowMillis) {
+        this.enabled = !replicaUrls.isBlank() && windowMillis > 0;
+        this.windowMillis = windowMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void markWrite(Long userId) {
+        recentWriters.put(userId, System.currentTimeMillis() + windowMillis);
+    }
+
+    public boolean wroteRecently(Long userId) {
+        Long until = recentWriters.get(userId);
+        return until != null && until > System.currentTimeMillis();
+    }
+
+    /**
+     * Hace {@code read} en el primario y abre la ventana del usuario como si hubiera escrito. Sirve
+     * para leer un punto de partida, como la secuencia de cambios actual: lo que el usuario liste
+     * justo después también sale del primario y no es más antiguo que ese punto.
+     */
+    public <T> T fromPrimary(Long userId, Supplier<T> read) {
+        if (!enabled) return read.get();
+        markWrite(userId);
+        if (requiresPrimary()) return read.get();
+        bindPrimary();
+        try {
+            return read.get();
+        } finally {
+            unbind();
+        }
+    }
+
+    // --- Decisión de la petición en curso ---
+
+    static void bindPrimary() {
+        PRIMARY.set(Boolean.TRUE);
+    }
+
+    static void unbind() {
+        PRIMARY.remove();
+    }
+
+    static boolean requiresPrimary() {
+        return PRIMARY.get() != null;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        recentWriters.values().removeIf(until -> until <= now);
+    }
+
+    public int size() {
+        return recentWriters.size();
+    }
+}
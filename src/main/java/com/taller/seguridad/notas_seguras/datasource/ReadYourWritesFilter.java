@@ -0,0 +1,62 @@
+package com.taller.seguridad.notas_seguras.datasource;
+
+import com.taller.seguridad.notas_seguras.security.AuthenticatedUser;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Marca las escrituras de cada usuario y envía al primario las peticiones de quien escribió hace
+ * poco (ver {@link ReadYourWrites}). Va después del filtro JWT para conocer al usuario.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !readYourWrites.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof AuthenticatedUser user)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        // Antes de la escritura: una lectura concurrente del mismo usuario ya no va a una réplica
+        if (write) readYourWrites.markWrite(user.getId());
+        boolean primary = write || readYourWrites.wroteRecently(user.getId());
+
+        if (primary) ReadYourWrites.bindPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (primary) ReadYourWrites.unbind();
+            // La ventana cuenta desde que terminó la escritura
+            if (write) readYourWrites.markWrite(user.getId());
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.taller.seguridad.notas_seguras.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Elige la conexión de cada transacción de solo lectura: una réplica sana por turnos, o el
+ * primario si la petición está en su ventana de lectura de sus escrituras ({@link ReadYourWrites})
+ * o si no queda ninguna réplica sana.
+ * <p>
+ * El estado de las réplicas se revisa cada {@code datasource.replica.check-interval-ms}: se escribe
+ * la hora en la fila de {@code replication_heartbeat} del primario y se lee en cada réplica. La
+ * diferencia es su retraso; por encima de {@code datasource.replica.max-lag-ms}, o si la consulta
+ * falla, la réplica queda marcada como no sana hasta la siguiente revisión correcta. Un fallo al
+ * pedirle una conexión también la marca en el momento. Hasta la primera revisión todas las
+ * lecturas van al primario.
+ */
+public class ReplicaRouter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    private static final int HEARTBEAT_ID = 1;
+
+    static final class Replica {
+        final String name;
+        final HikariDataSource pool;
+        final Counter reads;
+        volatile boolean healthy;
+        volatile long lagMillis = -1;
+        volatile String error = "sin revisar";
+
+        Replica(String name, HikariDataSource pool, MeterRegistry registry) {
+            this.name = name;
+            this.pool = pool;
+            this.reads = Counter.builder("datasource.routing.reads")
+                    .description("Transacciones de solo lectura por destino")
+                    .tag("target", name)
+                    .register(registry);
+        }
+    }
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryReads;  // por la ventana de lectura de las propias escrituras
+    private final Counter fallbackReads; // ninguna réplica sana
+    private final DataSource readDataSource = new AbstractDataSource() {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return readConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return readConnection();
+        }
+    };
+
+    public ReplicaRouter(HikariDataSource primary, List<HikariDataSource> replicaPools, long maxLagMillis,
+                         MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(pool -> new Replica(pool.getPoolName(), pool, registry)).toList();
+        this.maxLagMillis = maxLagMillis;
+        this.primaryReads = Counter.builder("datasource.routing.reads")
+                .description("Transacciones de solo lectura por destino")
+                .tag("target", "primary")
+                .register(registry);
+        this.fallbackReads = Counter.builder("datasource.routing.reads")
+                .description("Transacciones de solo lectura por destino")
+                .tag("target", "fallback")
+                .register(registry);
+        for (Replica replica : replicas) {
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("1 si la réplica recibe lecturas")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagMillis)
+                    .description("Retraso de la réplica en la última revisión (ms, -1 si no se pudo medir)")
+                    .tag("replica", replica.name)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        }
+    }
+
+    public DataSource primaryDataSource() {
+        return primary;
+    }
+
+    /**
+     * DataSource de las transacciones de solo lectura (ver {@code LazyConnectionDataSourceProxy}).
+     */
+    public DataSource readDataSource() {
+        return readDataSource;
+    }
+
+    Connection readConnection() throws SQLException {
+        if (ReadYourWrites.requiresPrimary()) {
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+        int count = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (!replica.healthy) continue;
+            try {
+                Connection connection = replica.pool.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                markUnhealthy(replica, e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return primary.getConnection();
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.check-interval-ms:1000}")
+    public void checkReplicas() {
+        long written = System.currentTimeMillis();
+        try {
+            writeHeartbeat(written);
+        } catch (SQLException e) {
+            // Sin heartbeat nuevo el retraso medido crece y las réplicas acaban marcadas como no sanas
+            log.warn("No se pudo escribir el heartbeat de replicación en el primario: {}", e.getMessage());
+        }
+        for (Replica replica : replicas) check(replica);
+    }
+
+    private void writeHeartbeat(long now) throws SQLException {
+        try (Connection connection = primary.getConnection()) {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "update replication_heartbeat set updated_at = ? where id = ?")) {
+                update.setLong(1, now);
+                update.setInt(2, HEARTBEAT_ID);
+                if (update.executeUpdate() > 0) return;
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into replication_heartbeat (id, updated_at) values (?, ?)")) {
+                insert.setInt(1, HEARTBEAT_ID);
+                insert.setLong(2, now);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private void check(Replica replica) {
+        try (Connection connection = replica.pool.getConnection();
+             PreparedStatement select = connection.prepareStatement(
+                     "select updated_at from replication_heartbeat where id = ?")) {
+            select.setInt(1, HEARTBEAT_ID);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    markUnhealthy(replica, "sin heartbeat");
+                    return;
+                }
+                long lag = Math.max(0, System.currentTimeMillis() - rs.getLong(1));
+                replica.lagMillis = lag;
+                if (lag > maxLagMillis) {
+                    markUnhealthy(replica, "retraso de " + lag + " ms");
+                } else {
+                    if (!replica.healthy) log.info("Réplica {} disponible (retraso {} ms)", replica.name, lag);
+                    replica.error = null;
+                    replica.healthy = true;
+                }
+            }
+        } catch (SQLException e) {
+            replica.lagMillis = -1;
+            markUnhealthy(replica, e.getMessage());
+        }
+    }
+
+    private void markUnhealthy(Replica replica, String reason) {
+        if (replica.healthy) log.warn("Réplica {} fuera de servicio: {}", replica.name, reason);
+        replica.error = reason;
+        replica.healthy = false;
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    // --- Contadores ---
+    public long getPrimaryReads() { return (long) primaryReads.count(); }
+    public long getFallbackReads() { return (long) fallbackReads.count(); }
+    public long getReplicaReads() { return replicas.stream().mapToLong(r -> (long) r.reads.count()).sum(); }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+        primary.close();
+    }
+}
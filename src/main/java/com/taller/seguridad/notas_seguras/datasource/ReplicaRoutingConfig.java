@@ -0,0 +1,98 @@
+package com.taller.seguridad.notas_seguras.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Réplicas de lectura, solo si {@code datasource.replica.urls} tiene alguna URL.
+ * <p>
+ * Reemplaza el DataSource de Spring Boot por un {@link LazyConnectionDataSourceProxy}: la conexión
+ * física se pide en la primera sentencia, cuando ya se sabe si la transacción es de solo lectura.
+ * Las de solo lectura ({@code @Transactional(readOnly = true)}, las consultas de los repositorios)
+ * van a {@link ReplicaRouter#readDataSource()}; el resto, y lo que se ejecuta fuera de una
+ * transacción, al primario. Las réplicas usan el usuario, la contraseña y la configuración de
+ * Hikari del primario, cuya URL debe estar en {@code spring.datasource.url}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${datasource.replica.urls:}'.isBlank()")
+public class ReplicaRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRouter replicaRouter(DataSourceProperties properties,
+                                       Environment environment,
+                                       MeterRegistry registry,
+                                       @Value("${datasource.replica.urls}") String urls,
+                                       @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+        if (properties.getUrl() == null) {
+            throw new IllegalStateException("Con datasource.replica.urls hace falta spring.datasource.url");
+        }
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configure(primary, "primary", environment);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : Arrays.stream(urls.split(",")).map(String::trim).filter(u -> !u.isEmpty()).toList()) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url)
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            configure(replica, "replica-" + (replicas.size() + 1), environment);
+            replica.setReadOnly(true);
+            // Spring Boot solo instrumenta el pool del DataSource que expone como bean (el primario)
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(replica);
+        }
+        return new ReplicaRouter(primary, replicas, maxLagMillis, registry);
+    }
+
+    @Bean
+    public DataSource dataSource(ReplicaRouter router) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(router.primaryDataSource());
+        proxy.setReadOnlyDataSource(router.readDataSource());
+        return proxy;
+    }
+
+    @Bean
+    public HealthIndicator replicasHealthIndicator(ReplicaRouter router) {
+        // Sin réplicas sanas la aplicación sigue funcionando con el primario: no se informa DOWN
+        return () -> {
+            Map<String, Object> details = new LinkedHashMap<>();
+            for (ReplicaRouter.Replica replica : router.replicas()) {
+                Map<String, Object> state = new LinkedHashMap<>();
+                state.put("healthy", replica.healthy);
+                state.put("lagMs", replica.lagMillis);
+                if (replica.error != null) state.put("error", replica.error);
+                details.put(replica.name, state);
+            }
+            return Health.up().withDetails(details).build();
+        };
+    }
+
+    // spring.datasource.hikari.* se aplica igual a todos los pools
+    private static void configure(HikariDataSource pool, String name, Environment environment) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+    }
+}
@@ -0,0 +1,80 @@
+package com.taller.seguridad.notas_seguras.metrics;
+
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.repository.UserStats;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Contadores globales para {@code GET /admin/summary}.
+ * <p>
+ * Se calculan en segundo plano cada {@code admin.summary.refresh-ms} y las peticiones leen la
+ * última foto, así un panel que consulta a menudo no genera consultas a la base de datos.
+ */
+@Component
+public class AdminSummary {
+
+    private final UserRepository userRepository;
+    private final NoteStore noteStore;
+    private final long activeWindowHours;
+
+    private volatile Snapshot snapshot;
+
+    public AdminSummary(UserRepository userRepository,
+                        NoteStore noteStore,
+                        @Value("${admin.summary.active-window-hours:24}") long activeWindowHours) {
+        this.userRepository = userRepository;
+        this.noteStore = noteStore;
+        this.activeWindowHours = activeWindowHours;
+    }
+
+    @Scheduled(fixedDelayString = "${admin.summary.refresh-ms:60000}")
+    public void refresh() {
+        UserStats users = userRepository.stats(User.Role.ADMIN, LocalDateTime.now().minusHours(activeWindowHours));
+        snapshot = new Snapshot(users, noteStore.count(), activeWindowHours, Instant.now());
+    }
+
+    // Solo antes de la primera actualización programada se calcula en la petición
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    public static class Snapshot {
+        private final long users;
+        private final long admins;
+        private final long lockedUsers;
+        private final long activeUsers;
+        private final long activeWindowHours;
+        private final long notes;
+        private final Instant refreshedAt;
+
+        Snapshot(UserStats users, long notes, long activeWindowHours, Instant refreshedAt) {
+            this.users = users.getTotal();
+            this.admins = users.getAdmins();
+            this.lockedUsers = users.getLocked();
+            this.activeUsers = users.getActive();
+            this.activeWindowHours = activeWindowHours;
+            this.notes = notes;
+            this.refreshedAt = refreshedAt;
+        }
+
+        public long getUsers() { return users; }
+        public long getAdmins() { return admins; }
+        public long getLockedUsers() { return lockedUsers; }
+        public long getActiveUsers() { return activeUsers; } // con login en las últimas activeWindowHours
+        public long getActiveWindowHours() { return activeWindowHours; }
+        public long getNotes() { return notes; }
+        public Instant getRefreshedAt() { return refreshedAt; }
+    }
+}
@@ -0,0 +1,115 @@
+package com.taller.seguridad.notas_seguras.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registra cuántas consultas SQL hace cada endpoint y marca como posible N+1
+ * las peticiones que superan el umbral configurado.
+ * El tag {@code uri} es la plantilla de la ruta (p. ej. /notes/{id}), no la URL concreta.
+ * <p>
+ * El contador va en un atributo de la petición. Si la petición pasa a asíncrona, se vuelve a
+ * asociar en el despacho asíncrono y en las tareas de {@code applicationTaskExecutor}
+ * ({@link QueryCountTaskDecorator}), y se registra cuando la petición termina, no cuando el hilo
+ * original la suelta.
+ */
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final String COUNT_ATTRIBUTE = QueryCountFilter.class.getName() + ".count";
+
+    private final MeterRegistry registry;
+    private final int nPlusOneThreshold;
+
+    // Un medidor por plantilla de ruta, creado una sola vez
+    private final ConcurrentHashMap<String, DistributionSummary> queriesPerRequest = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> nPlusOneSuspects = new ConcurrentHashMap<>();
+
+    public QueryCountFilter(MeterRegistry registry,
+                            @Value("${metrics.hibernate.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        this.registry = registry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    // También en el despacho asíncrono: ahí se escribe la respuesta y puede haber consultas
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        AtomicInteger count = (AtomicInteger) request.getAttribute(COUNT_ATTRIBUTE);
+        boolean first = count == null;
+        if (first) {
+            count = new AtomicInteger();
+            request.setAttribute(COUNT_ATTRIBUTE, count);
+        }
+
+        AtomicInteger previous = QueryCountInspector.bind(count);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryCountInspector.restore(previous);
+            if (first) {
+                if (request.isAsyncStarted()) {
+                    request.getAsyncContext().addListener(new AsyncListener() {
+                        @Override
+                        public void onComplete(AsyncEvent event) {
+                            record(request);
+                        }
+
+                        @Override
+                        public void onTimeout(AsyncEvent event) {}
+
+                        @Override
+                        public void onError(AsyncEvent event) {}
+
+                        @Override
+                        public void onStartAsync(AsyncEvent event) {}
+                    });
+                } else {
+                    record(request);
+                }
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request) {
+        int queries = ((AtomicInteger) request.getAttribute(COUNT_ATTRIBUTE)).get();
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        queriesPerRequest.computeIfAbsent(uri, u -> DistributionSummary.builder("hibernate.queries.per.request")
+                .description("Sentencias SQL ejecutadas por petición, incluida su parte asíncrona")
+                .tag("uri", u)
+                .register(registry)).record(queries);
+
+        if (queries > nPlusOneThreshold) {
+            nPlusOneSuspects.computeIfAbsent(uri, u -> Counter.builder("hibernate.n_plus_one.suspected")
+                    .description("Peticiones que superan el umbral de consultas por petición")
+                    .tag("uri", u)
+                    .register(registry)).increment();
+        }
+    }
+}
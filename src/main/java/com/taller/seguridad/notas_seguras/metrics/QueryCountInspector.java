@@ -0,0 +1,44 @@
+package com.taller.seguridad.notas_seguras.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cuenta las sentencias SQL que Hibernate prepara para la petición en curso.
+ * Lo instancia Hibernate (hibernate.session_factory.statement_inspector),
+ * por eso el contador es estático: cada hilo apunta al de la petición para la que trabaja.
+ * Una petición asíncrona comparte el mismo contador entre todos sus hilos
+ * ({@link QueryCountFilter}, {@link QueryCountTaskDecorator}).
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = CURRENT.get();
+        if (count != null) count.incrementAndGet();
+        return sql;
+    }
+
+    /**
+     * El contador del hilo actual, o null si no trabaja para ninguna petición.
+     */
+    public static AtomicInteger current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Asocia el hilo actual al contador y devuelve el que tenía antes (para {@link #restore}).
+     */
+    public static AtomicInteger bind(AtomicInteger count) {
+        AtomicInteger previous = CURRENT.get();
+        CURRENT.set(count);
+        return previous;
+    }
+
+    public static void restore(AtomicInteger previous) {
+        if (previous == null) CURRENT.remove(); else CURRENT.set(previous);
+    }
+}
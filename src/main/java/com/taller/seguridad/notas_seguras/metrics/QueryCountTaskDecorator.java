@@ -0,0 +1,29 @@
+package com.taller.seguridad.notas_seguras.metrics;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lleva el contador de consultas de la petición a las tareas de {@code applicationTaskExecutor}
+ * (Spring Boot lo aplica a ese ejecutor, que es el del procesamiento asíncrono de Spring MVC:
+ * StreamingResponseBody, Callable). Las consultas de esas tareas se suman a su petición.
+ */
+@Component
+public class QueryCountTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        AtomicInteger count = QueryCountInspector.current();
+        if (count == null) return task;
+        return () -> {
+            AtomicInteger previous = QueryCountInspector.bind(count);
+            try {
+                task.run();
+            } finally {
+                QueryCountInspector.restore(previous);
+            }
+        };
+    }
+}
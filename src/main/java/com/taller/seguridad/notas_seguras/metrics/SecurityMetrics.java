@@ -0,0 +1,84 @@
+package com.taller.seguridad.notas_seguras.metrics;
+
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import com.taller.seguridad.notas_seguras.security.LoginAttemptTracker;
+import com.taller.seguridad.notas_seguras.security.PasswordHashingService;
+import com.taller.seguridad.notas_seguras.security.RevokedTokenSet;
+import com.taller.seguridad.notas_seguras.security.TokenRevocationService;
+import com.taller.seguridad.notas_seguras.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expone en Micrometer los contadores que ya llevan los componentes de seguridad.
+ * Los medidores leen esos contadores al hacer scrape, así que no añaden trabajo al camino caliente.
+ */
+@Component
+public class SecurityMetrics implements MeterBinder {
+
+    private final JwtService jwtService;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final TokenRevocationService revocationService;
+
+    public SecurityMetrics(JwtService jwtService,
+                           PasswordHashingService passwordHashingService,
+                           LoginAttemptTracker loginAttemptTracker,
+                           TokenRevocationService revocationService) {
+        this.jwtService = jwtService;
+        this.passwordHashingService = passwordHashingService;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.revocationService = revocationService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Cache de JWT verificados
+        VerifiedTokenCache cache = jwtService.getTokenCache();
+        FunctionCounter.builder("jwt.cache.requests", cache, VerifiedTokenCache::getHits)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("jwt.cache.requests", cache, VerifiedTokenCache::getMisses)
+                .tag("result", "miss").register(registry);
+        Gauge.builder("jwt.cache.size", cache, VerifiedTokenCache::size).register(registry);
+
+        // Tokens revocados: positivos del filtro de Bloom y cuántos no estaban en el conjunto exacto
+        RevokedTokenSet revoked = revocationService.getRevokedTokens();
+        Gauge.builder("jwt.revoked.tokens", revoked, RevokedTokenSet::size).register(registry);
+        FunctionCounter.builder("jwt.revocation.bloom.positives", revoked, RevokedTokenSet::getBloomPositives)
+                .register(registry);
+        FunctionCounter.builder("jwt.revocation.bloom.false.positives", revoked, RevokedTokenSet::getFalsePositives)
+                .register(registry);
+
+        // Pool de BCrypt
+        FunctionTimer.builder("password.hashing", passwordHashingService.getEncodeStats(),
+                        PasswordHashingService.OpStats::getCount,
+                        PasswordHashingService.OpStats::getTotalNanos, TimeUnit.NANOSECONDS)
+                .tag("operation", "encode").register(registry);
+        FunctionTimer.builder("password.hashing", passwordHashingService.getVerifyStats(),
+                        PasswordHashingService.OpStats::getCount,
+                        PasswordHashingService.OpStats::getTotalNanos, TimeUnit.NANOSECONDS)
+                .tag("operation", "verify").register(registry);
+        Gauge.builder("password.hashing.queue.depth", passwordHashingService, PasswordHashingService::getQueueDepth)
+                .register(registry);
+        Gauge.builder("password.hashing.active", passwordHashingService, PasswordHashingService::getActiveThreads)
+                .register(registry);
+        FunctionCounter.builder("password.hashing.rejected", passwordHashingService, PasswordHashingService::getRejected)
+                .register(registry);
+
+        // Bloqueo de cuentas
+        FunctionCounter.builder("auth.login.failures", loginAttemptTracker, LoginAttemptTracker::getFailures)
+                .register(registry);
+        FunctionCounter.builder("auth.lockout.events", loginAttemptTracker, LoginAttemptTracker::getLocks)
+                .tag("event", "locked").register(registry);
+        FunctionCounter.builder("auth.lockout.events", loginAttemptTracker, LoginAttemptTracker::getUnlocks)
+                .tag("event", "unlocked").register(registry);
+        Gauge.builder("auth.lockout.pending.writes", loginAttemptTracker, LoginAttemptTracker::getPendingWrites)
+                .register(registry);
+    }
+}
@@ -0,0 +1,57 @@
+package com.taller.seguridad.notas_seguras.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de autenticación (login, fallo, bloqueo, registro, logout). Se insertan por lotes JDBC
+ * desde {@code AuditLog}; la entidad define la tabla y sirve para consultarla.
+ */
+@Entity
+@Table(name = "audit_events", indexes = {
+        @Index(name = "idx_audit_events_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_audit_events_user_id", columnList = "user_id, created_at, id")
+})
+public class AuditEvent {
+
+    public enum Type {
+        REGISTER,
+        LOGIN_SUCCESS,
+        LOGIN_FAILURE,        // contraseña incorrecta
+        LOGIN_UNKNOWN_USER,   // email sin cuenta (user_id vacío)
+        LOGIN_REJECTED_LOCKED, // intento sobre una cuenta ya bloqueada
+        ACCOUNT_LOCKED,       // el fallo que bloquea la cuenta
+        LOGOUT
+    }
+
+    // IDENTITY: los inserts por lotes no necesitan pedir ids a una secuencia
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 24)
+    private Type type;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(length = 255)
+    private String email;
+
+    @Column(length = 45)
+    private String ip;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public AuditEvent() {}
+
+    public Long getId() { return id; }
+    public Type getType() { return type; }
+    public Long getUserId() { return userId; }
+    public String getEmail() { return email; }
+    public String getIp() { return ip; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
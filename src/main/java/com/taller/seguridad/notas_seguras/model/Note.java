@@ -1,35 +1,58 @@
 package com.taller.seguridad.notas_seguras.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+import java.nio.charset.StandardCharsets;
+
 @Entity
+@Table(indexes = @Index(name = "idx_note_owner_id", columnList = "user_id, id"))
 public class Note {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Secuencia con asignación por bloques: permite que Hibernate agrupe los INSERT en lotes JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_seq")
+    @SequenceGenerator(name = "note_seq", sequenceName = "note_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El título es obligatorio")
     @Size(max = 100, message = "El título no puede superar los 100 caracteres")
     private String title;
 
+    // Contenido en línea (notas pequeñas). Es null si el contenido está guardado en NoteChunk
     @Column(length = 500)
-    @NotBlank(message = "El contenido es obligatorio")
     @Size(max = 500, message = "El contenido no puede superar los 500 caracteres")
     private String content;
 
-    @ManyToOne
+    // Tamaño del contenido en bytes (UTF-8), en línea o por bloques
+    @Column(name = "content_length", nullable = false)
+    private long contentLength;
+
+    // Versión para control de concurrencia optimista; también es el ETag de la nota
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    // LAZY: las respuestas no incluyen al dueño y las consultas filtran por la FK
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User owner;
 
+    @JsonIgnore
+    @AssertTrue(message = "El contenido es obligatorio")
+    public boolean isContentPresent() {
+        return content != null ? !content.isBlank() : contentLength > 0;
+    }
+
     // Constructores
     public Note() {}
 
     public Note(String title, String content, User owner) {
         this.title = title;
-        this.content = content;
+        setContent(content);
         this.owner = owner;
     }
 
@@ -50,8 +73,28 @@ public class Note {
         return content;
     }
 
+    // El contenido en línea fija también el tamaño; el contenido por bloques lo fija NoteContentStore
     public void setContent(String content) {
         this.content = content;
+        if (content != null) this.contentLength = content.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(long contentLength) {
+        this.contentLength = contentLength;
+    }
+
+    // El contenido está guardado por bloques y se lee con GET /notes/{id}/content
+    @JsonIgnore
+    public boolean isChunked() {
+        return content == null && contentLength > 0;
+    }
+
+    public long getVersion() {
+        return version;
     }
 
     public User getOwner() {
@@ -0,0 +1,55 @@
+package com.taller.seguridad.notas_seguras.model;
+
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del historial de cambios de un usuario (ver {@code GET /notes/changes}).
+ * Sin FK a la nota: la entrada de un borrado sobrevive a la nota.
+ */
+@Entity
+@Table(name = "note_changes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_note_changes_owner_seq", columnNames = {"owner_id", "seq"}),
+        indexes = @Index(name = "idx_note_changes_created_at", columnList = "created_at"))
+public class NoteChangeEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_changes_seq")
+    @SequenceGenerator(name = "note_changes_seq", sequenceName = "note_changes_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private NoteChange.Type type;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public NoteChangeEntry() {}
+
+    public NoteChangeEntry(Long ownerId, long seq, Long noteId, NoteChange.Type type, LocalDateTime createdAt) {
+        this.ownerId = ownerId;
+        this.seq = seq;
+        this.noteId = noteId;
+        this.type = type;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public Long getOwnerId() { return ownerId; }
+    public long getSeq() { return seq; }
+    public Long getNoteId() { return noteId; }
+    public NoteChange.Type getType() { return type; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
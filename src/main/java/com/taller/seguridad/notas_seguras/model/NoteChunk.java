@@ -0,0 +1,48 @@
+package com.taller.seguridad.notas_seguras.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Bloque del contenido de una nota grande. El contenido se parte en bloques de
+ * {@link #CHUNK_SIZE} bytes para poder escribirlo y leerlo en streaming (y por rangos)
+ * sin cargarlo entero en memoria.
+ */
+@Entity
+@Table(name = "note_chunk",
+        uniqueConstraints = @UniqueConstraint(name = "uk_note_chunk_seq", columnNames = {"note_id", "seq"}))
+public class NoteChunk {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_chunk_seq")
+    @SequenceGenerator(name = "note_chunk_seq", sequenceName = "note_chunk_seq", allocationSize = 50)
+    private Long id;
+
+    // ON DELETE CASCADE en la FK: los borrados masivos de notas (JPQL) también eliminan sus bloques
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "note_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Note note;
+
+    @Column(nullable = false)
+    private int seq;
+
+    @Column(nullable = false, length = CHUNK_SIZE)
+    private byte[] data;
+
+    public NoteChunk() {}
+
+    public NoteChunk(Note note, int seq, byte[] data) {
+        this.note = note;
+        this.seq = seq;
+        this.data = data;
+    }
+
+    public Long getId() { return id; }
+    public Note getNote() { return note; }
+    public int getSeq() { return seq; }
+    public byte[] getData() { return data; }
+}
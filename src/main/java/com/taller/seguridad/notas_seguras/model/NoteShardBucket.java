@@ -0,0 +1,28 @@
+package com.taller.seguridad.notas_seguras.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Catálogo del almacenamiento particionado ({@code notes.store=sharded}): en qué shard están las
+ * notas de cada bucket de dueños. Vive en la base principal, junto a los usuarios.
+ */
+@Entity
+@Table(name = "note_shard_buckets")
+public class NoteShardBucket {
+
+    @Id
+    private Integer bucket;
+
+    @Column(nullable = false)
+    private int shard;
+
+    public NoteShardBucket() {}
+
+    public NoteShardBucket(int bucket, int shard) {
+        this.bucket = bucket;
+        this.shard = shard;
+    }
+
+    public Integer getBucket() { return bucket; }
+    public int getShard() { return shard; }
+}
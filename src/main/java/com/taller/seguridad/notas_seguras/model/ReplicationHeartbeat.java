@@ -0,0 +1,24 @@
+package com.taller.seguridad.notas_seguras.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Una sola fila que se actualiza en el primario y se lee en cada réplica: la diferencia con la
+ * hora actual es el retraso de la réplica (ver {@code ReplicaRouter}). Se accede con JDBC directo
+ * sobre cada pool; la entidad solo sirve para que Hibernate cree la tabla.
+ */
+@Entity
+@Table(name = "replication_heartbeat")
+public class ReplicationHeartbeat {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "updated_at", nullable = false)
+    private long updatedAt; // epoch millis
+
+    public ReplicationHeartbeat() {}
+
+    public Integer getId() { return id; }
+    public long getUpdatedAt() { return updatedAt; }
+}
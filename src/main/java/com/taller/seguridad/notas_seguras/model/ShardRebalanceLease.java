@@ -0,0 +1,28 @@
+package com.taller.seguridad.notas_seguras.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Quién está repartiendo los buckets del almacenamiento particionado y hasta cuándo (fila única,
+ * {@code id = 1}). Así solo una instancia del despliegue mueve buckets a la vez.
+ */
+@Entity
+@Table(name = "shard_rebalance_lease")
+public class ShardRebalanceLease {
+
+    @Id
+    private Integer id;
+
+    @Column(length = 36)
+    private String holder;
+
+    // Epoch millis; pasado ese instante otra instancia puede tomarlo
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+
+    public ShardRebalanceLease() {}
+
+    public Integer getId() { return id; }
+    public String getHolder() { return holder; }
+    public long getExpiresAt() { return expiresAt; }
+}
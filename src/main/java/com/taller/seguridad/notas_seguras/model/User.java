@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Secuencia con asignación por bloques: permite que Hibernate agrupe los INSERT en lotes JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -45,6 +47,14 @@ public class User {
     @Column(name = "last_login")
     private LocalDateTime lastLogin; // auditoría (opcional)
 
+    // Historial de cambios de sus notas: última secuencia asignada y hasta cuál se purgó.
+    // Solo se escriben con UPDATE masivos (updatable = false: guardar la entidad no los pisa)
+    @Column(name = "change_seq", nullable = false, updatable = false)
+    private long changeSeq = 0;
+
+    @Column(name = "change_floor", nullable = false, updatable = false)
+    private long changeFloor = 0;
+
     // Enum de roles
     public enum Role {
         USER, ADMIN
@@ -109,7 +119,10 @@ public class User {
     public LocalDateTime getLastLogin() { return lastLogin; }
     public void setLastLogin(LocalDateTime lastLogin) { this.lastLogin = lastLogin; }
 
-    // --- Constantes de seguridad ---
-    public static final int MAX_FAILED_ATTEMPTS = 3; // intentos máximos
+    public long getChangeSeq() { return changeSeq; }
+    public long getChangeFloor() { return changeFloor; }
+
+    // --- Constantes de seguridad (única fuente para el control de bloqueo) ---
+    public static final int MAX_FAILED_ATTEMPTS = 5; // intentos máximos
     public static final int LOCK_TIME_DURATION = 15; // minutos de bloqueo temporal
 }
@@ -0,0 +1,34 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+import com.taller.seguridad.notas_seguras.model.AuditEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface AuditEventRepository extends JpaRepository<AuditEvent, Long> {
+
+    // Del más reciente al más antiguo; (beforeTime, beforeId) es el último evento de la página anterior.
+    // Se ordena por createdAt y no por id: con varias instancias, o con IDENTITY repartido en bloques,
+    // el id no sigue al tiempo. El id solo desempata eventos del mismo instante
+    @Transactional(readOnly = true)
+    @Query("select e from AuditEvent e where (:type is null or e.type = :type) " +
+            "and (:userId is null or e.userId = :userId) " +
+            "and (:from is null or e.createdAt >= :from) and (:to is null or e.createdAt < :to) " +
+            "and (:beforeTime is null or e.createdAt < :beforeTime " +
+            "or (e.createdAt = :beforeTime and e.id < :beforeId)) " +
+            "order by e.createdAt desc, e.id desc")
+    Slice<AuditEvent> search(@Param("type") AuditEvent.Type type,
+                             @Param("userId") Long userId,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to,
+                             @Param("beforeTime") LocalDateTime beforeTime,
+                             @Param("beforeId") Long beforeId,
+                             Pageable pageable);
+}
@@ -0,0 +1,26 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+import com.taller.seguridad.notas_seguras.model.NoteChangeEntry;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NoteChangeRepository extends JpaRepository<NoteChangeEntry, Long> {
+
+    // Cambios posteriores a una secuencia (índice único owner_id, seq)
+    @Query("select new com.taller.seguridad.notas_seguras.storage.NoteChange(c.seq, c.noteId, c.type) " +
+            "from NoteChangeEntry c where c.ownerId = :ownerId and c.seq > :since order by c.seq asc")
+    List<NoteChange> findSince(@Param("ownerId") Long ownerId, @Param("since") long since, Pageable pageable);
+
+    @Modifying
+    @Query("delete from NoteChangeEntry c where c.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,19 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+import com.taller.seguridad.notas_seguras.model.NoteChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface NoteChunkRepository extends JpaRepository<NoteChunk, Long> {
+
+    // Se lee un bloque por consulta: la memoria usada no depende del tamaño de la nota
+    Optional<NoteChunk> findByNoteIdAndSeq(Long noteId, int seq);
+
+    @Modifying
+    @Query("delete from NoteChunk c where c.note.id = :noteId")
+    int deleteByNoteId(@Param("noteId") Long noteId);
+}
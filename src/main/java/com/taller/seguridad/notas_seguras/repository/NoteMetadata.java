@@ -0,0 +1,23 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+/**
+ * Proyección de una nota para listados: sin contenido, solo su tamaño en bytes.
+ */
+public class NoteMetadata {
+    private final Long id;
+    private final String title;
+    private final long size;
+    private final long version;
+
+    public NoteMetadata(Long id, String title, long size, long version) {
+        this.id = id;
+        this.title = title;
+        this.size = size;
+        this.version = version;
+    }
+
+    public Long getId() { return id; }
+    public String getTitle() { return title; }
+    public long getSize() { return size; }
+    public long getVersion() { return version; }
+}
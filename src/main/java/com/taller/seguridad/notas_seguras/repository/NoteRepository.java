@@ -2,12 +2,67 @@ package com.taller.seguridad.notas_seguras.repository;
 
 import com.taller.seguridad.notas_seguras.model.Note;
 import com.taller.seguridad.notas_seguras.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface NoteRepository extends JpaRepository<Note, Long> {
     List<Note> findByOwner(User owner);
     Optional<Note> findByIdAndOwner(Long id, User owner);
+
+    // Nota propia por id: la propiedad se comprueba en la misma consulta (índice user_id, id)
+    @Query("select new com.taller.seguridad.notas_seguras.repository.NoteSummary(n.id, n.title, n.content, n.contentLength, n.version) " +
+            "from Note n where n.id = :id and n.owner.id = :ownerId")
+    Optional<NoteSummary> findSummaryByIdAndOwnerId(@Param("id") Long id, @Param("ownerId") Long ownerId);
+
+    Optional<Note> findByIdAndOwnerId(Long id, Long ownerId);
+
+    @Modifying
+    @Query("delete from Note n where n.id = :id and n.owner.id = :ownerId")
+    int deleteByIdAndOwnerId(@Param("id") Long id, @Param("ownerId") Long ownerId);
+
+    // Paginación por cursor (keyset) sobre el id: orden estable y sin OFFSET. Solo metadatos, sin contenido
+    @Query("select new com.taller.seguridad.notas_seguras.repository.NoteMetadata(n.id, n.title, n.contentLength, n.version) " +
+            "from Note n where n.owner.id = :ownerId and n.id > :after order by n.id asc")
+    List<NoteMetadata> findPageByOwner(@Param("ownerId") Long ownerId,
+                                      @Param("after") Long after,
+                                      Pageable pageable);
+
+    // Exportación: se recorre con un cursor JDBC de tamaño acotado (requiere transacción abierta)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.taller.seguridad.notas_seguras.repository.NoteSummary(n.id, n.title, n.content, n.contentLength, n.version) " +
+            "from Note n where n.owner.id = :ownerId order by n.id asc")
+    Stream<NoteSummary> streamByOwner(@Param("ownerId") Long ownerId);
+
+    // Búsqueda: se cargan solo los resultados del índice (siempre restringidos al dueño)
+    @Query("select new com.taller.seguridad.notas_seguras.repository.NoteMetadata(n.id, n.title, n.contentLength, n.version) " +
+            "from Note n where n.owner.id = :ownerId and n.id in :ids")
+    List<NoteMetadata> findMetadataByOwnerIdAndIdIn(@Param("ownerId") Long ownerId, @Param("ids") Collection<Long> ids);
+
+    @Query("select distinct n.owner.id from Note n")
+    List<Long> findOwnerIds();
+
+    // Número de notas por dueño (listado de administración): una fila [ownerId, count] por dueño con notas
+    @Query("select n.owner.id, count(n) from Note n where n.owner.id in :ownerIds group by n.owner.id")
+    List<Object[]> countByOwnerIdIn(@Param("ownerIds") Collection<Long> ownerIds);
+
+    // Operaciones en lote (siempre restringidas al dueño)
+    List<Note> findByOwnerIdAndIdIn(Long ownerId, Collection<Long> ids);
+
+    @Query("select n.id from Note n where n.owner.id = :ownerId and n.id in :ids")
+    List<Long> findIdsByOwnerIdAndIdIn(@Param("ownerId") Long ownerId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from Note n where n.owner.id = :ownerId and n.id in :ids")
+    int deleteByOwnerIdAndIdIn(@Param("ownerId") Long ownerId, @Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,32 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+import com.taller.seguridad.notas_seguras.model.NoteShardBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NoteShardBucketRepository extends JpaRepository<NoteShardBucket, Integer> {
+
+    // Lecturas del mapa en una transacción de escritura: con réplicas se leen del primario,
+    // así una instancia ve un bucket movido en cuanto se confirma el cambio
+    @Transactional
+    @Query("select b from NoteShardBucket b")
+    List<NoteShardBucket> loadAll();
+
+    @Transactional
+    @Query("select b.shard from NoteShardBucket b where b.bucket = :bucket")
+    Optional<Integer> findShard(@Param("bucket") int bucket);
+
+    // Solo si el bucket sigue en el shard de origen (otro movimiento no lo cambió antes)
+    @Modifying
+    @Transactional
+    @Query("update NoteShardBucket b set b.shard = :to where b.bucket = :bucket and b.shard = :from")
+    int move(@Param("bucket") int bucket, @Param("from") int from, @Param("to") int to);
+}
@@ -0,0 +1,27 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+/**
+ * Proyección de una nota con su contenido en línea (no se carga la entidad ni su dueño).
+ * En las notas grandes {@code content} es null y el contenido se lee con GET /notes/{id}/content.
+ */
+public class NoteSummary {
+    private final Long id;
+    private final String title;
+    private final String content;
+    private final long size;
+    private final long version;
+
+    public NoteSummary(Long id, String title, String content, long size, long version) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.size = size;
+        this.version = version;
+    }
+
+    public Long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getContent() { return content; }
+    public long getSize() { return size; }
+    public long getVersion() { return version; }
+}
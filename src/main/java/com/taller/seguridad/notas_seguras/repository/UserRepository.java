@@ -1,11 +1,73 @@
 package com.taller.seguridad.notas_seguras.repository;
 
 import com.taller.seguridad.notas_seguras.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Listado de administración: proyección sin el hash de la contraseña, filtros opcionales (null = todos).
+    // Como Slice se pide una fila de más para saber si hay otra página, sin consulta de conteo
+    @Transactional(readOnly = true)
+    @Query("select new com.taller.seguridad.notas_seguras.repository.UserSummary(u.id, u.email, u.role, u.locked, u.lastLogin) " +
+            "from User u where (:role is null or u.role = :role) and (:locked is null or u.locked = :locked)")
+    Slice<UserSummary> findSummaries(@Param("role") User.Role role, @Param("locked") Boolean locked, Pageable pageable);
+
+    // Contadores globales en una sola pasada sobre la tabla
+    @Transactional(readOnly = true)
+    @Query("select new com.taller.seguridad.notas_seguras.repository.UserStats(count(u), " +
+            "coalesce(sum(case when u.role = :admin then 1 else 0 end), 0), " +
+            "coalesce(sum(case when u.locked = true then 1 else 0 end), 0), " +
+            "coalesce(sum(case when u.lastLogin >= :activeSince then 1 else 0 end), 0)) " +
+            "from User u")
+    UserStats stats(@Param("admin") User.Role admin, @Param("activeSince") LocalDateTime activeSince);
+
+    // Exportación: se recorre con un cursor JDBC de tamaño acotado (requiere transacción abierta)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.taller.seguridad.notas_seguras.repository.UserSummary(u.id, u.email, u.role, u.locked, u.lastLogin) " +
+            "from User u order by u.id asc")
+    Stream<UserSummary> streamAll();
+
+    // Escrituras puntuales del control de bloqueo (sin cargar la entidad)
+    @Modifying
+    @Transactional
+    @Query("update User u set u.locked = :locked, u.failedAttempts = :failedAttempts, u.lockTime = :lockTime where u.id = :id")
+    int updateLockState(@Param("id") Long id,
+                        @Param("locked") boolean locked,
+                        @Param("failedAttempts") int failedAttempts,
+                        @Param("lockTime") LocalDateTime lockTime);
+
+    // Historial de cambios: el UPDATE bloquea la fila del usuario hasta el commit, así las escrituras
+    // concurrentes de un mismo dueño toman secuencias en el mismo orden en que se confirman
+    @Modifying
+    @Query("update User u set u.changeSeq = u.changeSeq + :count where u.id = :id")
+    int advanceChangeSeq(@Param("id") Long id, @Param("count") long count);
+
+    @Query("select u.changeSeq from User u where u.id = :id")
+    Optional<Long> findChangeSeq(@Param("id") Long id);
+
+    @Query("select u.changeFloor from User u where u.id = :id")
+    Optional<Long> findChangeFloor(@Param("id") Long id);
+
+    // Antes de purgar: cada dueño recuerda la mayor secuencia que se va a borrar
+    @Modifying
+    @Query("update User u set u.changeFloor = " +
+            "(select max(c.seq) from NoteChangeEntry c where c.ownerId = u.id and c.createdAt < :cutoff) " +
+            "where exists (select c.id from NoteChangeEntry c where c.ownerId = u.id and c.createdAt < :cutoff)")
+    int raiseChangeFloors(@Param("cutoff") LocalDateTime cutoff);
 }
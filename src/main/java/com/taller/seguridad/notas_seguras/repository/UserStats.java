@@ -0,0 +1,23 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+/**
+ * Contadores de usuarios para el resumen de administración.
+ */
+public class UserStats {
+    private final long total;
+    private final long admins;
+    private final long locked;
+    private final long active;
+
+    public UserStats(long total, long admins, long locked, long active) {
+        this.total = total;
+        this.admins = admins;
+        this.locked = locked;
+        this.active = active;
+    }
+
+    public long getTotal() { return total; }
+    public long getAdmins() { return admins; }
+    public long getLocked() { return locked; }
+    public long getActive() { return active; }
+}
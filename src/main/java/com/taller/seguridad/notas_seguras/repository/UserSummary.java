@@ -0,0 +1,31 @@
+package com.taller.seguridad.notas_seguras.repository;
+
+import com.taller.seguridad.notas_seguras.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de un usuario para exportaciones y listados de administración
+ * (sin el hash de la contraseña).
+ */
+public class UserSummary {
+    private final Long id;
+    private final String email;
+    private final User.Role role;
+    private final boolean locked;
+    private final LocalDateTime lastLogin;
+
+    public UserSummary(Long id, String email, User.Role role, boolean locked, LocalDateTime lastLogin) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.locked = locked;
+        this.lastLogin = lastLogin;
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public User.Role getRole() { return role; }
+    public boolean isLocked() { return locked; }
+    public LocalDateTime getLastLogin() { return lastLogin; }
+}
@@ -0,0 +1,200 @@
+package com.taller.seguridad.notas_seguras.search;
+
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido de notas en memoria, uno por dueño.
+ * <p>
+ * Se actualiza de forma incremental desde las escrituras de {@code NoteController}
+ * (después del commit si hay transacción) y se construye desde el almacenamiento de notas al arrancar
+ * o la primera vez que se consulta un dueño que no está cargado. Para acotar la memoria
+ * se mantiene como máximo {@code search.max-owners} índices (LRU) y un número limitado
+ * de términos por nota.
+ */
+@Component
+public class NoteSearchIndex implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchIndex.class);
+
+    private final NoteStore noteStore;
+    private final TransactionTemplate readOnlyTx;
+    private final int maxOwners;
+    private final boolean rebuildOnStartup;
+
+    // Acceso en orden LRU; protegido por synchronized (solo se toca para buscar/insertar el índice)
+    private final LinkedHashMap<Long, OwnerIndex> owners;
+
+    public NoteSearchIndex(NoteStore noteStore,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${search.max-owners:10000}") int maxOwners,
+                           @Value("${search.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.noteStore = noteStore;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.maxOwners = maxOwners;
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.owners = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, OwnerIndex> eldest) {
+                return size() > NoteSearchIndex.this.maxOwners;
+            }
+        };
+    }
+
+    // --- Actualización incremental ---
+
+    public void onSaved(Long ownerId, Long noteId, String title, String content) {
+        afterCommit(() -> {
+            OwnerIndex index = loaded(ownerId);
+            if (index != null) index.upsert(noteId, title, content);
+        });
+    }
+
+    public void onDeleted(Long ownerId, Long noteId) {
+        afterCommit(() -> {
+            OwnerIndex index = loaded(ownerId);
+            if (index != null) index.remove(noteId);
+        });
+    }
+
+    // Dentro de una transacción se espera al commit para no indexar cambios que luego se revierten
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // --- Búsqueda ---
+
+    /**
+     * Busca las notas del dueño que contienen todos los términos de la consulta.
+     * Un término terminado en {@code *} se busca como prefijo. Devuelve los ids ordenados por relevancia.
+     */
+    public List<Long> search(Long ownerId, String query, int limit) {
+        List<String> terms = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        for (String raw : query.trim().split("\\s+")) {
+            boolean prefix = raw.endsWith("*");
+            for (String term : Tokenizer.tokens(prefix ? raw.substring(0, raw.length() - 1) : raw)) {
+                terms.add(term);
+                prefixes.add(prefix);
+            }
+        }
+        if (terms.isEmpty()) return Collections.emptyList();
+
+        return indexFor(ownerId).search(terms, prefixes, limit);
+    }
+
+    /**
+     * Reconstruye el índice de un dueño desde el almacenamiento de notas.
+     */
+    public void rebuild(Long ownerId) {
+        OwnerIndex index = new OwnerIndex();
+        index.lock.writeLock().lock();
+        synchronized (owners) {
+            owners.put(ownerId, index);
+        }
+        load(ownerId, index);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!rebuildOnStartup) return;
+
+        long start = System.currentTimeMillis();
+        List<Long> ownerIds = noteStore.ownerIds();
+        int count = Math.min(ownerIds.size(), maxOwners);
+        for (int i = 0; i < count; i++) {
+            rebuild(ownerIds.get(i));
+        }
+        log.info("Índice de búsqueda construido para {} usuarios en {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    private OwnerIndex loaded(Long ownerId) {
+        synchronized (owners) {
+            return owners.get(ownerId);
+        }
+    }
+
+    private OwnerIndex indexFor(Long ownerId) {
+        OwnerIndex index;
+        boolean created = false;
+        synchronized (owners) {
+            index = owners.get(ownerId);
+            if (index == null) {
+                index = new OwnerIndex();
+                index.lock.writeLock().lock(); // se publica ya bloqueado: nadie lo ve vacío
+                owners.put(ownerId, index);
+                created = true;
+            }
+        }
+        if (created) load(ownerId, index);
+        return index;
+    }
+
+    // El índice se registra ya bloqueado para escritura y se libera al terminar de cargarlo:
+    // búsquedas y escrituras concurrentes esperan y se aplican sobre el estado ya cargado
+    private void load(Long ownerId, OwnerIndex index) {
+        try {
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<NoteSummary> notes = noteStore.stream(ownerId)) {
+                    notes.forEach(n -> index.upsertLocked(n.getId(), n.getTitle(), n.getContent()));
+                }
+            });
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    // --- Métricas ---
+
+    public int getIndexedOwners() {
+        synchronized (owners) {
+            return owners.size();
+        }
+    }
+
+    public long getIndexedTerms() {
+        List<OwnerIndex> snapshot;
+        synchronized (owners) {
+            snapshot = new ArrayList<>(owners.values());
+        }
+        long terms = 0;
+        for (OwnerIndex index : snapshot) terms += index.termCount();
+        return terms;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("search.index.owners", this, NoteSearchIndex::getIndexedOwners).register(registry);
+        Gauge.builder("search.index.terms", this, NoteSearchIndex::getIndexedTerms).register(registry);
+    }
+}
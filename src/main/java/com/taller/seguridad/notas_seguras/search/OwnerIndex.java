@@ -0,0 +1,172 @@
+package com.taller.seguridad.notas_seguras.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de las notas de un solo dueño.
+ * Los términos están en un diccionario ordenado (para búsquedas por prefijo) y cada
+ * nota tiene un id de documento local de tipo int.
+ */
+final class OwnerIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MAX_TERMS_PER_NOTE = 256;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> dictionary = new TreeMap<>();
+    private final Map<Long, Integer> docByNote = new HashMap<>();
+    private long[] noteByDoc = new long[16];
+    private String[][] termsByDoc = new String[16][]; // para poder borrar una nota del índice
+    private int nextDoc;
+
+    void upsert(Long noteId, String title, String content) {
+        lock.writeLock().lock();
+        try {
+            upsertLocked(noteId, title, content);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Long noteId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(noteId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Requiere el lock de escritura
+    void upsertLocked(Long noteId, String title, String content) {
+        removeLocked(noteId);
+
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : Tokenizer.tokens(title)) weights.merge(term, TITLE_WEIGHT, Integer::sum);
+        for (String term : Tokenizer.tokens(content)) weights.merge(term, 1, Integer::sum);
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(weights.entrySet());
+        if (entries.size() > MAX_TERMS_PER_NOTE) {
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            entries = entries.subList(0, MAX_TERMS_PER_NOTE);
+        }
+
+        int doc = nextDoc++;
+        if (doc == noteByDoc.length) {
+            noteByDoc = Arrays.copyOf(noteByDoc, doc * 2);
+            termsByDoc = Arrays.copyOf(termsByDoc, doc * 2);
+        }
+
+        String[] terms = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<String, Integer> e = entries.get(i);
+            dictionary.computeIfAbsent(e.getKey(), k -> new Postings()).append(doc, e.getValue());
+            terms[i] = dictionary.ceilingKey(e.getKey()); // se comparte la instancia guardada en el diccionario
+        }
+        noteByDoc[doc] = noteId;
+        termsByDoc[doc] = terms;
+        docByNote.put(noteId, doc);
+    }
+
+    private void removeLocked(Long noteId) {
+        Integer doc = docByNote.remove(noteId);
+        if (doc == null) return;
+
+        for (String term : termsByDoc[doc]) {
+            Postings postings = dictionary.get(term);
+            postings.remove(doc);
+            if (postings.size() == 0) dictionary.remove(term);
+        }
+        termsByDoc[doc] = null;
+
+        // Si más de la mitad de los ids de documento están libres se renumeran
+        if (nextDoc > 64 && docByNote.size() * 2 < nextDoc) compact();
+    }
+
+    private void compact() {
+        int[] newIds = new int[nextDoc];
+        int live = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (termsByDoc[doc] == null) continue;
+            newIds[doc] = live;
+            noteByDoc[live] = noteByDoc[doc];
+            termsByDoc[live] = termsByDoc[doc];
+            docByNote.put(noteByDoc[live], live);
+            live++;
+        }
+        for (Postings postings : dictionary.values()) postings.remap(newIds);
+
+        int capacity = Math.max(16, live * 2);
+        noteByDoc = Arrays.copyOf(noteByDoc, capacity);
+        termsByDoc = Arrays.copyOf(termsByDoc, capacity);
+        nextDoc = live;
+    }
+
+    /**
+     * Documentos que contienen todos los términos, ordenados por puntaje (peso × idf).
+     */
+    List<Long> search(List<String> terms, List<Boolean> prefixes, int limit) {
+        lock.readLock().lock();
+        try {
+            int totalDocs = Math.max(docByNote.size(), 1);
+            Map<Integer, Double> scores = null;
+
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                Collection<Postings> matches = prefixes.get(t)
+                        ? dictionary.subMap(term, true, term + Character.MAX_VALUE, true).values()
+                        : (dictionary.containsKey(term) ? List.of(dictionary.get(term)) : List.of());
+
+                Map<Integer, Double> termScores = new HashMap<>();
+                for (Postings postings : matches) {
+                    double idf = Math.log(1.0 + (double) totalDocs / postings.size());
+                    for (int i = 0; i < postings.size(); i++) {
+                        termScores.merge(postings.doc(i), postings.weight(i) * idf, Double::sum);
+                    }
+                }
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Intersección: la nota debe contener todos los términos
+                    Map<Integer, Double> previous = scores;
+                    scores = new HashMap<>();
+                    for (Map.Entry<Integer, Double> e : termScores.entrySet()) {
+                        Double prev = previous.get(e.getKey());
+                        if (prev != null) scores.put(e.getKey(), prev + e.getValue());
+                    }
+                }
+                if (scores.isEmpty()) return Collections.emptyList();
+            }
+
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+
+            List<Long> result = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                result.add(noteByDoc[ranked.get(i).getKey()]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
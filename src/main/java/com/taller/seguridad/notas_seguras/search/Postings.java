@@ -0,0 +1,46 @@
+package com.taller.seguridad.notas_seguras.search;
+
+import java.util.Arrays;
+
+/**
+ * Lista de apariciones de un término: documentos en orden creciente y su peso,
+ * en arreglos primitivos (sin objetos por entrada).
+ */
+final class Postings {
+
+    private int[] docs = new int[4];
+    private short[] weights = new short[4];
+    private int size;
+
+    // Los documentos nuevos siempre tienen un id mayor: agregar al final mantiene el orden
+    void append(int doc, int weight) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        docs[size] = doc;
+        weights[size] = (short) Math.min(weight, Short.MAX_VALUE);
+        size++;
+    }
+
+    void remove(int doc) {
+        int i = Arrays.binarySearch(docs, 0, size, doc);
+        if (i < 0) return;
+        System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+        System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+        size--;
+    }
+
+    // Renumera los documentos tras una compactación (el mapeo conserva el orden)
+    void remap(int[] newIds) {
+        for (int i = 0; i < size; i++) docs[i] = newIds[docs[i]];
+        if (docs.length > size * 2 + 4) {
+            docs = Arrays.copyOf(docs, size + 4);
+            weights = Arrays.copyOf(weights, size + 4);
+        }
+    }
+
+    int size() { return size; }
+    int doc(int i) { return docs[i]; }
+    int weight(int i) { return weights[i]; }
+}
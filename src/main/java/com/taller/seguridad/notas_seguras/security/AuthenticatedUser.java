@@ -0,0 +1,36 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import com.taller.seguridad.notas_seguras.model.User;
+
+import java.security.Principal;
+
+/**
+ * Usuario autenticado, construido por {@link JwtAuthenticationFilter} solo a partir de los claims
+ * del token (sin sesión ni consulta a la base de datos). Los controladores lo reciben con
+ * {@code @AuthenticationPrincipal}.
+ */
+public final class AuthenticatedUser implements Principal {
+
+    private final Long id;
+    private final String email;
+    private final User.Role role;
+
+    public AuthenticatedUser(Long id, String email, User.Role role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public User.Role getRole() { return role; }
+
+    public boolean isAdmin() {
+        return role == User.Role.ADMIN;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
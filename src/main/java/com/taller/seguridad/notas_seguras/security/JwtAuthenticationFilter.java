@@ -1,28 +1,56 @@
 package com.taller.seguridad.notas_seguras.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Atributo de la request con los claims ya verificados (evita volver a parsear el token)
+    public static final String CLAIMS_ATTRIBUTE = "jwt.claims";
+
     private final JwtService jwtService;
+    private final TokenRevocationService revocationService;
+
+    // Timers creados una sola vez: registrar una validación no reserva memoria
+    private final Timer validTimer;
+    private final Timer expiredTimer;
+    private final Timer badSignatureTimer;
+    private final Timer invalidTimer;
+    private final Timer revokedTimer;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    public JwtAuthenticationFilter(JwtService jwtService, TokenRevocationService revocationService, MeterRegistry registry) {
         this.jwtService = jwtService;
+        this.revocationService = revocationService;
+        this.validTimer = validationTimer(registry, "success");
+        this.expiredTimer = validationTimer(registry, "expired");
+        this.badSignatureTimer = validationTimer(registry, "bad_signature");
+        this.invalidTimer = validationTimer(registry, "invalid");
+        this.revokedTimer = validationTimer(registry, "revoked");
+    }
+
+    private static Timer validationTimer(MeterRegistry registry, String result) {
+        return Timer.builder("jwt.validation")
+                .description("Validación de JWT en el filtro de autenticación")
+                .tag("result", result)
+                .register(registry);
     }
 
     @Override
@@ -40,21 +68,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = header.substring(7);
 
+        long start = System.nanoTime();
         try {
-            Jws<Claims> claims = jwtService.validateToken(token);
-            String email = claims.getBody().getSubject();
+            Claims claims = jwtService.verify(token);
+            AuthenticatedUser principal = jwtService.toPrincipal(claims);
+            // Sin acceso a la BD: filtro de Bloom en memoria y, solo si da positivo, el conjunto exacto
+            if (revocationService.isRevoked(claims.getId())) {
+                revokedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.getWriter().write("Token revocado");
+                return;
+            }
+            validTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            request.setAttribute(CLAIMS_ATTRIBUTE, claims);
 
             UsernamePasswordAuthenticationToken auth =
                     new UsernamePasswordAuthenticationToken(
-                            new User(email, "", Collections.emptyList()),
+                            principal,
                             null,
-                            Collections.emptyList()
+                            List.of(new SimpleGrantedAuthority("ROLE_" + principal.getRole().name()))
                     );
             auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
             SecurityContextHolder.getContext().setAuthentication(auth);
 
         } catch (Exception e) {
+            Timer timer = e instanceof ExpiredJwtException ? expiredTimer
+                    : e instanceof SignatureException ? badSignatureTimer
+                    : invalidTimer;
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Token inválido o expirado");
             return;
@@ -1,5 +1,8 @@
 package com.taller.seguridad.notas_seguras.security;
 
+import com.taller.seguridad.notas_seguras.datasource.ReadYourWritesFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -17,9 +20,14 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class JwtSecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final ReadYourWritesFilter readYourWritesFilter;
 
-    public JwtSecurityConfig(JwtAuthenticationFilter jwtAuthFilter) {
+    public JwtSecurityConfig(JwtAuthenticationFilter jwtAuthFilter, RateLimitFilter rateLimitFilter,
+                             ReadYourWritesFilter readYourWritesFilter) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = rateLimitFilter;
+        this.readYourWritesFilter = readYourWritesFilter;
     }
 
     @Bean
@@ -28,17 +36,27 @@ public class JwtSecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // El dispatch ASYNC de las respuestas en streaming ya fue autorizado en la request original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        // El dispatch ERROR solo renderiza el error de una request que ya pasó por el filtro
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                         .requestMatchers("/auth/login", "/auth/register").permitAll()
+                        // Scrape de Prometheus y health check (en producción, exponer en management.server.port)
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // Después del JWT (límite por usuario en /notes) y antes de cualquier trabajo de BCrypt o BD
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
+                // Con réplicas: quien escribió hace poco lee del primario
+                .addFilterAfter(readYourWritesFilter, RateLimitFilter.class);
 
         return http.build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
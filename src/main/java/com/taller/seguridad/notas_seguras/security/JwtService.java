@@ -1,42 +1,99 @@
 package com.taller.seguridad.notas_seguras.security;
 
+import com.taller.seguridad.notas_seguras.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 @Service
 public class JwtService {
     private static final String SECRET_KEY = "supersecretoyseguro123supersecretoyseguro123"; // 32+ caracteres
-    private static final long EXPIRATION_TIME = 1000 * 60 * 60; // 1 hora
+    static final long EXPIRATION_TIME = 1000 * 60 * 60; // 1 hora
 
     private final Key key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
 
-    public String generateToken(String email, String role) {
+    // El parser es inmutable y thread-safe: se construye una sola vez
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(key)
+            .build();
+
+    private final VerifiedTokenCache tokenCache;
+
+    public JwtService(@Value("${jwt.cache.max-entries:10000}") int cacheMaxEntries) {
+        this.tokenCache = new VerifiedTokenCache(cacheMaxEntries);
+    }
+
+    // Claims propios: el filtro construye el usuario autenticado solo con ellos
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+
+    public String generateToken(Long userId, String email, String role) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString()) // jti: identifica el token para poder revocarlo
                 .setSubject(email)
-                .claim("role", role)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(ROLE_CLAIM, role)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    // Sobrecarga opcional (útil para simplificar llamadas)
-    public String generateToken(String email) {
-        return generateToken(email, "USER");
+    public Jws<Claims> validateToken(String token) {
+        return parser.parseClaimsJws(token);
     }
 
-    public Jws<Claims> validateToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
+    /**
+     * Valida el token usando el cache de tokens ya verificados.
+     * Si el token está en cache (y no ha expirado) se evita la verificación HMAC
+     * y el parseo del JSON.
+     */
+    public Claims verify(String token) {
+        String digest = VerifiedTokenCache.digest(token);
+        Claims cached = tokenCache.get(digest);
+        if (cached != null) return cached;
+
+        Claims claims = validateToken(token).getBody();
+        tokenCache.put(digest, claims);
+        return claims;
     }
 
     public String getEmailFromToken(String token) {
-        return validateToken(token).getBody().getSubject();
+        return verify(token).getSubject();
+    }
+
+    /**
+     * Usuario autenticado a partir de los claims ya verificados.
+     * Lanza {@link JwtException} si el token no trae jti, id o rol válidos (p. ej. tokens antiguos).
+     */
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (userId == null || role == null) {
+            throw new MalformedJwtException("El token no contiene el id o el rol del usuario");
+        }
+        if (claims.getId() == null) {
+            throw new MalformedJwtException("El token no contiene jti: no se podría revocar");
+        }
+        try {
+            return new AuthenticatedUser(userId.longValue(), claims.getSubject(), User.Role.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Rol desconocido en el token: " + role);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.cache.eviction-interval-ms:60000}")
+    public void evictExpiredTokens() {
+        tokenCache.evictExpired();
+    }
+
+    public VerifiedTokenCache getTokenCache() {
+        return tokenCache;
     }
 }
@@ -0,0 +1,226 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Intentos fallidos y bloqueo temporal de cuentas, en memoria.
+ * <p>
+ * Cada usuario tiene un estado inmutable que se reemplaza con
+ * {@link ConcurrentHashMap#compute}, así los intentos concurrentes de una
+ * misma cuenta no se pisan y cuentas distintas no compiten entre sí.
+ * Solo se persisten las transiciones relevantes (bloqueo, desbloqueo y
+ * último login), agrupadas y escritas en segundo plano. Los últimos logins
+ * (uno por usuario aunque haya entrado varias veces) van en un solo lote JDBC.
+ * Si la base de datos falla, los cambios se conservan para el siguiente intento.
+ */
+@Component
+public class LoginAttemptTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginAttemptTracker.class);
+
+    private static final long LOCK_MILLIS = TimeUnit.MINUTES.toMillis(User.LOCK_TIME_DURATION);
+    // Ventana en la que se acumulan los intentos fallidos
+    private static final long WINDOW_MILLIS = LOCK_MILLIS;
+
+    private static final class State {
+        static final State CLEAN = new State(0, 0L, 0L);
+
+        final int failures;
+        final long windowStart;
+        final long lockedUntil; // 0 = no bloqueado, Long.MAX_VALUE = bloqueo manual
+
+        State(int failures, long windowStart, long lockedUntil) {
+            this.failures = failures;
+            this.windowStart = windowStart;
+            this.lockedUntil = lockedUntil;
+        }
+
+        boolean isIdle(long now) {
+            return lockedUntil <= now && (failures == 0 || windowStart + WINDOW_MILLIS <= now);
+        }
+    }
+
+    // Cambios pendientes de un usuario; varias transiciones se combinan en una sola escritura
+    private static final class PendingWrite {
+        final boolean lockChanged;
+        final boolean locked;
+        final LocalDateTime lockTime;
+        final LocalDateTime lastLogin;
+
+        PendingWrite(boolean lockChanged, boolean locked, LocalDateTime lockTime, LocalDateTime lastLogin) {
+            this.lockChanged = lockChanged;
+            this.locked = locked;
+            this.lockTime = lockTime;
+            this.lastLogin = lastLogin;
+        }
+
+        PendingWrite merge(PendingWrite newer) {
+            return new PendingWrite(
+                    lockChanged || newer.lockChanged,
+                    newer.lockChanged ? newer.locked : locked,
+                    newer.lockChanged ? newer.lockTime : lockTime,
+                    newer.lastLogin != null ? newer.lastLogin : lastLogin);
+        }
+    }
+
+    private final ConcurrentHashMap<Long, State> states = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    // Contadores de eventos (expuestos como métricas)
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder locks = new LongAdder();
+    private final LongAdder unlocks = new LongAdder();
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbc;
+
+    public LoginAttemptTracker(UserRepository userRepository, DataSource dataSource) {
+        this.userRepository = userRepository;
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Instante (epoch millis) hasta el que la cuenta está bloqueada, o 0 si no lo está.
+     */
+    public long lockedUntil(User user) {
+        long now = System.currentTimeMillis();
+        State state = states.computeIfAbsent(user.getId(), id -> fromPersisted(user, now));
+
+        if (state.lockedUntil != 0 && state.lockedUntil <= now) {
+            // El bloqueo expiró: se limpia y se persiste el desbloqueo
+            if (states.replace(user.getId(), state, State.CLEAN)) {
+                unlocks.increment();
+                enqueue(user.getId(), new PendingWrite(true, false, null, null));
+            }
+            return 0;
+        }
+        return state.lockedUntil;
+    }
+
+    /**
+     * Registra un intento fallido y devuelve el número de fallos acumulados.
+     * Al llegar a {@link User#MAX_FAILED_ATTEMPTS} la cuenta queda bloqueada.
+     */
+    public int recordFailure(User user) {
+        long now = System.currentTimeMillis();
+        State state = states.compute(user.getId(), (id, current) -> {
+            if (current == null || current.windowStart + WINDOW_MILLIS <= now) {
+                current = new State(0, now, 0L);
+            }
+            int failures = current.failures + 1;
+            long lockedUntil = failures >= User.MAX_FAILED_ATTEMPTS ? now + LOCK_MILLIS : 0L;
+            return new State(failures, current.windowStart, lockedUntil);
+        });
+
+        failures.increment();
+        if (state.failures == User.MAX_FAILED_ATTEMPTS) {
+            locks.increment();
+            enqueue(user.getId(), new PendingWrite(true, true, toLocalDateTime(now), null));
+        }
+        return state.failures;
+    }
+
+    public void recordSuccess(User user) {
+        State previous = states.put(user.getId(), State.CLEAN);
+        boolean persistedDirty = user.isLocked() || user.getFailedAttempts() != 0;
+        boolean memoryDirty = previous != null && previous.lockedUntil != 0;
+
+        enqueue(user.getId(), new PendingWrite(persistedDirty || memoryDirty, false, null, LocalDateTime.now()));
+    }
+
+    // --- Escritura en segundo plano ---
+    // Si una escritura falla, lo que no se guardó vuelve a la cola y se reintenta en el siguiente
+    @Scheduled(fixedDelayString = "${security.lockout.flush-interval-ms:5000}")
+    public void flush() {
+        Map<Long, LocalDateTime> lastLogins = new HashMap<>();
+        RuntimeException failure = null;
+        for (Long userId : pending.keySet()) {
+            PendingWrite write = pending.remove(userId);
+            if (write == null) continue;
+
+            if (write.lockChanged) {
+                try {
+                    userRepository.updateLockState(userId, write.locked,
+                            write.locked ? User.MAX_FAILED_ATTEMPTS : 0, write.lockTime);
+                } catch (RuntimeException e) {
+                    requeue(userId, write);
+                    failure = e;
+                    continue;
+                }
+            }
+            if (write.lastLogin != null) lastLogins.put(userId, write.lastLogin);
+        }
+        if (!lastLogins.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(lastLogins.size());
+            lastLogins.forEach((userId, lastLogin) -> rows.add(new Object[]{Timestamp.valueOf(lastLogin), userId}));
+            try {
+                jdbc.batchUpdate("update users set last_login = ? where id = ?", rows);
+            } catch (RuntimeException e) {
+                lastLogins.forEach((userId, lastLogin) -> requeue(userId, new PendingWrite(false, false, null, lastLogin)));
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            log.warn("No se pudieron persistir los cambios de login; quedan {} usuarios pendientes", pending.size(), failure);
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        states.entrySet().removeIf(e -> e.getValue().isIdle(now) && !pending.containsKey(e.getKey()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public int getTrackedAccounts() { return states.size(); }
+    public int getPendingWrites() { return pending.size(); }
+    public long getFailures() { return failures.sum(); }
+    public long getLocks() { return locks.sum(); }
+    public long getUnlocks() { return unlocks.sum(); }
+
+    private void enqueue(Long userId, PendingWrite write) {
+        pending.merge(userId, write, PendingWrite::merge);
+    }
+
+    // Lo que no se pudo escribir es más antiguo que lo que haya llegado mientras tanto
+    private void requeue(Long userId, PendingWrite write) {
+        pending.merge(userId, write, (newer, retried) -> retried.merge(newer));
+    }
+
+    // Estado inicial según lo guardado en BD (p. ej. después de un reinicio)
+    private static State fromPersisted(User user, long now) {
+        if (!user.isLocked()) return State.CLEAN;
+        if (user.getLockTime() == null) return new State(user.getFailedAttempts(), now, Long.MAX_VALUE);
+
+        long until = user.getLockTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + LOCK_MILLIS;
+        return new State(user.getFailedAttempts(), now, until);
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
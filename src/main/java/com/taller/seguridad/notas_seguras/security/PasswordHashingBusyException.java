@@ -0,0 +1,10 @@
+package com.taller.seguridad.notas_seguras.security;
+
+/**
+ * La cola de hashing de contraseñas está llena: la petición debe rechazarse con 503.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(Throwable cause) {
+        super("Cola de hashing de contraseñas llena", cause);
+    }
+}
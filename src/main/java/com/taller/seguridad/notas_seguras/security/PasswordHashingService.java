@@ -0,0 +1,141 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta BCrypt en un pool propio con cola acotada, fuera de los hilos de Tomcat.
+ * Si la cola está llena se lanza {@link PasswordHashingBusyException} en lugar de esperar.
+ */
+@Service
+public class PasswordHashingService {
+
+    // Resultado de verificar una contraseña; si el hash usa otro costo trae el hash recalculado
+    public static class Verification {
+        private final boolean matches;
+        private final String upgradedHash;
+
+        Verification(boolean matches, String upgradedHash) {
+            this.matches = matches;
+            this.upgradedHash = upgradedHash;
+        }
+
+        public boolean matches() { return matches; }
+        public String getUpgradedHash() { return upgradedHash; }
+    }
+
+    private final PasswordEncoder passwordEncoder;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+
+    // Conteo y tiempo acumulado por operación (se exponen como métricas sin costo extra por llamada)
+    public static class OpStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        public long getCount() { return count.sum(); }
+        public long getTotalNanos() { return totalNanos.sum(); }
+    }
+
+    private final OpStats encodeStats = new OpStats();
+    private final OpStats verifyStats = new OpStats();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${security.bcrypt.strength:10}") int strength,
+                                  @Value("${security.password-hashing.threads:0}") int threads,
+                                  @Value("${security.password-hashing.queue-capacity:100}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.strength = strength;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> timed(encodeStats, () -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public CompletableFuture<Verification> verify(CharSequence rawPassword, String hash) {
+        return submit(() -> {
+            boolean matches = timed(verifyStats, () -> passwordEncoder.matches(rawPassword, hash));
+            // Se aprovecha que ya conocemos la contraseña para migrar el hash al costo configurado
+            String upgraded = matches && needsRehash(hash)
+                    ? timed(encodeStats, () -> passwordEncoder.encode(rawPassword))
+                    : null;
+            return new Verification(matches, upgraded);
+        });
+    }
+
+    /**
+     * true si el hash BCrypt ($2a$NN$...) usa un costo distinto al configurado.
+     */
+    public boolean needsRehash(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$') return false;
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException(e);
+        }
+    }
+
+    private static <T> T timed(OpStats stats, Supplier<T> op) {
+        long start = System.nanoTime();
+        try {
+            return op.get();
+        } finally {
+            stats.totalNanos.add(System.nanoTime() - start);
+            stats.count.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // --- Métricas ---
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public int getActiveThreads() { return executor.getActiveCount(); }
+    public long getRejected() { return rejected.sum(); }
+    public OpStats getEncodeStats() { return encodeStats; }
+    public OpStats getVerifyStats() { return verifyStats; }
+
+    public long getOperations() {
+        return encodeStats.getCount() + verifyStats.getCount();
+    }
+
+    public double getAverageMillis() {
+        long ops = getOperations();
+        return ops == 0 ? 0 : (encodeStats.getTotalNanos() + verifyStats.getTotalNanos()) / 1_000_000.0 / ops;
+    }
+}
@@ -0,0 +1,129 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Límite de peticiones por IP y por cuenta en login, registro y notas.
+ * <p>
+ * Va justo después de {@link JwtAuthenticationFilter} (para conocer el usuario en /notes) y
+ * antes de los controladores: una petición rechazada responde 429 con {@code Retry-After}
+ * sin llegar a BCrypt ni a la base de datos. En login la cuenta es el {@code username}
+ * pedido, así una ráfaga contra una misma cuenta se corta aunque venga de muchas IPs.
+ * <p>
+ * La IP es {@code getRemoteAddr()}: detrás de un proxy hay que configurar
+ * {@code server.forward-headers-strategy} para que sea la del cliente.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private enum Route { LOGIN, REGISTER, NOTES }
+
+    private final RateLimiter limiter;
+    private final boolean enabled;
+    private final RateLimiter.Limit loginIp;
+    private final RateLimiter.Limit loginAccount;
+    private final RateLimiter.Limit registerIp;
+    private final RateLimiter.Limit notesIp;
+    private final RateLimiter.Limit notesAccount;
+
+    private final Counter ipRejections;
+    private final Counter accountRejections;
+
+    public RateLimitFilter(RateLimiter limiter,
+                           MeterRegistry registry,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.login.ip:}") String loginIp,
+                           @Value("${rate-limit.login.account:}") String loginAccount,
+                           @Value("${rate-limit.register.ip:}") String registerIp,
+                           @Value("${rate-limit.notes.ip:}") String notesIp,
+                           @Value("${rate-limit.notes.account:}") String notesAccount) {
+        this.limiter = limiter;
+        this.enabled = enabled;
+        this.loginIp = RateLimiter.Limit.parse(loginIp);
+        this.loginAccount = RateLimiter.Limit.parse(loginAccount);
+        this.registerIp = RateLimiter.Limit.parse(registerIp);
+        this.notesIp = RateLimiter.Limit.parse(notesIp);
+        this.notesAccount = RateLimiter.Limit.parse(notesAccount);
+        this.ipRejections = rejections(registry, "ip");
+        this.accountRejections = rejections(registry, "account");
+    }
+
+    private static Counter rejections(MeterRegistry registry, String key) {
+        return Counter.builder("rate.limit.rejections")
+                .description("Peticiones rechazadas con 429 por el límite de peticiones")
+                .tag("key", key)
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || route(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Route route = route(request);
+        String ip = request.getRemoteAddr();
+
+        long wait = switch (route) {
+            case LOGIN -> {
+                long byIp = acquire(route, "ip:" + ip, loginIp, ipRejections);
+                String username = request.getParameter("username");
+                yield byIp > 0 || username == null ? byIp
+                        : acquire(route, "account:" + username.trim().toLowerCase(Locale.ROOT), loginAccount, accountRejections);
+            }
+            case REGISTER -> acquire(route, "ip:" + ip, registerIp, ipRejections);
+            case NOTES -> {
+                long byIp = acquire(route, "ip:" + ip, notesIp, ipRejections);
+                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+                yield byIp > 0 || auth == null || !(auth.getPrincipal() instanceof AuthenticatedUser user) ? byIp
+                        : acquire(route, "account:" + user.getId(), notesAccount, accountRejections);
+            }
+        };
+
+        if (wait > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Demasiadas solicitudes. Intenta de nuevo en " + retryAfter + " segundos.");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private long acquire(Route route, String key, RateLimiter.Limit limit, Counter rejections) {
+        if (limit == null) return 0;
+        long wait = limiter.tryAcquire(route.name() + ":" + key, limit);
+        if (wait > 0) rejections.increment();
+        return wait;
+    }
+
+    private static Route route(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if ("POST".equals(request.getMethod())) {
+            if (path.equals("/auth/login")) return Route.LOGIN;
+            if (path.equals("/auth/register")) return Route.REGISTER;
+        }
+        return path.equals("/notes") || path.startsWith("/notes/") ? Route.NOTES : null;
+    }
+}
@@ -0,0 +1,140 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets por clave (IP o cuenta), sin bloqueos.
+ * <p>
+ * Cada bucket es un solo {@link AtomicLong} con el instante en que volvería a estar lleno
+ * (forma GCRA del token bucket): consumir un token es sumarle el intervalo entre tokens con un
+ * CAS, y la petición se rechaza si eso lo deja más allá de la capacidad. Un bucket lleno no
+ * guarda información, así que se puede eliminar; esas entradas inactivas se barren
+ * periódicamente. Cuando el mapa llega a {@code rate-limit.max-keys} la petición no recorre el
+ * mapa: la clave nueva usa el bucket de desborde y se lanza un barrido en segundo plano (como
+ * mucho uno por segundo).
+ */
+@Component
+public class RateLimiter implements MeterBinder {
+
+    /**
+     * Límite de la forma {@code capacidad/periodo} (p. ej. {@code 10/1m}): ráfagas de hasta
+     * {@code capacidad} peticiones, que se recargan a razón de {@code capacidad} por periodo.
+     */
+    public static final class Limit {
+        final long intervalNanos;  // tiempo en recargar un token
+        final long capacityNanos;  // capacidad expresada en tiempo: capacidad × intervalo
+
+        Limit(int capacity, Duration period) {
+            this.intervalNanos = Math.max(1, period.toNanos() / capacity);
+            this.capacityNanos = intervalNanos * capacity;
+        }
+
+        /**
+         * Devuelve null si la especificación está vacía o es {@code 0} (sin límite).
+         */
+        public static Limit parse(String spec) {
+            if (spec == null || spec.isBlank() || spec.trim().equals("0")) return null;
+            String[] parts = spec.trim().split("/");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Límite inválido (se espera capacidad/periodo): " + spec);
+            }
+            int capacity = Integer.parseInt(parts[0].trim());
+            Duration period = DurationStyle.detectAndParse(parts[1].trim());
+            if (capacity <= 0 || period.isZero() || period.isNegative()) {
+                throw new IllegalArgumentException("Límite inválido: " + spec);
+            }
+            return new Limit(capacity, period);
+        }
+    }
+
+    // Las claves nuevas que no caben comparten este bucket: llenar el mapa no quita el límite
+    static final String OVERFLOW_KEY = "overflow";
+
+    private static final long SWEEP_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final AtomicLong nextSweep = new AtomicLong(Long.MIN_VALUE);
+
+    @Autowired
+    public RateLimiter(@Value("${rate-limit.max-keys:100000}") int maxKeys) {
+        this(maxKeys, System::nanoTime);
+    }
+
+    RateLimiter(int maxKeys, LongSupplier clock) {
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Consume un token del bucket {@code key}. Devuelve 0 si la petición se admite o, si no,
+     * los nanosegundos que faltan para que haya un token disponible.
+     */
+    public long tryAcquire(String key, Limit limit) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = bucket(key, limit, now);
+        while (true) {
+            long full = bucket.get();
+            long next = (full - now > 0 ? full : now) + limit.intervalNanos;
+            long wait = next - now - limit.capacityNanos;
+            if (wait > 0) return wait;
+            if (bucket.compareAndSet(full, next)) return 0;
+        }
+    }
+
+    private AtomicLong bucket(String key, Limit limit, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) return bucket;
+
+        if (buckets.size() >= maxKeys) {
+            sweepInBackground(now);
+            key = OVERFLOW_KEY + ":" + limit.intervalNanos;
+        }
+        // Un bucket nuevo empieza lleno
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    // Si una petición consume de un bucket justo cuando se elimina, el bucket vuelve a empezar lleno
+    private void evictIdle(long now) {
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    // Un solo barrido a la vez y con pausa entre ellos: con el mapa lleno de claves activas no se
+    // recorre en bucle
+    private void sweepInBackground(long now) {
+        long at = nextSweep.get();
+        if ((at != Long.MIN_VALUE && now - at < 0) || !nextSweep.compareAndSet(at, now + SWEEP_PAUSE_NANOS)) return;
+        Thread.ofVirtual().name("rate-limit-sweep").start(this::evictIdle);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        evictIdle(clock.getAsLong());
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("rate.limit.keys", buckets, Map::size)
+                .description("Buckets de límite de peticiones en memoria")
+                .register(registry);
+    }
+}
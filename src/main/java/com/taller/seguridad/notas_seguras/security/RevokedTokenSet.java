@@ -0,0 +1,134 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conjunto en memoria de tokens revocados (por {@code jti}), consultado en cada request.
+ * <p>
+ * Delante del conjunto exacto hay un filtro de Bloom. Un token no revocado, que es casi siempre
+ * el caso, se descarta con unas pocas lecturas de bits, sin buscar en el mapa ni calcular un hash
+ * nuevo: se usa {@link String#hashCode()}, que el String del jti de los claims cacheados ya tiene
+ * guardado. Si el filtro dice "quizás", se confirma en el mapa, donde cada entrada caduca en el
+ * {@code exp} del token.
+ * <p>
+ * Las escrituras (revocar, purgar) son raras y van sincronizadas. Un filtro de Bloom no permite
+ * borrar, así que al purgar los caducados se construye otro filtro con los vigentes y se reemplaza.
+ */
+public class RevokedTokenSet {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // Bits del filtro; su número es potencia de 2 para reducir cada posición con una máscara
+    private static final class Bloom {
+        final AtomicLongArray words;
+        final long mask;
+        final int hashes;
+        final int capacity;
+
+        Bloom(int capacity) {
+            this.capacity = Math.max(capacity, 64);
+            long bits = (long) Math.ceil(-this.capacity * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+            bits = Long.highestOneBit(Math.max(bits - 1, 64)) << 1;
+            this.words = new AtomicLongArray((int) (bits >>> 6));
+            this.mask = bits - 1;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / this.capacity * Math.log(2)));
+        }
+
+        void add(int hash) {
+            long h = mix(hash);
+            long h1 = h, h2 = (h >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) & mask;
+                int word = (int) (bit >>> 6);
+                long flag = 1L << bit;
+                words.getAndUpdate(word, current -> current | flag);
+            }
+        }
+
+        boolean mightContain(int hash) {
+            long h = mix(hash);
+            long h1 = h, h2 = (h >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) & mask;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // Finalizador de MurmurHash3: reparte los 32 bits del hashCode en 64
+        private static long mix(int hash) {
+            long h = hash * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Long> expirations = new ConcurrentHashMap<>(); // jti -> exp (epoch millis)
+    private final int expectedTokens;
+    private volatile Bloom bloom;
+
+    // Solo se cuentan las consultas que pasan el filtro: el camino común no escribe nada compartido
+    private final LongAdder bloomPositives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public RevokedTokenSet(int expectedTokens) {
+        this.expectedTokens = expectedTokens;
+        this.bloom = new Bloom(expectedTokens);
+    }
+
+    /**
+     * true si el token está revocado y aún no expira (uno expirado ya lo rechaza la validación del JWT).
+     */
+    public boolean contains(String jti) {
+        if (jti == null || !bloom.mightContain(jti.hashCode())) return false;
+
+        bloomPositives.increment();
+        Long expiresAt = expirations.get(jti);
+        if (expiresAt == null || expiresAt <= System.currentTimeMillis()) {
+            falsePositives.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void add(String jti, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) return;
+        if (expirations.put(jti, expiresAt) != null) return;
+
+        if (expirations.size() > bloom.capacity) {
+            rebuild(); // con más revocados de los previstos crecería la tasa de falsos positivos
+        } else {
+            bloom.add(jti.hashCode());
+        }
+    }
+
+    /**
+     * Quita los tokens ya expirados y reconstruye el filtro con los que quedan.
+     * Devuelve cuántos se quitaron.
+     */
+    public synchronized int evictExpired() {
+        long now = System.currentTimeMillis();
+        int before = expirations.size();
+        expirations.values().removeIf(expiresAt -> expiresAt <= now);
+        int removed = before - expirations.size();
+        if (removed > 0) rebuild();
+        return removed;
+    }
+
+    // El filtro nuevo se llena antes de publicarlo: un lector ve el anterior o el nuevo completo
+    private void rebuild() {
+        Bloom next = new Bloom(Math.max(expectedTokens, expirations.size() * 2));
+        for (String jti : expirations.keySet()) next.add(jti.hashCode());
+        bloom = next;
+    }
+
+    // --- Contadores ---
+    public int size() { return expirations.size(); }
+    public long getBloomPositives() { return bloomPositives.sum(); }
+    public long getFalsePositives() { return falsePositives.sum(); }
+}
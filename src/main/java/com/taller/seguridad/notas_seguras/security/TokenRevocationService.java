@@ -0,0 +1,89 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import com.taller.seguridad.notas_seguras.model.RevokedToken;
+import com.taller.seguridad.notas_seguras.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Revocación de tokens (logout).
+ * <p>
+ * La tabla {@code revoked_tokens} es la fuente de verdad y {@link RevokedTokenSet} su copia en
+ * memoria, que es lo único que consulta el filtro JWT. Al arrancar se cargan los revocados que
+ * aún no expiran; después, cada {@code security.revocation.sync-ms}, los revocados recientemente
+ * (también por otras instancias). La consulta repasa un margen hacia atrás por si una revocación
+ * se confirmó tarde o los relojes de las instancias no coinciden; volver a añadir un jti no tiene
+ * efecto.
+ */
+@Component
+public class TokenRevocationService {
+
+    private static final long SYNC_OVERLAP_MILLIS = 60_000;
+
+    private final RevokedTokenRepository repository;
+    private final RevokedTokenSet revoked;
+    private volatile long lastSync;
+
+    public TokenRevocationService(RevokedTokenRepository repository,
+                                  @Value("${security.revocation.expected-tokens:100000}") int expectedTokens) {
+        this.repository = repository;
+        this.revoked = new RevokedTokenSet(expectedTokens);
+    }
+
+    // Un token revocado hace más de su vida útil ya expiró: no hace falta leer más atrás
+    @PostConstruct
+    public void load() {
+        lastSync = System.currentTimeMillis() - JwtService.EXPIRATION_TIME;
+        sync();
+    }
+
+    public boolean isRevoked(String jti) {
+        return revoked.contains(jti);
+    }
+
+    /**
+     * Revoca el token de estos claims (ya verificados) hasta su expiración.
+     */
+    public void revoke(Claims claims) {
+        String jti = claims.getId();
+        Number userId = claims.get(JwtService.USER_ID_CLAIM, Number.class);
+        long expiresAt = claims.getExpiration().getTime();
+
+        // Primero en la tabla: si falla, el token no aparece revocado solo en esta instancia
+        repository.save(new RevokedToken(jti, userId.longValue(), toLocalDateTime(expiresAt), LocalDateTime.now()));
+        revoked.add(jti, expiresAt);
+    }
+
+    @Scheduled(fixedDelayString = "${security.revocation.sync-ms:5000}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+        LocalDateTime since = toLocalDateTime(lastSync - SYNC_OVERLAP_MILLIS);
+        for (RevokedToken token : repository.findActiveRevokedSince(since, toLocalDateTime(now))) {
+            revoked.add(token.getJti(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    @Transactional
+    public void purgeExpired() {
+        revoked.evictExpired();
+        repository.deleteExpired(LocalDateTime.now());
+    }
+
+    public RevokedTokenSet getRevokedTokens() {
+        return revoked;
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
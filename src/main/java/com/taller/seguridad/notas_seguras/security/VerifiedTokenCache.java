@@ -0,0 +1,103 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache acotado de tokens ya verificados.
+ * La clave es el SHA-256 del token (nunca se guarda el token en claro)
+ * y cada entrada caduca en el "exp" del propio token.
+ * Las caducadas se barren periódicamente ({@link JwtService}); si el cache está lleno, {@link #put}
+ * no lo recorre: no cachea y lanza un barrido en segundo plano (como mucho uno por segundo).
+ */
+public class VerifiedTokenCache {
+
+    private static final class Entry {
+        final Claims claims;
+        final long expiresAt; // epoch millis
+
+        Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final long SWEEP_PAUSE_MILLIS = 1000;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Devuelve los claims del token si ya fue verificado y aún no expira, o null.
+     */
+    public Claims get(String digest) {
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(digest, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims;
+    }
+
+    public void put(String digest, Claims claims) {
+        if (maxEntries <= 0 || claims.getExpiration() == null) return;
+
+        long expiresAt = claims.getExpiration().getTime();
+        if (expiresAt <= System.currentTimeMillis()) return;
+
+        if (entries.size() >= maxEntries) {
+            // No se cachea: el token se validará de forma normal hasta que el barrido haga sitio
+            sweepInBackground();
+            return;
+        }
+        entries.put(digest, new Entry(claims, expiresAt));
+    }
+
+    private void sweepInBackground() {
+        long now = System.currentTimeMillis();
+        long at = nextSweep.get();
+        if (now < at || !nextSweep.compareAndSet(at, now + SWEEP_PAUSE_MILLIS)) return;
+        Thread.ofVirtual().name("jwt-cache-sweep").start(this::evictExpired);
+    }
+
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt <= now);
+    }
+
+    public static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    // --- Contadores ---
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public int size() { return entries.size(); }
+}
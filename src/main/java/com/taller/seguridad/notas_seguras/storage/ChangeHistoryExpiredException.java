@@ -0,0 +1,18 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+/**
+ * Los cambios posteriores a la secuencia pedida ya no están en el historial (se purgaron o
+ * el almacenamiento se reinició): el cliente tiene que volver a listar sus notas.
+ */
+public class ChangeHistoryExpiredException extends RuntimeException {
+
+    private final long current;
+
+    public ChangeHistoryExpiredException(long since, long floor, long current) {
+        super("El historial de cambios empieza después de " + floor + " y se pidió desde " + since);
+        this.current = current;
+    }
+
+    // Secuencia actual del dueño: desde aquí puede seguir tras volver a listar
+    public long getCurrent() { return current; }
+}
@@ -0,0 +1,264 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+import com.taller.seguridad.notas_seguras.model.Note;
+import com.taller.seguridad.notas_seguras.model.NoteChangeEntry;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteChangeRepository;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteRepository;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Notas en la base de datos con JPA (almacenamiento por defecto).
+ * <p>
+ * Cada escritura agrega sus entradas al historial de cambios ({@code note_changes}) en la misma
+ * transacción. La secuencia es por dueño ({@code users.change_seq}) y se incrementa al final,
+ * después del flush de las notas: así el bloqueo de la fila del usuario es siempre el último que se
+ * toma (sin interbloqueos) y dos escrituras del mismo dueño se confirman en orden de secuencia.
+ * Las entradas más viejas que {@code notes.changes.retention} se purgan y el piso del historial
+ * ({@code users.change_floor}) sube hasta la última purgada.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaNoteStore implements NoteStore {
+
+    private final NoteRepository noteRepository;
+    private final UserRepository userRepository;
+    private final NoteContentStore contentStore;
+    private final NoteChangeRepository changeRepository;
+    private final Duration changeRetention;
+    private final TransactionTemplate writeTx;
+
+    public JpaNoteStore(NoteRepository noteRepository,
+                        UserRepository userRepository,
+                        NoteContentStore contentStore,
+                        NoteChangeRepository changeRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${notes.changes.retention:30d}") Duration changeRetention) {
+        this.noteRepository = noteRepository;
+        this.userRepository = userRepository;
+        this.contentStore = contentStore;
+        this.changeRepository = changeRepository;
+        this.changeRetention = changeRetention;
+        this.writeTx = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public NoteSummary create(Long ownerId, NoteDraft draft) {
+        // Referencia al dueño: solo la FK, sin consultar al usuario
+        Note note = new Note(draft.getTitle(), draft.getContent(), userRepository.getReferenceById(ownerId));
+        noteRepository.save(note);
+        record(ownerId, NoteChange.Type.CREATED, List.of(note.getId()));
+        return summary(note);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<NoteSummary> find(Long ownerId, Long noteId) {
+        return noteRepository.findSummaryByIdAndOwnerId(noteId, ownerId);
+    }
+
+    @Override
+    @Transactional
+    public Optional<NoteSummary> update(Long ownerId, Long noteId, NoteDraft draft, Long expectedVersion) {
+        Optional<Note> noteOpt = noteRepository.findByIdAndOwnerId(noteId, ownerId);
+        if (noteOpt.isEmpty()) return Optional.empty();
+
+        Note note = noteOpt.get();
+        if (expectedVersion != null && note.getVersion() != expectedVersion) {
+            throw new NoteVersionConflictException(noteId, expectedVersion, note.getVersion());
+        }
+        apply(note, draft);
+        // El UPDATE (con "where version = ?") se emite en el flush de record(): la versión ya es la nueva
+        record(ownerId, NoteChange.Type.UPDATED, List.of(noteId));
+        return Optional.of(summary(note));
+    }
+
+    // Un solo DELETE filtrado por dueño
+    @Override
+    @Transactional
+    public boolean delete(Long ownerId, Long noteId) {
+        if (noteRepository.deleteByIdAndOwnerId(noteId, ownerId) == 0) return false;
+        record(ownerId, NoteChange.Type.DELETED, List.of(noteId));
+        return true;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteMetadata> page(Long ownerId, long after, int limit) {
+        return noteRepository.findPageByOwner(ownerId, after, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteMetadata> metadata(Long ownerId, Collection<Long> noteIds) {
+        return noteRepository.findMetadataByOwnerIdAndIdIn(ownerId, noteIds);
+    }
+
+    @Override
+    public Stream<NoteSummary> stream(Long ownerId) {
+        return noteRepository.streamByOwner(ownerId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> ownerIds() {
+        return noteRepository.findOwnerIds();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Long> countByOwner(Collection<Long> ownerIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (ownerIds.isEmpty()) return counts;
+        for (Object[] row : noteRepository.countByOwnerIdIn(ownerIds)) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long count() {
+        return noteRepository.count();
+    }
+
+    // Primero las entradas y después el piso: si una purga se confirma entre las dos lecturas,
+    // el piso ya subió y se responde que el historial expiró en lugar de devolver una lista incompleta.
+    // Una sola transacción para que, con réplicas, las dos lecturas vayan a la misma
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteChange> changes(Long ownerId, long since, int limit) {
+        List<NoteChange> changes = changeRepository.findSince(ownerId, since, PageRequest.of(0, limit));
+        long floor = userRepository.findChangeFloor(ownerId).orElse(0L);
+        if (since < floor) throw new ChangeHistoryExpiredException(since, floor, changeSeq(ownerId));
+        return changes;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long changeSeq(Long ownerId) {
+        return userRepository.findChangeSeq(ownerId).orElse(0L);
+    }
+
+    @Scheduled(fixedDelayString = "${notes.changes.prune-interval-ms:3600000}")
+    @Transactional
+    public void pruneChanges() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(changeRetention);
+        userRepository.raiseChangeFloors(cutoff);
+        changeRepository.deleteOlderThan(cutoff);
+    }
+
+    // Inserts y updates por lotes JDBC en una sola transacción
+    @Override
+    @Transactional
+    public UpsertResult upsert(Long ownerId, List<NoteDraft> creates, Map<Long, NoteDraft> updates) {
+        // Las notas a actualizar se cargan con una sola consulta (solo las del usuario)
+        Set<Long> updatedIds = new HashSet<>();
+        if (!updates.isEmpty()) {
+            for (Note note : noteRepository.findByOwnerIdAndIdIn(ownerId, updates.keySet())) {
+                // Entidad gestionada: el UPDATE se emite en lote al hacer flush
+                apply(note, updates.get(note.getId()));
+                updatedIds.add(note.getId());
+            }
+        }
+
+        User owner = userRepository.getReferenceById(ownerId);
+        List<Note> toCreate = new ArrayList<>(creates.size());
+        for (NoteDraft draft : creates) {
+            toCreate.add(new Note(draft.getTitle(), draft.getContent(), owner));
+        }
+        noteRepository.saveAll(toCreate);
+
+        List<Long> createdIds = new ArrayList<>(toCreate.size());
+        for (Note note : toCreate) createdIds.add(note.getId());
+        record(ownerId, NoteChange.Type.UPDATED, updatedIds);
+        record(ownerId, NoteChange.Type.CREATED, createdIds);
+        return new UpsertResult(createdIds, updatedIds);
+    }
+
+    @Override
+    @Transactional
+    public Set<Long> deleteAll(Long ownerId, Collection<Long> noteIds) {
+        Set<Long> owned = new HashSet<>(noteRepository.findIdsByOwnerIdAndIdIn(ownerId, noteIds));
+        if (!owned.isEmpty()) {
+            noteRepository.deleteByOwnerIdAndIdIn(ownerId, owned);
+            record(ownerId, NoteChange.Type.DELETED, owned);
+        }
+        return owned;
+    }
+
+    // El cuerpo se recibe entero antes de abrir la transacción (ver NoteContentStore)
+    @Override
+    public NoteMetadata writeContent(Long ownerId, Long noteId, InputStream in) throws IOException {
+        if (noteRepository.findSummaryByIdAndOwnerId(noteId, ownerId).isEmpty()) return null;
+        try (NoteContentStore.Upload upload = contentStore.receive(in)) {
+            return writeTx.execute(status -> {
+                try {
+                    Note note = contentStore.write(ownerId, noteId, upload);
+                    if (note == null) return null;
+                    record(ownerId, NoteChange.Type.UPDATED, List.of(noteId));
+                    return new NoteMetadata(note.getId(), note.getTitle(), note.getContentLength(), note.getVersion());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void copyContent(Long ownerId, Long noteId, long version, long start, long end, OutputStream out) throws IOException {
+        contentStore.copy(ownerId, noteId, version, start, end, out);
+    }
+
+    // Dentro de la transacción de la escritura y después del flush de las notas (ver la clase)
+    private void record(Long ownerId, NoteChange.Type type, Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) return;
+        noteRepository.flush();
+        userRepository.advanceChangeSeq(ownerId, noteIds.size());
+        long seq = userRepository.findChangeSeq(ownerId).orElseThrow() - noteIds.size();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<NoteChangeEntry> entries = new ArrayList<>(noteIds.size());
+        for (Long noteId : noteIds) entries.add(new NoteChangeEntry(ownerId, ++seq, noteId, type, now));
+        changeRepository.saveAll(entries);
+    }
+
+    private void apply(Note note, NoteDraft draft) {
+        if (note.isChunked()) contentStore.deleteChunks(note.getId()); // el contenido vuelve a ser en línea
+        note.setTitle(draft.getTitle());
+        note.setContent(draft.getContent());
+    }
+
+    private static NoteSummary summary(Note note) {
+        return new NoteSummary(note.getId(), note.getTitle(), note.getContent(), note.getContentLength(), note.getVersion());
+    }
+}
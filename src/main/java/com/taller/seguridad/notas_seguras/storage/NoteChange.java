@@ -0,0 +1,24 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+/**
+ * Un cambio en las notas de un usuario. {@code seq} crece con cada cambio del mismo dueño,
+ * en el orden en que se confirmaron; un borrado queda como {@link Type#DELETED} (tombstone).
+ */
+public class NoteChange {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final long seq;
+    private final Long noteId;
+    private final Type type;
+
+    public NoteChange(long seq, Long noteId, Type type) {
+        this.seq = seq;
+        this.noteId = noteId;
+        this.type = type;
+    }
+
+    public long getSeq() { return seq; }
+    public Long getNoteId() { return noteId; }
+    public Type getType() { return type; }
+}
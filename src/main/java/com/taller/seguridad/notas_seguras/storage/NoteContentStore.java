@@ -0,0 +1,267 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+import com.taller.seguridad.notas_seguras.model.Note;
+import com.taller.seguridad.notas_seguras.model.NoteChunk;
+import com.taller.seguridad.notas_seguras.repository.NoteChunkRepository;
+import com.taller.seguridad.notas_seguras.repository.NoteRepository;
+import jakarta.persistence.EntityManager;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Contenido de las notas en streaming.
+ * <p>
+ * Las notas pequeñas (hasta {@link #INLINE_MAX_BYTES} bytes de texto UTF-8) se guardan en la
+ * columna {@code content} como siempre. Las grandes se parten en bloques {@link NoteChunk} que se
+ * escriben y se leen de uno en uno, así que ni la subida ni la descarga mantienen el contenido
+ * completo en memoria.
+ * <p>
+ * La subida se recibe antes de abrir la transacción ({@link #receive}): lo que no cabe en un bloque
+ * se copia a {@code notes.content.spool-dir}, así la fila de la nota no queda bloqueada mientras
+ * llega un cliente lento. La descarga lee todos sus bloques en una transacción de solo lectura.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.store", havingValue = "jpa", matchIfMissing = true)
+public class NoteContentStore {
+
+    /**
+     * Cuerpo de una subida ya recibido: en memoria si cabe en un bloque, si no en un archivo
+     * temporal que se borra al cerrarlo.
+     */
+    public static final class Upload implements Closeable {
+        private final byte[] bytes; // null si está en disco
+        private final Path file;
+
+        private Upload(byte[] bytes, Path file) {
+            this.bytes = bytes;
+            this.file = file;
+        }
+
+        InputStream open() throws IOException {
+            return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) Files.deleteIfExists(file);
+        }
+    }
+
+    // Cabe siempre en la columna en línea (500 caracteres)
+    public static final int INLINE_MAX_BYTES = 500;
+    private static final int FLUSH_EVERY = 8; // bloques entre cada flush: ~512 KB en memoria como máximo
+
+    private final NoteRepository noteRepository;
+    private final NoteChunkRepository chunkRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readTx;
+    private final long maxBytes;
+    private final Path spoolDir;
+
+    public NoteContentStore(NoteRepository noteRepository,
+                            NoteChunkRepository chunkRepository,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${notes.content.max-bytes:16777216}") long maxBytes,
+                            @Value("${notes.content.spool-dir:data/upload-spool}") String spoolDir) throws IOException {
+        this.noteRepository = noteRepository;
+        this.chunkRepository = chunkRepository;
+        this.entityManager = entityManager;
+        // Lectura repetible: todos los bloques son de la misma versión aunque otra subida confirme en medio
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+        this.readTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.maxBytes = maxBytes;
+        this.spoolDir = Path.of(spoolDir);
+
+        // Restos de subidas interrumpidas por un reinicio
+        Files.createDirectories(this.spoolDir);
+        try (Stream<Path> leftovers = Files.list(this.spoolDir)) {
+            for (Path p : (Iterable<Path>) leftovers::iterator) Files.deleteIfExists(p);
+        }
+    }
+
+    /**
+     * Lee el cuerpo de la subida completo, fuera de cualquier transacción. Hay que cerrarlo.
+     *
+     * @throws NoteContentTooLargeException si se superan {@code notes.content.max-bytes}
+     */
+    public Upload receive(InputStream in) throws IOException {
+        byte[] block = in.readNBytes(NoteChunk.CHUNK_SIZE);
+        if (block.length < NoteChunk.CHUNK_SIZE) return new Upload(block, null);
+
+        Path file = Files.createTempFile(spoolDir, "upload-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            long total = block.length;
+            out.write(block);
+            byte[] buffer = new byte[NoteChunk.CHUNK_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+                if (total > maxBytes) throw new NoteContentTooLargeException(maxBytes);
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new Upload(null, file);
+    }
+
+    /**
+     * Reemplaza el contenido de una nota propia con una subida ya recibida.
+     * Devuelve la nota actualizada, o null si no existe o es de otro usuario.
+     *
+     * @throws NoteContentTooLargeException si se superan {@code notes.content.max-bytes}
+     * @throws IllegalArgumentException     si el contenido está vacío
+     */
+    @Transactional
+    public Note write(Long ownerId, Long noteId, Upload upload) throws IOException {
+        Optional<Note> noteOpt = noteRepository.findByIdAndOwnerId(noteId, ownerId);
+        if (noteOpt.isEmpty()) return null;
+        Note note = noteOpt.get();
+
+        try (InputStream in = upload.open()) {
+            return replace(note, in);
+        }
+    }
+
+    private Note replace(Note note, InputStream in) throws IOException {
+        Long noteId = note.getId();
+        byte[] block = in.readNBytes(NoteChunk.CHUNK_SIZE);
+        String inline = block.length <= INLINE_MAX_BYTES ? decodeUtf8(block) : null;
+        if (inline != null && inline.isBlank()) {
+            throw new IllegalArgumentException("El contenido es obligatorio");
+        }
+
+        if (note.isChunked()) deleteChunks(noteId);
+
+        // Camino rápido: texto pequeño en la columna en línea
+        if (inline != null) {
+            note.setContent(inline);
+            return incrementVersion(note);
+        }
+
+        note.setContent(null);
+        List<NoteChunk> pending = new ArrayList<>(FLUSH_EVERY);
+        long total = 0;
+        int seq = 0;
+        while (block.length > 0) {
+            total += block.length;
+            if (total > maxBytes) throw new NoteContentTooLargeException(maxBytes);
+
+            NoteChunk chunk = new NoteChunk(note, seq++, block);
+            entityManager.persist(chunk);
+            pending.add(chunk);
+            note.setContentLength(total);
+
+            if (pending.size() == FLUSH_EVERY) {
+                // Se escriben los bloques (en lote JDBC) y se sueltan del contexto de persistencia
+                entityManager.flush();
+                pending.forEach(entityManager::detach);
+                pending.clear();
+            }
+            block = in.readNBytes(NoteChunk.CHUNK_SIZE);
+        }
+        return incrementVersion(note);
+    }
+
+    // Si la fila de la nota cambió (contenido en línea, longitud), el flush ya incrementa la versión
+    // con @Version. Si solo cambiaron los bloques, se incrementa con un UPDATE inmediato ("where
+    // version = ?", falla si otra escritura la cambió mientras tanto). Nunca las dos cosas: la
+    // versión sube de uno en uno y la nota devuelta ya tiene la nueva
+    private Note incrementVersion(Note note) {
+        long before = note.getVersion();
+        entityManager.flush();
+        if (note.getVersion() == before) entityManager.lock(note, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        return note;
+    }
+
+    /**
+     * Escribe en {@code out} los bytes {@code [start, end]} (inclusive) del contenido por bloques,
+     * leyendo solo los bloques que cubren el rango. {@code version} es la de la nota con la que se
+     * armaron las cabeceras de la respuesta (ETag y longitud).
+     *
+     * @throws IOException si la nota ya no está en esa versión o le falta un bloque; las cabeceras
+     *                     ya se enviaron, así que la respuesta se corta
+     */
+    public void copy(Long ownerId, Long noteId, long version, long start, long end, OutputStream out) throws IOException {
+        try {
+            readTx.executeWithoutResult(status -> {
+                try {
+                    copyChunks(ownerId, noteId, version, start, end, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void copyChunks(Long ownerId, Long noteId, long version, long start, long end, OutputStream out) throws IOException {
+        Optional<NoteSummary> note = noteRepository.findSummaryByIdAndOwnerId(noteId, ownerId);
+        if (note.isEmpty() || note.get().getVersion() != version || end >= note.get().getSize()) {
+            throw new IOException("El contenido de la nota " + noteId + " cambió durante la descarga");
+        }
+        int first = (int) (start / NoteChunk.CHUNK_SIZE);
+        int last = (int) (end / NoteChunk.CHUNK_SIZE);
+        for (int seq = first; seq <= last; seq++) {
+            Optional<NoteChunk> chunk = chunkRepository.findByNoteIdAndSeq(noteId, seq);
+            if (chunk.isEmpty()) {
+                throw new IOException("Falta el bloque " + seq + " de la nota " + noteId);
+            }
+            byte[] data = chunk.get().getData();
+            entityManager.detach(chunk.get()); // la memoria no crece con el número de bloques
+            long chunkStart = (long) seq * NoteChunk.CHUNK_SIZE;
+            int from = (int) Math.max(0, start - chunkStart);
+            int to = (int) Math.min(data.length, end - chunkStart + 1);
+            out.write(data, from, to - from);
+        }
+    }
+
+    /**
+     * Elimina los bloques de una nota (cuando su contenido vuelve a ser en línea).
+     */
+    @Transactional
+    public void deleteChunks(Long noteId) {
+        chunkRepository.deleteByNoteId(noteId);
+    }
+
+    // Texto UTF-8 válido o null (el contenido binario siempre se guarda por bloques)
+    private static String decodeUtf8(byte[] bytes) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+/**
+ * El contenido subido supera {@code notes.content.max-bytes}.
+ */
+public class NoteContentTooLargeException extends RuntimeException {
+
+    private final long maxBytes;
+
+    public NoteContentTooLargeException(long maxBytes) {
+        super("El contenido supera el máximo de " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
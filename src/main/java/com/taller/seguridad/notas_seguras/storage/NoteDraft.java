@@ -0,0 +1,17 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+/**
+ * Título y contenido (en línea) de una nota a crear o actualizar, ya validados.
+ */
+public class NoteDraft {
+    private final String title;
+    private final String content;
+
+    public NoteDraft(String title, String content) {
+        this.title = title;
+        this.content = content;
+    }
+
+    public String getTitle() { return title; }
+    public String getContent() { return content; }
+}
@@ -0,0 +1,121 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Almacenamiento de notas que usa {@code NoteController}. Todas las operaciones están
+ * restringidas al dueño: una nota ajena se trata igual que una inexistente.
+ * <p>
+ * Se elige con {@code notes.store}: {@code jpa} (por defecto, {@link JpaNoteStore}),
+ * {@code log} (segmentos de log en disco, {@code storage.log.LogNoteStore}) o {@code sharded}
+ * (varias bases de datos repartidas por dueño, {@code storage.shard.ShardedNoteStore}).
+ */
+public interface NoteStore {
+
+    NoteSummary create(Long ownerId, NoteDraft draft);
+
+    Optional<NoteSummary> find(Long ownerId, Long noteId);
+
+    /**
+     * Reemplaza título y contenido (en línea); si la nota tenía contenido grande se descarta.
+     * Con {@code expectedVersion} (no null) solo se actualiza si la nota sigue en esa versión.
+     *
+     * @throws org.springframework.dao.OptimisticLockingFailureException si la versión no coincide
+     *         ({@link NoteVersionConflictException}) o si otra escritura concurrente gana
+     */
+    Optional<NoteSummary> update(Long ownerId, Long noteId, NoteDraft draft, Long expectedVersion);
+
+    boolean delete(Long ownerId, Long noteId);
+
+    /**
+     * Página por cursor: notas con id mayor que {@code after}, en orden de id.
+     */
+    List<NoteMetadata> page(Long ownerId, long after, int limit);
+
+    List<NoteMetadata> metadata(Long ownerId, Collection<Long> noteIds);
+
+    /**
+     * Todas las notas del dueño en orden de id. El stream debe cerrarse; con JPA debe
+     * recorrerse dentro de una transacción (como hace {@code NdjsonExporter}).
+     */
+    Stream<NoteSummary> stream(Long ownerId);
+
+    List<Long> ownerIds();
+
+    /**
+     * Número de notas de cada dueño indicado, en una sola consulta agrupada. Los dueños sin
+     * notas no aparecen en el mapa.
+     */
+    Map<Long, Long> countByOwner(Collection<Long> ownerIds);
+
+    long count();
+
+    /**
+     * Cambios de las notas del dueño con secuencia mayor que {@code since}, en orden de secuencia
+     * (a lo sumo {@code limit}). Una nota puede aparecer varias veces y las borradas aparecen como
+     * {@link NoteChange.Type#DELETED}.
+     *
+     * @throws ChangeHistoryExpiredException si alguno de esos cambios ya no está en el historial
+     */
+    List<NoteChange> changes(Long ownerId, long since, int limit);
+
+    /**
+     * Secuencia del último cambio del dueño: un cliente que lista sus notas después de leerla
+     * puede seguir con {@link #changes} desde ese valor.
+     */
+    long changeSeq(Long ownerId);
+
+    /**
+     * Crea y actualiza varias notas de una vez (en JPA, en una sola transacción).
+     * Las actualizaciones de notas que no existen o son ajenas se ignoran.
+     */
+    UpsertResult upsert(Long ownerId, List<NoteDraft> creates, Map<Long, NoteDraft> updates);
+
+    /**
+     * Elimina las notas propias indicadas y devuelve los ids que realmente se eliminaron.
+     */
+    Set<Long> deleteAll(Long ownerId, Collection<Long> noteIds);
+
+    /**
+     * Reemplaza el contenido en streaming. Devuelve null si la nota no existe o es ajena.
+     *
+     * @throws NoteContentTooLargeException si se superan {@code notes.content.max-bytes}
+     * @throws IllegalArgumentException     si el contenido está vacío
+     */
+    NoteMetadata writeContent(Long ownerId, Long noteId, InputStream in) throws IOException;
+
+    /**
+     * Escribe los bytes {@code [start, end]} (inclusive) de un contenido grande
+     * (las notas cuyo {@link NoteSummary#getContent()} es null). El dueño solo elige dónde leer:
+     * la propiedad de la nota ya se comprobó al obtenerla.
+     *
+     * @throws IOException si la nota ya no está en {@code version}, la del ETag y la longitud de la
+     *                     respuesta: las cabeceras ya se enviaron y la respuesta se corta
+     */
+    void copyContent(Long ownerId, Long noteId, long version, long start, long end, OutputStream out) throws IOException;
+
+    // Ids creados (en el orden de la petición) y actualizados
+    class UpsertResult {
+        private final List<Long> createdIds;
+        private final Set<Long> updatedIds;
+
+        public UpsertResult(List<Long> createdIds, Set<Long> updatedIds) {
+            this.createdIds = createdIds;
+            this.updatedIds = updatedIds;
+        }
+
+        public List<Long> getCreatedIds() { return createdIds; }
+        public Set<Long> getUpdatedIds() { return updatedIds; }
+    }
+}
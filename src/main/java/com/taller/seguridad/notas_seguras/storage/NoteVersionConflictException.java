@@ -0,0 +1,15 @@
+package com.taller.seguridad.notas_seguras.storage;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * La nota cambió desde la versión que el cliente indicó (If-Match).
+ * Es un {@link OptimisticLockingFailureException}, como el que lanza JPA si otra
+ * transacción modifica la nota al mismo tiempo.
+ */
+public class NoteVersionConflictException extends OptimisticLockingFailureException {
+
+    public NoteVersionConflictException(Long noteId, long expected, long current) {
+        super("La nota " + noteId + " está en la versión " + current + ", no en la " + expected);
+    }
+}
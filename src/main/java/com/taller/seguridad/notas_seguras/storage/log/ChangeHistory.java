@@ -0,0 +1,80 @@
+package com.taller.seguridad.notas_seguras.storage.log;
+
+import com.taller.seguridad.notas_seguras.storage.ChangeHistoryExpiredException;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historial de cambios del log, en memoria: los últimos {@code perOwner} cambios de cada dueño.
+ * <p>
+ * No se persiste. Las secuencias de una ejecución empiezan en los milisegundos de arranque × 1000,
+ * por encima de cualquiera de la ejecución anterior, y ese valor es el piso del historial: un
+ * cliente con una secuencia de antes del reinicio recibe {@link ChangeHistoryExpiredException}.
+ */
+final class ChangeHistory {
+
+    private static final class Owner {
+        final ArrayDeque<NoteChange> entries = new ArrayDeque<>();
+        long floor;
+        long last;
+
+        Owner(long start) {
+            this.floor = start;
+            this.last = start;
+        }
+    }
+
+    private final int perOwner;
+    private final long start;
+    private final ConcurrentHashMap<Long, Owner> owners = new ConcurrentHashMap<>();
+    private long seq; // solo se incrementa con el writeLock del store
+
+    ChangeHistory(int perOwner) {
+        this.perOwner = perOwner;
+        this.start = System.currentTimeMillis() * 1000;
+        this.seq = start;
+    }
+
+    // Con el writeLock del store: las secuencias quedan en el mismo orden que los registros
+    void record(long ownerId, long noteId, NoteChange.Type type) {
+        Owner owner = owners.computeIfAbsent(ownerId, k -> new Owner(start));
+        synchronized (owner) {
+            owner.entries.addLast(new NoteChange(++seq, noteId, type));
+            owner.last = seq;
+            if (owner.entries.size() > perOwner) owner.floor = owner.entries.removeFirst().getSeq();
+        }
+    }
+
+    List<NoteChange> since(long ownerId, long since, int limit) {
+        Owner owner = owners.get(ownerId);
+        if (owner == null) {
+            if (since < start) throw new ChangeHistoryExpiredException(since, start, start);
+            return List.of();
+        }
+        synchronized (owner) {
+            if (since < owner.floor) throw new ChangeHistoryExpiredException(since, owner.floor, owner.last);
+            List<NoteChange> result = new ArrayList<>(Math.min(limit, owner.entries.size()));
+            // Los cambios nuevos están al final: se recorre desde ahí hasta alcanzar since
+            var it = owner.entries.descendingIterator();
+            while (it.hasNext()) {
+                NoteChange change = it.next();
+                if (change.getSeq() <= since) break;
+                result.add(change);
+            }
+            List<NoteChange> ordered = result.reversed();
+            return ordered.size() > limit ? new ArrayList<>(ordered.subList(0, limit)) : ordered;
+        }
+    }
+
+    long last(long ownerId) {
+        Owner owner = owners.get(ownerId);
+        if (owner == null) return start;
+        synchronized (owner) {
+            return owner.last;
+        }
+    }
+}
@@ -0,0 +1,631 @@
+package com.taller.seguridad.notas_seguras.storage.log;
+
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import com.taller.seguridad.notas_seguras.storage.NoteContentStore;
+import com.taller.seguridad.notas_seguras.storage.NoteContentTooLargeException;
+import com.taller.seguridad.notas_seguras.storage.NoteDraft;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import com.taller.seguridad.notas_seguras.storage.NoteVersionConflictException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Notas en un log estructurado en disco, sin base de datos ({@code notes.store=log}).
+ * <p>
+ * Cada escritura agrega un registro (PUT con la nota completa o DELETE) al segmento activo,
+ * un archivo preasignado y mapeado en memoria. En memoria solo se guarda, por nota, la posición
+ * de su último PUT; las lecturas leen el título y el contenido directamente del mapeo, sin
+ * bloqueos. Al arrancar se reproducen los segmentos para reconstruir ese índice: un registro a
+ * medias al final del último segmento (una caída durante la escritura) no tiene la marca o no
+ * pasa el CRC y se descarta. La compactación copia los registros vigentes de los segmentos
+ * sellados con mucha basura al segmento activo y borra el archivo viejo.
+ * <p>
+ * Los lotes ({@link #upsert}, {@link #deleteAll}) se escriben seguidos pero no son atómicos ante
+ * una caída: tras reiniciar puede quedar aplicado solo un prefijo del lote.
+ * <p>
+ * El historial de cambios ({@link #changes}) vive en memoria ({@link ChangeHistory}) y empieza
+ * de nuevo en cada arranque.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.store", havingValue = "log")
+public class LogNoteStore implements NoteStore, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(LogNoteStore.class);
+
+    // Títulos de hasta 100 caracteres (validados en el controlador): como mucho 4 bytes por carácter
+    private static final int MAX_TITLE_BYTES = 400;
+    // Los ids se reservan por bloques y el límite se persiste: un id nunca se reutiliza,
+    // aunque la compactación haya borrado todos los registros de la nota
+    private static final int ID_BLOCK = 1000;
+    private static final String IDS_FILE = "ids";
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final Path dir;
+    private final Path spoolDir;
+    private final int segmentBytes;
+    private final long maxContentBytes;
+    private final boolean syncWrites;
+    private final double compactionThreshold;
+
+    // Un solo escritor: agrega registros y actualiza el índice. Las lecturas no lo toman.
+    // ReentrantLock y no synchronized: no fija el hilo portador con hilos virtuales
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment active;
+    private long nextId = 1;
+    private long idLimit;
+
+    private final ConcurrentHashMap<Long, RecordLocation> notes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ConcurrentSkipListSet<Long>> byOwner = new ConcurrentHashMap<>();
+
+    private final ChangeHistory changes;
+
+    private final LongAdder compactions = new LongAdder();
+    private final LongAdder reclaimedBytes = new LongAdder();
+
+    public LogNoteStore(@Value("${notes.store.log.dir:data/notes-log}") String dir,
+                        @Value("${notes.store.log.segment-bytes:67108864}") int segmentBytes,
+                        @Value("${notes.content.max-bytes:16777216}") long maxContentBytes,
+                        @Value("${notes.store.log.sync-writes:false}") boolean syncWrites,
+                        @Value("${notes.store.log.compaction-threshold:0.5}") double compactionThreshold,
+                        @Value("${notes.store.log.changes-per-owner:256}") int changesPerOwner) throws IOException {
+        if (Records.size(MAX_TITLE_BYTES, maxContentBytes) > segmentBytes) {
+            throw new IllegalStateException("notes.store.log.segment-bytes (" + segmentBytes
+                    + ") debe admitir un registro con notes.content.max-bytes (" + maxContentBytes + ")");
+        }
+        this.dir = Path.of(dir);
+        this.spoolDir = this.dir.resolve("tmp");
+        this.segmentBytes = segmentBytes;
+        this.maxContentBytes = maxContentBytes;
+        this.syncWrites = syncWrites;
+        this.compactionThreshold = compactionThreshold;
+        this.changes = new ChangeHistory(changesPerOwner);
+
+        Files.createDirectories(spoolDir);
+        try (Stream<Path> leftovers = Files.list(spoolDir)) {
+            for (Path p : (Iterable<Path>) leftovers::iterator) Files.deleteIfExists(p);
+        }
+        recover();
+    }
+
+    // --- Recuperación ---
+
+    private void recover() throws IOException {
+        long start = System.currentTimeMillis();
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(Segment::isSegment).sorted().toList();
+        }
+
+        long maxId = 0;
+        for (int i = 0; i < files.size(); i++) {
+            boolean last = i == files.size() - 1;
+            Segment segment = last ? Segment.openActive(files.get(i), segmentBytes) : Segment.openSealed(files.get(i));
+            segments.put(segment.id, segment);
+            maxId = Math.max(maxId, replay(segment));
+        }
+        active = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+
+        Path ids = dir.resolve(IDS_FILE);
+        long reserved = Files.exists(ids) ? Long.parseLong(Files.readString(ids).trim()) : 1;
+        nextId = Math.max(maxId + 1, reserved);
+        idLimit = nextId; // la primera creación reserva un bloque nuevo
+
+        log.info("Log de notas: {} segmentos, {} notas, recuperado en {} ms",
+                segments.size(), notes.size(), System.currentTimeMillis() - start);
+    }
+
+    // Aplica los registros del segmento al índice y devuelve el mayor id visto
+    private long replay(Segment segment) {
+        long[] maxId = {0};
+        segment.limit = Records.scan(segment.buffer, 0, segment.limit, (offset, length, type, flags, noteId, ownerId, version, titleLength, contentLength) -> {
+            if (type == Records.PUT) {
+                indexPut(new RecordLocation(segment, offset, length, noteId, ownerId, version,
+                        (flags & Records.FLAG_INLINE) != 0, titleLength, contentLength));
+            } else {
+                indexRemove(noteId);
+            }
+            maxId[0] = Math.max(maxId[0], noteId);
+        });
+        return maxId[0];
+    }
+
+    // --- NoteStore ---
+
+    @Override
+    public NoteSummary create(Long ownerId, NoteDraft draft) {
+        byte[] content = utf8(draft.getContent());
+        long id;
+        writeLock.lock();
+        try {
+            id = allocateId();
+            indexPut(append(Records.PUT, true, id, ownerId, 0, utf8(draft.getTitle()), ByteBuffer.wrap(content)));
+            changes.record(ownerId, id, NoteChange.Type.CREATED);
+        } finally {
+            writeLock.unlock();
+        }
+        return new NoteSummary(id, draft.getTitle(), draft.getContent(), content.length, 0);
+    }
+
+    @Override
+    public Optional<NoteSummary> find(Long ownerId, Long noteId) {
+        return Optional.ofNullable(owned(ownerId, noteId)).map(LogNoteStore::summary);
+    }
+
+    @Override
+    public Optional<NoteSummary> update(Long ownerId, Long noteId, NoteDraft draft, Long expectedVersion) {
+        byte[] content = utf8(draft.getContent());
+        RecordLocation location;
+        writeLock.lock();
+        try {
+            location = replace(ownerId, noteId, draft, content, expectedVersion);
+        } finally {
+            writeLock.unlock();
+        }
+        return location == null ? Optional.empty()
+                : Optional.of(new NoteSummary(noteId, draft.getTitle(), draft.getContent(), content.length, location.version));
+    }
+
+    @Override
+    public boolean delete(Long ownerId, Long noteId) {
+        writeLock.lock();
+        try {
+            return remove(ownerId, noteId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<NoteMetadata> page(Long ownerId, long after, int limit) {
+        ConcurrentSkipListSet<Long> ids = byOwner.get(ownerId);
+        if (ids == null) return Collections.emptyList();
+
+        List<NoteMetadata> page = new ArrayList<>(Math.min(limit, 64));
+        for (Long id : ids.tailSet(after, false)) {
+            if (page.size() == limit) break;
+            RecordLocation location = notes.get(id);
+            if (location != null) page.add(metadata(location));
+        }
+        return page;
+    }
+
+    @Override
+    public List<NoteMetadata> metadata(Long ownerId, Collection<Long> noteIds) {
+        List<NoteMetadata> result = new ArrayList<>(noteIds.size());
+        for (Long id : noteIds) {
+            RecordLocation location = owned(ownerId, id);
+            if (location != null) result.add(metadata(location));
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<NoteSummary> stream(Long ownerId) {
+        ConcurrentSkipListSet<Long> ids = byOwner.get(ownerId);
+        if (ids == null) return Stream.empty();
+        return ids.stream()
+                .map(id -> owned(ownerId, id))
+                .filter(Objects::nonNull)
+                .map(LogNoteStore::summary);
+    }
+
+    @Override
+    public List<Long> ownerIds() {
+        List<Long> ids = new ArrayList<>();
+        byOwner.forEach((ownerId, notes) -> {
+            if (!notes.isEmpty()) ids.add(ownerId);
+        });
+        return ids;
+    }
+
+    @Override
+    public Map<Long, Long> countByOwner(Collection<Long> ownerIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Long ownerId : ownerIds) {
+            ConcurrentSkipListSet<Long> ids = byOwner.get(ownerId);
+            if (ids != null && !ids.isEmpty()) counts.put(ownerId, (long) ids.size());
+        }
+        return counts;
+    }
+
+    @Override
+    public long count() {
+        return notes.size();
+    }
+
+    @Override
+    public List<NoteChange> changes(Long ownerId, long since, int limit) {
+        return changes.since(ownerId, since, limit);
+    }
+
+    @Override
+    public long changeSeq(Long ownerId) {
+        return changes.last(ownerId);
+    }
+
+    @Override
+    public UpsertResult upsert(Long ownerId, List<NoteDraft> creates, Map<Long, NoteDraft> updates) {
+        Set<Long> updatedIds = new LinkedHashSet<>();
+        List<Long> createdIds = new ArrayList<>(creates.size());
+        writeLock.lock();
+        try {
+            for (Map.Entry<Long, NoteDraft> e : updates.entrySet()) {
+                if (replace(ownerId, e.getKey(), e.getValue(), utf8(e.getValue().getContent()), null) != null) {
+                    updatedIds.add(e.getKey());
+                }
+            }
+            for (NoteDraft draft : creates) {
+                long id = allocateId();
+                indexPut(append(Records.PUT, true, id, ownerId, 0, utf8(draft.getTitle()), ByteBuffer.wrap(utf8(draft.getContent()))));
+                changes.record(ownerId, id, NoteChange.Type.CREATED);
+                createdIds.add(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return new UpsertResult(createdIds, updatedIds);
+    }
+
+    @Override
+    public Set<Long> deleteAll(Long ownerId, Collection<Long> noteIds) {
+        Set<Long> deleted = new LinkedHashSet<>();
+        writeLock.lock();
+        try {
+            for (Long id : noteIds) {
+                if (remove(ownerId, id)) deleted.add(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return deleted;
+    }
+
+    /**
+     * El contenido grande se copia primero a un archivo temporal (sin bloquear a los demás
+     * escritores mientras llega la subida) y luego se agrega como un solo registro.
+     */
+    @Override
+    public NoteMetadata writeContent(Long ownerId, Long noteId, InputStream in) throws IOException {
+        if (owned(ownerId, noteId) == null) return null;
+
+        byte[] block = in.readNBytes(NoteContentStore.INLINE_MAX_BYTES + 1);
+        if (block.length <= NoteContentStore.INLINE_MAX_BYTES) {
+            String text = decodeUtf8(block);
+            if (block.length == 0 || (text != null && text.isBlank())) {
+                throw new IllegalArgumentException("El contenido no puede estar vacío");
+            }
+            return appendContent(ownerId, noteId, text != null, ByteBuffer.wrap(block));
+        }
+
+        Path spool = Files.createTempFile(spoolDir, "upload-", ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(spool, StandardOpenOption.WRITE)) {
+                long total = block.length;
+                out.write(ByteBuffer.wrap(block));
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    total += n;
+                    if (total > maxContentBytes) throw new NoteContentTooLargeException(maxContentBytes);
+                    out.write(ByteBuffer.wrap(buffer, 0, n));
+                }
+            }
+            try (FileChannel spooled = FileChannel.open(spool, StandardOpenOption.READ)) {
+                return appendContent(ownerId, noteId, false, spooled.map(FileChannel.MapMode.READ_ONLY, 0, spooled.size()));
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    // Lectura sin copia intermedia: se escribe directamente el rango del segmento mapeado. El registro
+    // debe ser el de la versión del ETag; uno posterior (otra subida) tiene otro contenido
+    @Override
+    public void copyContent(Long ownerId, Long noteId, long version, long start, long end, OutputStream out) throws IOException {
+        RecordLocation location = notes.get(noteId);
+        if (location == null || location.version != version || end >= location.contentLength) {
+            throw new IOException("El contenido de la nota " + noteId + " cambió durante la descarga");
+        }
+        ByteBuffer range = location.segment.buffer.slice(location.contentOffset() + (int) start, (int) (end - start + 1));
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (range.hasRemaining()) channel.write(range);
+    }
+
+    // --- Escritura (con writeLock) ---
+
+    private NoteMetadata appendContent(Long ownerId, Long noteId, boolean inline, ByteBuffer content) {
+        writeLock.lock();
+        try {
+            RecordLocation current = owned(ownerId, noteId);
+            if (current == null) return null; // eliminada mientras se subía
+            byte[] title = bytes(current.segment.buffer, current.titleOffset(), current.titleLength);
+            RecordLocation location = append(Records.PUT, inline, noteId, ownerId, current.version + 1, title, content);
+            indexPut(location);
+            changes.record(ownerId, noteId, NoteChange.Type.UPDATED);
+            return metadata(location);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private RecordLocation replace(Long ownerId, Long noteId, NoteDraft draft, byte[] content, Long expectedVersion) {
+        RecordLocation current = owned(ownerId, noteId);
+        if (current == null) return null;
+        if (expectedVersion != null && current.version != expectedVersion) {
+            throw new NoteVersionConflictException(noteId, expectedVersion, current.version);
+        }
+        RecordLocation location = append(Records.PUT, true, noteId, ownerId, current.version + 1,
+                utf8(draft.getTitle()), ByteBuffer.wrap(content));
+        indexPut(location);
+        changes.record(ownerId, noteId, NoteChange.Type.UPDATED);
+        return location;
+    }
+
+    private boolean remove(Long ownerId, Long noteId) {
+        RecordLocation current = owned(ownerId, noteId);
+        if (current == null) return false;
+        append(Records.DELETE, false, noteId, ownerId, current.version + 1, NO_BYTES, null);
+        indexRemove(noteId);
+        changes.record(ownerId, noteId, NoteChange.Type.DELETED);
+        return true;
+    }
+
+    private RecordLocation append(byte type, boolean inline, long noteId, long ownerId, long version,
+                                  byte[] title, ByteBuffer content) {
+        int contentLength = content == null ? 0 : content.remaining();
+        int bodyLength = Records.FIXED_BODY + title.length + contentLength;
+        int length = Records.HEADER + bodyLength + Records.TRAILER;
+
+        Segment segment = active;
+        if (segment.capacity - segment.limit < length) segment = roll();
+
+        int pos = segment.limit;
+        int body = pos + Records.HEADER;
+        ByteBuffer buffer = segment.buffer;
+        buffer.put(body, type);
+        buffer.put(body + 1, inline ? Records.FLAG_INLINE : 0);
+        buffer.putLong(body + 2, noteId);
+        buffer.putLong(body + 10, ownerId);
+        buffer.putLong(body + 18, version);
+        buffer.putInt(body + 26, title.length);
+        buffer.putInt(body + 30, contentLength);
+        buffer.put(body + Records.FIXED_BODY, title);
+        if (content != null) {
+            buffer.put(body + Records.FIXED_BODY + title.length, content, content.position(), contentLength);
+        }
+        buffer.putInt(body + bodyLength, Records.crc(buffer, body, bodyLength));
+        publish(segment, pos, bodyLength);
+
+        return new RecordLocation(segment, pos, length, noteId, ownerId, version, inline, title.length, contentLength);
+    }
+
+    // Copia tal cual un registro de otro segmento (compactación); el CRC sigue siendo válido.
+    // Devuelve la posición de la copia en el segmento activo
+    private int appendCopy(Segment source, int offset, int length) {
+        Segment segment = active;
+        if (segment.capacity - segment.limit < length) segment = roll();
+
+        int pos = segment.limit;
+        segment.buffer.put(pos + 4, source.buffer, offset + 4, length - 4);
+        publish(segment, pos, length - Records.HEADER - Records.TRAILER);
+        return pos;
+    }
+
+    // La marca se escribe al final: hasta ese momento el registro no existe para la recuperación
+    private void publish(Segment segment, int pos, int bodyLength) {
+        int length = Records.HEADER + bodyLength + Records.TRAILER;
+        segment.buffer.putInt(pos + 4, bodyLength);
+        segment.buffer.putInt(pos, Records.MAGIC);
+        if (syncWrites) segment.buffer.force(pos, length);
+        segment.limit = pos + length;
+    }
+
+    private Segment roll() {
+        try {
+            Segment previous = active;
+            Segment next = Segment.create(dir, previous == null ? 1 : previous.id + 1, segmentBytes);
+            if (previous != null) previous.force();
+            segments.put(next.id, next);
+            active = next;
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear un segmento nuevo", e);
+        }
+    }
+
+    private long allocateId() {
+        if (nextId >= idLimit) {
+            idLimit = nextId + ID_BLOCK;
+            try {
+                Path tmp = dir.resolve(IDS_FILE + ".tmp");
+                Files.writeString(tmp, Long.toString(idLimit));
+                Files.move(tmp, dir.resolve(IDS_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo reservar un bloque de ids", e);
+            }
+        }
+        return nextId++;
+    }
+
+    private void indexPut(RecordLocation location) {
+        RecordLocation previous = notes.put(location.noteId, location);
+        if (previous != null) previous.segment.liveBytes.addAndGet(-previous.length);
+        location.segment.liveBytes.addAndGet(location.length);
+        byOwner.computeIfAbsent(location.ownerId, k -> new ConcurrentSkipListSet<>()).add(location.noteId);
+    }
+
+    private void indexRemove(long noteId) {
+        RecordLocation previous = notes.remove(noteId);
+        if (previous == null) return;
+        previous.segment.liveBytes.addAndGet(-previous.length);
+        ConcurrentSkipListSet<Long> ids = byOwner.get(previous.ownerId);
+        if (ids != null) ids.remove(noteId);
+    }
+
+    // --- Compactación ---
+
+    /**
+     * Reescribe los segmentos sellados cuya fracción de basura supera
+     * {@code notes.store.log.compaction-threshold}. Los DELETE se conservan mientras exista un
+     * segmento más antiguo que pueda tener un PUT de la misma nota.
+     */
+    @Scheduled(fixedDelayString = "${notes.store.log.compaction-interval-ms:60000}")
+    public void compact() {
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment != active && segment.garbageRatio() >= compactionThreshold) {
+                try {
+                    compact(segment);
+                } catch (IOException e) {
+                    log.warn("No se pudo compactar el segmento {}", segment.path, e);
+                }
+            }
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        boolean oldest = segments.firstKey() == segment.id;
+        long[] copied = {0};
+        Records.scan(segment.buffer, 0, segment.limit, (offset, length, type, flags, noteId, ownerId, version, titleLength, contentLength) -> {
+            // Bloqueo por registro: las escrituras normales se intercalan con la compactación
+            writeLock.lock();
+            try {
+                if (type == Records.PUT) {
+                    RecordLocation location = notes.get(noteId);
+                    if (location == null || location.segment != segment || location.offset != offset) return;
+                    int pos = appendCopy(segment, offset, length);
+                    indexPut(new RecordLocation(active, pos, length, noteId, ownerId, version, location.inline, titleLength, contentLength));
+                } else if (!oldest) {
+                    appendCopy(segment, offset, length);
+                } else {
+                    return;
+                }
+                copied[0] += length;
+            } finally {
+                writeLock.unlock();
+            }
+        });
+
+        writeLock.lock();
+        try {
+            // Las copias deben estar en disco antes de borrar el original
+            active.force();
+            segments.remove(segment.id);
+        } finally {
+            writeLock.unlock();
+        }
+        segment.closeAndDelete();
+        compactions.increment();
+        reclaimedBytes.add(segment.limit - copied[0]);
+        log.debug("Segmento {} compactado: {} bytes copiados de {}", segment.id, copied[0], segment.limit);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            for (Segment segment : segments.values()) segment.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // --- Lectura ---
+
+    private RecordLocation owned(Long ownerId, Long noteId) {
+        RecordLocation location = notes.get(noteId);
+        return location != null && location.ownerId == ownerId ? location : null;
+    }
+
+    private static NoteSummary summary(RecordLocation location) {
+        ByteBuffer buffer = location.segment.buffer;
+        String content = location.inline
+                ? new String(bytes(buffer, location.contentOffset(), location.contentLength), StandardCharsets.UTF_8)
+                : null;
+        return new NoteSummary(location.noteId, title(location), content, location.contentLength, location.version);
+    }
+
+    private static NoteMetadata metadata(RecordLocation location) {
+        return new NoteMetadata(location.noteId, title(location), location.contentLength, location.version);
+    }
+
+    private static String title(RecordLocation location) {
+        return new String(bytes(location.segment.buffer, location.titleOffset(), location.titleLength), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decodeUtf8(byte[] bytes) {
+        try {
+            CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    // --- Métricas ---
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notes.store.log.segments", segments, Map::size).register(registry);
+        Gauge.builder("notes.store.log.notes", notes, Map::size).register(registry);
+        Gauge.builder("notes.store.log.bytes", this, s -> s.segments.values().stream().mapToLong(seg -> seg.limit).sum())
+                .tag("state", "total").baseUnit("bytes").register(registry);
+        Gauge.builder("notes.store.log.bytes", this, s -> s.segments.values().stream().mapToLong(seg -> seg.liveBytes.get()).sum())
+                .tag("state", "live").baseUnit("bytes").register(registry);
+        FunctionCounter.builder("notes.store.log.compactions", compactions, LongAdder::sum).register(registry);
+        FunctionCounter.builder("notes.store.log.reclaimed", reclaimedBytes, LongAdder::sum).baseUnit("bytes").register(registry);
+    }
+}
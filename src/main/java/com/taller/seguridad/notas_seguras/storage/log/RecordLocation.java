@@ -0,0 +1,38 @@
+package com.taller.seguridad.notas_seguras.storage.log;
+
+/**
+ * Posición del último PUT de una nota: lo único que el índice en memoria guarda por nota.
+ */
+final class RecordLocation {
+
+    final Segment segment;
+    final int offset;
+    final int length;
+    final long noteId;
+    final long ownerId;
+    final long version;
+    final boolean inline;
+    final int titleLength;
+    final int contentLength;
+
+    RecordLocation(Segment segment, int offset, int length, long noteId, long ownerId, long version,
+                   boolean inline, int titleLength, int contentLength) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+        this.noteId = noteId;
+        this.ownerId = ownerId;
+        this.version = version;
+        this.inline = inline;
+        this.titleLength = titleLength;
+        this.contentLength = contentLength;
+    }
+
+    int titleOffset() {
+        return offset + Records.HEADER + Records.FIXED_BODY;
+    }
+
+    int contentOffset() {
+        return titleOffset() + titleLength;
+    }
+}
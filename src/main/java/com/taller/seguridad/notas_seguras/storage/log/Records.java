@@ -0,0 +1,80 @@
+package com.taller.seguridad.notas_seguras.storage.log;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Formato de los registros del log (big-endian):
+ * <pre>
+ * int   magic           se escribe al final: un registro a medias nunca la tiene
+ * int   longitud del cuerpo
+ * --- cuerpo ---
+ * byte  tipo            PUT o DELETE
+ * byte  flags           FLAG_INLINE si el contenido es texto en línea
+ * long  id de la nota
+ * long  id del dueño
+ * long  versión de la nota (se incrementa en cada PUT)
+ * int   bytes del título
+ * int   bytes del contenido
+ * ...   título (UTF-8) y contenido
+ * --- fin del cuerpo ---
+ * int   CRC32 del cuerpo
+ * </pre>
+ */
+final class Records {
+
+    static final int MAGIC = 0x4E4F5445; // "NOTE"
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte FLAG_INLINE = 1;
+
+    static final int HEADER = 8;
+    static final int FIXED_BODY = 34;
+    static final int TRAILER = 4;
+
+    private Records() {}
+
+    interface Visitor {
+        void record(int offset, int length, byte type, byte flags, long noteId, long ownerId, long version,
+                    int titleLength, int contentLength);
+    }
+
+    static long size(long titleLength, long contentLength) {
+        return HEADER + FIXED_BODY + titleLength + contentLength + TRAILER;
+    }
+
+    static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Recorre los registros válidos desde {@code from} y devuelve la posición del primero que falta,
+     * está incompleto o no pasa el CRC (el final del log en este segmento).
+     */
+    static int scan(ByteBuffer buffer, int from, int end, Visitor visitor) {
+        int pos = from;
+        while (pos + size(0, 0) <= end) {
+            if (buffer.getInt(pos) != MAGIC) break;
+
+            int bodyLength = buffer.getInt(pos + 4);
+            if (bodyLength < FIXED_BODY || pos + HEADER + (long) bodyLength + TRAILER > end) break;
+
+            int body = pos + HEADER;
+            if (crc(buffer, body, bodyLength) != buffer.getInt(body + bodyLength)) break;
+
+            int titleLength = buffer.getInt(body + 26);
+            int contentLength = buffer.getInt(body + 30);
+            if (titleLength < 0 || contentLength < 0 || FIXED_BODY + (long) titleLength + contentLength != bodyLength) break;
+
+            int length = HEADER + bodyLength + TRAILER;
+            if (visitor != null) {
+                visitor.record(pos, length, buffer.get(body), buffer.get(body + 1),
+                        buffer.getLong(body + 2), buffer.getLong(body + 10), buffer.getLong(body + 18), titleLength, contentLength);
+            }
+            pos += length;
+        }
+        return pos;
+    }
+}
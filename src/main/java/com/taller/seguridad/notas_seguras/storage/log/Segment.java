@@ -0,0 +1,98 @@
+package com.taller.seguridad.notas_seguras.storage.log;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Archivo de segmento mapeado en memoria. Solo el segmento activo (el último) se escribe;
+ * los anteriores están sellados y se mapean en solo lectura.
+ */
+final class Segment {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    final long id;
+    final Path path;
+    final int capacity;
+    final MappedByteBuffer buffer;
+    private final FileChannel channel;
+
+    // Fin de los datos válidos (en el activo, la posición de escritura). Solo lo modifica el escritor
+    volatile int limit;
+    // Bytes de registros PUT que siguen vigentes; el resto se recupera al compactar
+    final AtomicLong liveBytes = new AtomicLong();
+
+    private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity, int limit) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.limit = limit;
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    static long idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    static Segment create(Path dir, long id, int capacity) throws IOException {
+        Path path = dir.resolve(String.format("%s%010d%s", PREFIX, id, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapear más allá del final extiende el archivo (disperso: no ocupa disco hasta escribirse)
+        return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), capacity, 0);
+    }
+
+    static Segment openSealed(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        int size = (int) channel.size();
+        return new Segment(idOf(path), path, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size, size);
+    }
+
+    /**
+     * Reabre el último segmento para seguir escribiendo. Lo que haya después del último registro
+     * válido (un registro a medias tras una caída) se trunca antes de mapearlo, así que el resto
+     * del segmento vuelve a leerse como ceros.
+     */
+    static Segment openActive(Path path, int capacity) throws IOException {
+        int end;
+        try (FileChannel scan = FileChannel.open(path, StandardOpenOption.READ)) {
+            end = Records.scan(scan.map(FileChannel.MapMode.READ_ONLY, 0, scan.size()), 0, (int) scan.size(), null);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.truncate(end);
+        int size = Math.max(capacity, end);
+        return new Segment(idOf(path), path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size, end);
+    }
+
+    double garbageRatio() {
+        return limit == 0 ? 1.0 : 1.0 - (double) liveBytes.get() / limit;
+    }
+
+    void force() {
+        if (!buffer.isReadOnly()) buffer.force();
+    }
+
+    // El mapeo sigue siendo válido para lectores en curso hasta que el GC lo libere
+    void closeAndDelete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,12 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+/**
+ * El shard ya no tiene el bucket, o lo movió a otro: el catálogo local está atrasado.
+ * {@link ShardedNoteStore} relee el catálogo y repite la lectura en el shard nuevo.
+ */
+class BucketMovedException extends RuntimeException {
+
+    BucketMovedException(int bucket, int shard) {
+        super("El shard " + shard + " ya no tiene el bucket " + bucket, null, false, false);
+    }
+}
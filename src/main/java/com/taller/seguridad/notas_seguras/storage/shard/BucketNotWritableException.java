@@ -0,0 +1,12 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+/**
+ * El shard no acepta escrituras del bucket: lo está moviendo {@link ShardRebalancer} o ya no es
+ * suyo. {@link ShardedNoteStore} relee el catálogo y reintenta.
+ */
+class BucketNotWritableException extends RuntimeException {
+
+    BucketNotWritableException(int bucket, int shard) {
+        super("El shard " + shard + " no acepta escrituras del bucket " + bucket, null, false, false);
+    }
+}
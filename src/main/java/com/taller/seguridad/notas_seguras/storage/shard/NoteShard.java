@@ -0,0 +1,647 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+import com.taller.seguridad.notas_seguras.model.NoteChunk;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.storage.ChangeHistoryExpiredException;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import com.taller.seguridad.notas_seguras.storage.NoteContentStore;
+import com.taller.seguridad.notas_seguras.storage.NoteContentTooLargeException;
+import com.taller.seguridad.notas_seguras.storage.NoteDraft;
+import com.taller.seguridad.notas_seguras.storage.NoteVersionConflictException;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Una base de datos del almacenamiento particionado, con JDBC directo.
+ * <p>
+ * Guarda las notas, sus bloques de contenido, el historial de cambios y la secuencia de cambios
+ * de los dueños de los buckets que le asigna el catálogo. Las tablas llevan el prefijo
+ * {@code shard_}, así un shard puede ser también la base principal.
+ * <p>
+ * Cada escritura empieza bloqueando la fila de su bucket en {@code shard_buckets} y comprobando
+ * que no esté congelada. Ese bloqueo ordena las escrituras de un mismo bucket (y la creación de
+ * la fila de secuencia de un dueño nuevo). También sirve de barrera para mover el bucket:
+ * congelarlo espera a que terminen las escrituras en curso, y a partir de ahí ninguna otra se
+ * confirma en este shard ({@link BucketNotWritableException}). Cuando el catálogo ya apunta a otro
+ * shard, el bucket queda marcado como movido hasta que se borra. Las lecturas comprueban en la misma
+ * consulta que el bucket siga aquí y sin mover ({@link BucketMovedException}), así una instancia con
+ * el catálogo sin refrescar va al shard nuevo sin una consulta más por lectura.
+ */
+class NoteShard implements AutoCloseable {
+
+    static final int BATCH_SIZE = 500;
+
+    private static final RowMapper<NoteMetadata> METADATA = (rs, i) ->
+            new NoteMetadata(rs.getLong("id"), rs.getString("title"), rs.getLong("content_length"), rs.getLong("version"));
+    private static final RowMapper<NoteSummary> SUMMARY = (rs, i) ->
+            new NoteSummary(rs.getLong("id"), rs.getString("title"), rs.getString("content"),
+                    rs.getLong("content_length"), rs.getLong("version"));
+
+    // Lo necesario para decidir qué hacer con los bloques al editar
+    private record NoteState(long id, boolean chunked, long version) {}
+
+    private static final RowMapper<NoteState> STATE = (rs, i) ->
+            new NoteState(rs.getLong("id"), rs.getString("content") == null && rs.getLong("content_length") > 0,
+                    rs.getLong("version"));
+
+    private final int index;
+    private final HikariDataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate streaming; // cursor de tamaño acotado para stream()
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readTx;
+    private final long maxContentBytes;
+
+    NoteShard(int index, HikariDataSource dataSource, long maxContentBytes) {
+        this.index = index;
+        this.dataSource = dataSource;
+        this.jdbc = new NamedParameterJdbcTemplate(dataSource);
+        JdbcTemplate cursor = new JdbcTemplate(dataSource);
+        cursor.setFetchSize(500);
+        this.streaming = new NamedParameterJdbcTemplate(cursor);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.tx = new TransactionTemplate(transactionManager);
+        // Lectura repetible: los bloques de una descarga son todos de la versión comprobada al empezar
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setReadOnly(true);
+        this.readTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.maxContentBytes = maxContentBytes;
+    }
+
+    int index() {
+        return index;
+    }
+
+    String name() {
+        return dataSource.getPoolName();
+    }
+
+    // --- Esquema ---
+
+    void createSchema() {
+        String binary;
+        try (Connection connection = dataSource.getConnection()) {
+            binary = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL")
+                    ? "bytea" : "varbinary(" + NoteChunk.CHUNK_SIZE + ")";
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo conectar con " + name(), e);
+        }
+        JdbcTemplate ddl = jdbc.getJdbcTemplate();
+        ddl.execute("create table if not exists shard_buckets (bucket integer primary key, frozen boolean not null, "
+                + "moved boolean default false not null)");
+        ddl.execute("create table if not exists shard_notes (id bigint primary key, owner_id bigint not null, "
+                + "bucket integer not null, title varchar(100) not null, content varchar(500), "
+                + "content_length bigint not null, version bigint not null)");
+        ddl.execute("create index if not exists idx_shard_notes_owner_id on shard_notes (owner_id, id)");
+        ddl.execute("create index if not exists idx_shard_notes_bucket on shard_notes (bucket)");
+        ddl.execute("create table if not exists shard_note_chunks (note_id bigint not null, seq integer not null, "
+                + "data " + binary + " not null, primary key (note_id, seq))");
+        ddl.execute("create table if not exists shard_note_owners (owner_id bigint primary key, bucket integer not null, "
+                + "change_seq bigint not null, change_floor bigint not null)");
+        ddl.execute("create index if not exists idx_shard_note_owners_bucket on shard_note_owners (bucket)");
+        ddl.execute("create table if not exists shard_note_changes (owner_id bigint not null, seq bigint not null, "
+                + "bucket integer not null, note_id bigint not null, type varchar(10) not null, "
+                + "created_at timestamp not null, primary key (owner_id, seq))");
+        ddl.execute("create index if not exists idx_shard_note_changes_created_at on shard_note_changes (created_at)");
+        ddl.execute("create index if not exists idx_shard_note_changes_bucket on shard_note_changes (bucket)");
+    }
+
+    // --- Escrituras (con el bucket bloqueado) ---
+
+    private <T> T write(int bucket, Supplier<T> work) {
+        return tx.execute(status -> {
+            List<Boolean> frozen = jdbc.queryForList(
+                    "select frozen from shard_buckets where bucket = :bucket for update",
+                    Map.of("bucket", bucket), Boolean.class);
+            if (frozen.isEmpty() || frozen.get(0)) throw new BucketNotWritableException(bucket, index);
+            return work.get();
+        });
+    }
+
+    NoteSummary create(Long ownerId, int bucket, long id, NoteDraft draft) {
+        return write(bucket, () -> {
+            insertNotes(ownerId, bucket, List.of(id), List.of(draft));
+            record(ownerId, bucket, NoteChange.Type.CREATED, List.of(id));
+            return new NoteSummary(id, draft.getTitle(), draft.getContent(), utf8Length(draft.getContent()), 0);
+        });
+    }
+
+    Optional<NoteSummary> update(Long ownerId, int bucket, Long noteId, NoteDraft draft, Long expectedVersion) {
+        return write(bucket, () -> {
+            List<NoteState> found = jdbc.query("select id, content, content_length, version from shard_notes "
+                    + "where id = :id and owner_id = :owner", Map.of("id", noteId, "owner", ownerId), STATE);
+            if (found.isEmpty()) return Optional.<NoteSummary>empty();
+
+            NoteState note = found.get(0);
+            if (expectedVersion != null && note.version() != expectedVersion) {
+                throw new NoteVersionConflictException(noteId, expectedVersion, note.version());
+            }
+            if (note.chunked()) deleteChunks(List.of(noteId)); // el contenido vuelve a ser en línea
+            updateNotes(List.of(noteId), List.of(draft));
+            record(ownerId, bucket, NoteChange.Type.UPDATED, List.of(noteId));
+            return Optional.of(new NoteSummary(noteId, draft.getTitle(), draft.getContent(),
+                    utf8Length(draft.getContent()), note.version() + 1));
+        });
+    }
+
+    boolean delete(Long ownerId, int bucket, Long noteId) {
+        return write(bucket, () -> {
+            int deleted = jdbc.update("delete from shard_notes where id = :id and owner_id = :owner",
+                    Map.of("id", noteId, "owner", ownerId));
+            if (deleted == 0) return false;
+            deleteChunks(List.of(noteId));
+            record(ownerId, bucket, NoteChange.Type.DELETED, List.of(noteId));
+            return true;
+        });
+    }
+
+    // Actualizaciones y altas por lotes JDBC en una sola transacción
+    Map<Long, Boolean> upsert(Long ownerId, int bucket, List<Long> newIds, List<NoteDraft> creates,
+                              Map<Long, NoteDraft> updates) {
+        return write(bucket, () -> {
+            Map<Long, Boolean> result = new HashMap<>(); // id -> true si se creó, false si se actualizó
+            if (!updates.isEmpty()) {
+                List<NoteState> owned = jdbc.query("select id, content, content_length, version from shard_notes "
+                                + "where owner_id = :owner and id in (:ids)",
+                        new MapSqlParameterSource("owner", ownerId).addValue("ids", updates.keySet()), STATE);
+                List<Long> chunked = new ArrayList<>();
+                List<Long> ids = new ArrayList<>(owned.size());
+                List<NoteDraft> drafts = new ArrayList<>(owned.size());
+                for (NoteState note : owned) {
+                    if (note.chunked()) chunked.add(note.id());
+                    ids.add(note.id());
+                    drafts.add(updates.get(note.id()));
+                }
+                if (!chunked.isEmpty()) deleteChunks(chunked);
+                updateNotes(ids, drafts);
+                record(ownerId, bucket, NoteChange.Type.UPDATED, ids);
+                ids.forEach(id -> result.put(id, false));
+            }
+            insertNotes(ownerId, bucket, newIds, creates);
+            record(ownerId, bucket, NoteChange.Type.CREATED, newIds);
+            newIds.forEach(id -> result.put(id, true));
+            return result;
+        });
+    }
+
+    Set<Long> deleteAll(Long ownerId, int bucket, Collection<Long> noteIds) {
+        return write(bucket, () -> {
+            Set<Long> owned = new HashSet<>(jdbc.queryForList(
+                    "select id from shard_notes where owner_id = :owner and id in (:ids)",
+                    new MapSqlParameterSource("owner", ownerId).addValue("ids", noteIds), Long.class));
+            if (owned.isEmpty()) return owned;
+            deleteChunks(owned);
+            jdbc.update("delete from shard_notes where id in (:ids)", Map.of("ids", owned));
+            record(ownerId, bucket, NoteChange.Type.DELETED, owned);
+            return owned;
+        });
+    }
+
+    /**
+     * Reemplaza el contenido con lo que se lea de {@code in}, por bloques como
+     * {@link NoteContentStore}. El bucket queda bloqueado mientras se lee {@code in}, así que debe
+     * ser una copia local del cuerpo (ver {@link ShardedNoteStore#writeContent}), no la petición.
+     */
+    NoteMetadata writeContent(Long ownerId, int bucket, Long noteId, InputStream in) {
+        return write(bucket, () -> {
+            List<NoteMetadata> found = jdbc.query("select id, title, content_length, version from shard_notes "
+                    + "where id = :id and owner_id = :owner", Map.of("id", noteId, "owner", ownerId), METADATA);
+            if (found.isEmpty()) return null;
+            NoteMetadata note = found.get(0);
+
+            try {
+                byte[] block = in.readNBytes(NoteChunk.CHUNK_SIZE);
+                String inline = block.length <= NoteContentStore.INLINE_MAX_BYTES ? decodeUtf8(block) : null;
+                if (inline != null && inline.isBlank()) {
+                    throw new IllegalArgumentException("El contenido es obligatorio");
+                }
+                deleteChunks(List.of(noteId));
+
+                long total;
+                if (inline != null) {
+                    total = block.length;
+                } else {
+                    total = 0;
+                    int seq = 0;
+                    List<SqlParameterSource> pending = new ArrayList<>();
+                    while (block.length > 0) {
+                        total += block.length;
+                        if (total > maxContentBytes) throw new NoteContentTooLargeException(maxContentBytes);
+                        pending.add(new MapSqlParameterSource("id", noteId).addValue("seq", seq++).addValue("data", block));
+                        if (pending.size() == 8) { // ~512 KB en memoria como máximo
+                            insertChunks(pending);
+                            pending.clear();
+                        }
+                        block = in.readNBytes(NoteChunk.CHUNK_SIZE);
+                    }
+                    insertChunks(pending);
+                }
+                jdbc.update("update shard_notes set content = :content, content_length = :length, version = version + 1 "
+                        + "where id = :id", new MapSqlParameterSource("content", inline)
+                        .addValue("length", total).addValue("id", noteId));
+                record(ownerId, bucket, NoteChange.Type.UPDATED, List.of(noteId));
+                return new NoteMetadata(noteId, note.getTitle(), total, note.getVersion() + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void insertNotes(Long ownerId, int bucket, List<Long> ids, List<NoteDraft> drafts) {
+        if (ids.isEmpty()) return;
+        SqlParameterSource[] rows = new SqlParameterSource[ids.size()];
+        for (int i = 0; i < rows.length; i++) {
+            NoteDraft draft = drafts.get(i);
+            rows[i] = new MapSqlParameterSource("id", ids.get(i))
+                    .addValue("owner", ownerId)
+                    .addValue("bucket", bucket)
+                    .addValue("title", draft.getTitle())
+                    .addValue("content", draft.getContent())
+                    .addValue("length", utf8Length(draft.getContent()));
+        }
+        jdbc.batchUpdate("insert into shard_notes (id, owner_id, bucket, title, content, content_length, version) "
+                + "values (:id, :owner, :bucket, :title, :content, :length, 0)", rows);
+    }
+
+    private void updateNotes(List<Long> ids, List<NoteDraft> drafts) {
+        if (ids.isEmpty()) return;
+        SqlParameterSource[] rows = new SqlParameterSource[ids.size()];
+        for (int i = 0; i < rows.length; i++) {
+            NoteDraft draft = drafts.get(i);
+            rows[i] = new MapSqlParameterSource("id", ids.get(i))
+                    .addValue("title", draft.getTitle())
+                    .addValue("content", draft.getContent())
+                    .addValue("length", utf8Length(draft.getContent()));
+        }
+        jdbc.batchUpdate("update shard_notes set title = :title, content = :content, content_length = :length, "
+                + "version = version + 1 where id = :id", rows);
+    }
+
+    private void insertChunks(List<SqlParameterSource> chunks) {
+        if (chunks.isEmpty()) return;
+        jdbc.batchUpdate("insert into shard_note_chunks (note_id, seq, data) values (:id, :seq, :data)",
+                chunks.toArray(SqlParameterSource[]::new));
+    }
+
+    private void deleteChunks(Collection<Long> noteIds) {
+        jdbc.update("delete from shard_note_chunks where note_id in (:ids)", Map.of("ids", noteIds));
+    }
+
+    // Dentro de la transacción de la escritura (ver JpaNoteStore); la fila del dueño se crea con su primer cambio
+    private void record(Long ownerId, int bucket, NoteChange.Type type, Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) return;
+        MapSqlParameterSource owner = new MapSqlParameterSource("owner", ownerId)
+                .addValue("bucket", bucket)
+                .addValue("count", noteIds.size());
+        if (jdbc.update("update shard_note_owners set change_seq = change_seq + :count where owner_id = :owner", owner) == 0) {
+            jdbc.update("insert into shard_note_owners (owner_id, bucket, change_seq, change_floor) "
+                    + "values (:owner, :bucket, :count, 0)", owner);
+        }
+        long seq = changeSeq(ownerId) - noteIds.size();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<SqlParameterSource> rows = new ArrayList<>(noteIds.size());
+        for (Long noteId : noteIds) {
+            rows.add(new MapSqlParameterSource("owner", ownerId)
+                    .addValue("seq", ++seq)
+                    .addValue("bucket", bucket)
+                    .addValue("note", noteId)
+                    .addValue("type", type.name())
+                    .addValue("at", now));
+        }
+        jdbc.batchUpdate("insert into shard_note_changes (owner_id, seq, bucket, note_id, type, created_at) "
+                + "values (:owner, :seq, :bucket, :note, :type, :at)", rows.toArray(SqlParameterSource[]::new));
+    }
+
+    // --- Lecturas ---
+
+    // Lectura de un bucket: la fila de shard_buckets va unida (left join) a lo leído, así la misma
+    // consulta dice si el bucket sigue aquí. La consulta empieza por "select b.moved, <columna no
+    // nula>"; una fila con esa columna nula es la del bucket sin resultados
+    private <T> List<T> read(int bucket, String sql, MapSqlParameterSource params, RowMapper<T> mapper) {
+        return jdbc.query(sql, params.addValue("bucket", bucket), rs -> {
+            List<T> rows = new ArrayList<>();
+            boolean found = false;
+            while (rs.next()) {
+                if (!found && rs.getBoolean(1)) throw new BucketMovedException(bucket, index);
+                found = true;
+                if (rs.getObject(2) != null) rows.add(mapper.mapRow(rs, rows.size()));
+            }
+            if (!found) throw new BucketMovedException(bucket, index);
+            return rows;
+        });
+    }
+
+    Optional<NoteSummary> find(Long ownerId, int bucket, Long noteId) {
+        return read(bucket, "select b.moved, n.id, n.title, n.content, n.content_length, n.version from shard_buckets b "
+                        + "left join shard_notes n on n.id = :id and n.owner_id = :owner where b.bucket = :bucket",
+                new MapSqlParameterSource("id", noteId).addValue("owner", ownerId), SUMMARY).stream().findFirst();
+    }
+
+    List<NoteMetadata> page(Long ownerId, int bucket, long after, int limit) {
+        return read(bucket, "select b.moved, n.id, n.title, n.content_length, n.version from shard_buckets b "
+                        + "left join shard_notes n on n.owner_id = :owner and n.id > :after where b.bucket = :bucket "
+                        + "order by n.id limit :limit",
+                new MapSqlParameterSource("owner", ownerId).addValue("after", after).addValue("limit", limit), METADATA);
+    }
+
+    List<NoteMetadata> metadata(Long ownerId, int bucket, Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) return List.of();
+        return read(bucket, "select b.moved, n.id, n.title, n.content_length, n.version from shard_buckets b "
+                        + "left join shard_notes n on n.owner_id = :owner and n.id in (:ids) where b.bucket = :bucket",
+                new MapSqlParameterSource("owner", ownerId).addValue("ids", noteIds), METADATA);
+    }
+
+    // Retiene una conexión del pool hasta que se cierra el stream
+    Stream<NoteSummary> stream(Long ownerId) {
+        return streaming.queryForStream("select id, title, content, content_length, version from shard_notes "
+                + "where owner_id = :owner order by id", Map.of("owner", ownerId), SUMMARY);
+    }
+
+    List<Long> ownerIds() {
+        return jdbc.getJdbcTemplate().queryForList("select distinct owner_id from shard_notes", Long.class);
+    }
+
+    Map<Long, Long> countByOwner(Collection<Long> ownerIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbc.query("select owner_id, count(*) from shard_notes where owner_id in (:ids) group by owner_id",
+                Map.of("ids", ownerIds), rs -> {
+                    counts.put(rs.getLong(1), rs.getLong(2));
+                });
+        return counts;
+    }
+
+    long count() {
+        return jdbc.getJdbcTemplate().queryForObject("select count(*) from shard_notes", Long.class);
+    }
+
+    // Entradas y piso en la misma transacción (ver JpaNoteStore#changes)
+    List<NoteChange> changes(Long ownerId, int bucket, long since, int limit) {
+        return readTx.execute(status -> {
+            List<NoteChange> changes = read(bucket, "select b.moved, c.seq, c.note_id, c.type from shard_buckets b "
+                            + "left join shard_note_changes c on c.owner_id = :owner and c.seq > :since "
+                            + "where b.bucket = :bucket order by c.seq limit :limit",
+                    new MapSqlParameterSource("owner", ownerId).addValue("since", since).addValue("limit", limit),
+                    (rs, i) -> new NoteChange(rs.getLong("seq"), rs.getLong("note_id"), NoteChange.Type.valueOf(rs.getString("type"))));
+            List<Long> floor = jdbc.queryForList("select change_floor from shard_note_owners where owner_id = :owner",
+                    Map.of("owner", ownerId), Long.class);
+            if (!floor.isEmpty() && since < floor.get(0)) {
+                throw new ChangeHistoryExpiredException(since, floor.get(0), changeSeq(ownerId));
+            }
+            return changes;
+        });
+    }
+
+    long changeSeq(Long ownerId, int bucket) {
+        List<Long> seq = read(bucket, "select b.moved, o.change_seq from shard_buckets b "
+                        + "left join shard_note_owners o on o.owner_id = :owner where b.bucket = :bucket",
+                new MapSqlParameterSource("owner", ownerId), (rs, i) -> rs.getLong("change_seq"));
+        return seq.isEmpty() ? 0L : seq.get(0);
+    }
+
+    // Sin comprobar el bucket: dentro de una escritura, que ya lo tiene bloqueado
+    private long changeSeq(Long ownerId) {
+        List<Long> seq = jdbc.queryForList("select change_seq from shard_note_owners where owner_id = :owner",
+                Map.of("owner", ownerId), Long.class);
+        return seq.isEmpty() ? 0L : seq.get(0);
+    }
+
+    /**
+     * Escribe los bytes {@code [start, end]} (inclusive) leyendo solo los bloques que los cubren,
+     * si la nota sigue en {@code version} (ver {@code NoteStore#copyContent}).
+     */
+    void copyContent(Long ownerId, int bucket, Long noteId, long version, long start, long end, OutputStream out) throws IOException {
+        try {
+            readTx.executeWithoutResult(status -> {
+                List<NoteMetadata> note = read(bucket, "select b.moved, n.id, n.title, n.content_length, n.version "
+                                + "from shard_buckets b left join shard_notes n on n.id = :id and n.owner_id = :owner "
+                                + "where b.bucket = :bucket",
+                        new MapSqlParameterSource("id", noteId).addValue("owner", ownerId), METADATA);
+                if (note.isEmpty() || note.get(0).getVersion() != version || end >= note.get(0).getSize()) {
+                    throw new UncheckedIOException(new IOException("El contenido de la nota " + noteId + " cambió durante la descarga"));
+                }
+                copyChunks(noteId, start, end, out);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void copyChunks(Long noteId, long start, long end, OutputStream out) {
+        int first = (int) (start / NoteChunk.CHUNK_SIZE);
+        int last = (int) (end / NoteChunk.CHUNK_SIZE);
+        int[] expected = {first};
+        jdbc.query("select seq, data from shard_note_chunks where note_id = :id and seq between :first and :last "
+                + "order by seq", Map.of("id", noteId, "first", first, "last", last), rs -> {
+            int seq = rs.getInt("seq");
+            if (seq != expected[0]) throw new UncheckedIOException(missingChunk(noteId, expected[0]));
+            byte[] data = rs.getBytes("data");
+            long chunkStart = (long) seq * NoteChunk.CHUNK_SIZE;
+            int from = (int) Math.max(0, start - chunkStart);
+            int to = (int) Math.min(data.length, end - chunkStart + 1);
+            try {
+                out.write(data, from, to - from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            expected[0]++;
+        });
+        if (expected[0] <= last) throw new UncheckedIOException(missingChunk(noteId, expected[0]));
+    }
+
+    private static IOException missingChunk(Long noteId, int seq) {
+        return new IOException("Falta el bloque " + seq + " de la nota " + noteId);
+    }
+
+    // --- Historial ---
+
+    void pruneChanges(LocalDateTime cutoff) {
+        Map<String, Object> params = Map.of("cutoff", Timestamp.valueOf(cutoff));
+        tx.executeWithoutResult(status -> {
+            jdbc.update("update shard_note_owners set change_floor = (select max(c.seq) from shard_note_changes c "
+                    + "where c.owner_id = shard_note_owners.owner_id and c.created_at < :cutoff) "
+                    + "where exists (select 1 from shard_note_changes c "
+                    + "where c.owner_id = shard_note_owners.owner_id and c.created_at < :cutoff)", params);
+            jdbc.update("delete from shard_note_changes where created_at < :cutoff", params);
+        });
+    }
+
+    // --- Buckets (ver ShardRebalancer) ---
+
+    /**
+     * Estado de los buckets que tiene este shard: true si está congelado.
+     */
+    Map<Integer, Boolean> buckets() {
+        Map<Integer, Boolean> buckets = new HashMap<>();
+        jdbc.getJdbcTemplate().query("select bucket, frozen from shard_buckets",
+                rs -> { buckets.put(rs.getInt(1), rs.getBoolean(2)); });
+        return buckets;
+    }
+
+    // Al crear el catálogo: los buckets asignados a este shard empiezan abiertos
+    void openBuckets(Collection<Integer> buckets) {
+        Set<Integer> existing = buckets().keySet();
+        List<SqlParameterSource> rows = new ArrayList<>();
+        for (Integer bucket : buckets) {
+            if (!existing.contains(bucket)) rows.add(new MapSqlParameterSource("bucket", bucket));
+        }
+        if (rows.isEmpty()) return;
+        jdbc.batchUpdate("insert into shard_buckets (bucket, frozen) values (:bucket, false)",
+                rows.toArray(SqlParameterSource[]::new));
+    }
+
+    /**
+     * Congela el bucket (o lo crea congelado). Espera a que se confirmen las escrituras que lo
+     * tienen bloqueado; después ninguna otra escritura en este shard lo acepta.
+     */
+    void freeze(int bucket) {
+        tx.executeWithoutResult(status -> {
+            Map<String, Object> params = Map.of("bucket", bucket);
+            if (jdbc.update("update shard_buckets set frozen = true where bucket = :bucket", params) == 0) {
+                jdbc.update("insert into shard_buckets (bucket, frozen) values (:bucket, true)", params);
+            }
+        });
+    }
+
+    // Después de cambiar el catálogo: el bucket sigue congelado y sus filas esperan a dropBucket
+    void markMoved(int bucket) {
+        jdbc.update("update shard_buckets set moved = true where bucket = :bucket", Map.of("bucket", bucket));
+    }
+
+    void unfreeze(int bucket) {
+        jdbc.update("update shard_buckets set frozen = false where bucket = :bucket", Map.of("bucket", bucket));
+    }
+
+    /**
+     * Copia las filas del bucket desde {@code source} (que debe tenerlo congelado) en una sola
+     * transacción de este shard, reemplazando lo que hubiera quedado de un intento anterior.
+     * Devuelve el número de notas copiadas.
+     */
+    long copyBucketFrom(NoteShard source, int bucket) {
+        return tx.execute(status -> {
+            deleteBucketRows(bucket);
+            Map<String, Object> params = Map.of("bucket", bucket);
+            copy(source, "select owner_id, bucket, change_seq, change_floor from shard_note_owners where bucket = :bucket",
+                    params, "insert into shard_note_owners (owner_id, bucket, change_seq, change_floor) values (?, ?, ?, ?)");
+            copy(source, "select owner_id, seq, bucket, note_id, type, created_at from shard_note_changes where bucket = :bucket",
+                    params, "insert into shard_note_changes (owner_id, seq, bucket, note_id, type, created_at) values (?, ?, ?, ?, ?, ?)");
+            long notes = copy(source, "select id, owner_id, bucket, title, content, content_length, version from shard_notes "
+                            + "where bucket = :bucket", params,
+                    "insert into shard_notes (id, owner_id, bucket, title, content, content_length, version) values (?, ?, ?, ?, ?, ?, ?)");
+            copy(source, "select c.note_id, c.seq, c.data from shard_note_chunks c join shard_notes n on n.id = c.note_id "
+                    + "where n.bucket = :bucket", params, "insert into shard_note_chunks (note_id, seq, data) values (?, ?, ?)");
+            return notes;
+        });
+    }
+
+    // Recorre el origen con un cursor y escribe aquí por lotes JDBC
+    private long copy(NoteShard source, String select, Map<String, Object> params, String insert) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        long[] copied = {0};
+        source.streaming.query(select, params, rs -> {
+            int columns = rs.getMetaData().getColumnCount();
+            Object[] row = new Object[columns];
+            for (int c = 0; c < columns; c++) row[c] = rs.getObject(c + 1);
+            batch.add(row);
+            copied[0]++;
+            if (batch.size() == BATCH_SIZE) {
+                jdbc.getJdbcTemplate().batchUpdate(insert, batch);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) jdbc.getJdbcTemplate().batchUpdate(insert, batch);
+        return copied[0];
+    }
+
+    /**
+     * Borra el bucket de este shard: sus filas y su entrada en {@code shard_buckets}.
+     */
+    void dropBucket(int bucket) {
+        tx.executeWithoutResult(status -> {
+            deleteBucketRows(bucket);
+            jdbc.update("delete from shard_buckets where bucket = :bucket", Map.of("bucket", bucket));
+        });
+    }
+
+    private void deleteBucketRows(int bucket) {
+        Map<String, Object> params = Map.of("bucket", bucket);
+        jdbc.update("delete from shard_note_chunks where note_id in (select id from shard_notes where bucket = :bucket)", params);
+        jdbc.update("delete from shard_notes where bucket = :bucket", params);
+        jdbc.update("delete from shard_note_changes where bucket = :bucket", params);
+        jdbc.update("delete from shard_note_owners where bucket = :bucket", params);
+    }
+
+    /**
+     * Notas por bucket (los buckets sin notas no aparecen).
+     */
+    Map<Integer, Long> notesPerBucket() {
+        Map<Integer, Long> counts = new HashMap<>();
+        jdbc.getJdbcTemplate().query("select bucket, count(*) from shard_notes group by bucket",
+                rs -> { counts.put(rs.getInt(1), rs.getLong(2)); });
+        return counts;
+    }
+
+    /**
+     * Notas, dueños y bytes de contenido guardados en este shard.
+     */
+    Map<String, Object> stats() {
+        return jdbc.getJdbcTemplate().queryForObject("select count(*), count(distinct owner_id), "
+                + "coalesce(sum(content_length), 0) from shard_notes", (rs, i) -> Map.of(
+                "notes", rs.getLong(1),
+                "owners", rs.getLong(2),
+                "contentBytes", rs.getLong(3)));
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    private static long utf8Length(String content) {
+        return content == null ? 0 : content.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    // Texto UTF-8 válido o null (ver NoteContentStore)
+    private static String decodeUtf8(byte[] bytes) {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+/**
+ * Lease del reparto en la base principal ({@code shard_rebalance_lease}): lo tiene una sola
+ * instancia, que lo renueva mientras trabaja. Si esa instancia cae, caduca a los {@code ttlMillis}
+ * y otra puede empezar (y reparar lo que quedó a medias). Los instantes son de los relojes de las
+ * instancias: el ttl tiene que ser mucho mayor que su desfase.
+ */
+class RebalanceLease {
+
+    private final JdbcTemplate jdbc;
+    private final long ttlMillis;
+    private final String holder = UUID.randomUUID().toString();
+
+    RebalanceLease(JdbcTemplate jdbc, long ttlMillis) {
+        this.jdbc = jdbc;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Toma el lease si está libre, caducado o ya es nuestro.
+     */
+    boolean acquire() {
+        long now = System.currentTimeMillis();
+        int taken = jdbc.update("update shard_rebalance_lease set holder = ?, expires_at = ? "
+                + "where id = 1 and (holder is null or holder = ? or expires_at < ?)", holder, now + ttlMillis, holder, now);
+        if (taken == 1) return true;
+        try {
+            jdbc.update("insert into shard_rebalance_lease (id, holder, expires_at) values (1, ?, ?)", holder, now + ttlMillis);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false; // la fila existe y es de otra instancia
+        }
+    }
+
+    /**
+     * Alarga el lease; false si ya no es nuestro (caducó y lo tomó otra instancia).
+     */
+    boolean renew() {
+        return jdbc.update("update shard_rebalance_lease set expires_at = ? where id = 1 and holder = ?",
+                System.currentTimeMillis() + ttlMillis, holder) == 1;
+    }
+
+    void release() {
+        jdbc.update("update shard_rebalance_lease set holder = null where id = 1 and holder = ?", holder);
+    }
+
+    long ttlMillis() {
+        return ttlMillis;
+    }
+}
@@ -0,0 +1,107 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+import com.taller.seguridad.notas_seguras.model.NoteShardBucket;
+import com.taller.seguridad.notas_seguras.repository.NoteShardBucketRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Dueño → bucket → shard.
+ * <p>
+ * El bucket sale de un hash del id del dueño y no cambia nunca; el shard de cada bucket está en
+ * el catálogo ({@code note_shard_buckets}, en la base principal). Con {@link #BUCKETS} buckets
+ * fijos, añadir un shard es mover algunos buckets enteros y no volver a repartir a todos los
+ * dueños. Cada instancia guarda una copia del catálogo que se refresca periódicamente y, para un
+ * bucket, cuando un shard rechaza una escritura.
+ */
+class ShardMap {
+
+    static final int BUCKETS = 1024;
+
+    private final NoteShardBucketRepository repository;
+    private final int shardCount;
+    private final AtomicIntegerArray shardOf = new AtomicIntegerArray(BUCKETS);
+
+    ShardMap(NoteShardBucketRepository repository, int shardCount) {
+        this.repository = repository;
+        this.shardCount = shardCount;
+    }
+
+    // Finalizador de MurmurHash3: ids consecutivos caen en buckets dispersos
+    static int bucketOf(Long ownerId) {
+        long h = ownerId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) (h & (BUCKETS - 1));
+    }
+
+    /**
+     * Carga el catálogo o, si está vacío, lo crea repartiendo los buckets por turnos.
+     */
+    void init() {
+        if (repository.loadAll().isEmpty()) {
+            List<NoteShardBucket> rows = new ArrayList<>(BUCKETS);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) rows.add(new NoteShardBucket(bucket, bucket % shardCount));
+            try {
+                repository.saveAll(rows);
+            } catch (DataIntegrityViolationException e) {
+                // Otra instancia lo creó al mismo tiempo
+            }
+        }
+        refresh();
+    }
+
+    void refresh() {
+        int[] next = new int[BUCKETS];
+        List<NoteShardBucket> rows = repository.loadAll();
+        if (rows.size() != BUCKETS) {
+            throw new IllegalStateException("El catálogo note_shard_buckets tiene " + rows.size() + " buckets, no " + BUCKETS);
+        }
+        for (NoteShardBucket row : rows) {
+            if (row.getShard() >= shardCount) {
+                throw new IllegalStateException("El bucket " + row.getBucket() + " está en el shard " + row.getShard()
+                        + ", que no está en notes.store.sharded.urls");
+            }
+            next[row.getBucket()] = row.getShard();
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) shardOf.set(bucket, next[bucket]);
+    }
+
+    int shardOf(int bucket) {
+        return shardOf.get(bucket);
+    }
+
+    /**
+     * Vuelve a leer el shard de un bucket en el catálogo.
+     */
+    int reload(int bucket) {
+        int shard = repository.findShard(bucket).orElseThrow();
+        shardOf.set(bucket, shard);
+        return shard;
+    }
+
+    /**
+     * Cambia el bucket de shard en el catálogo; false si ya no estaba en {@code from}.
+     */
+    boolean move(int bucket, int from, int to) {
+        if (repository.move(bucket, from, to) == 0) return false;
+        reload(bucket);
+        return true;
+    }
+
+    int[] snapshot() {
+        int[] copy = new int[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) copy[bucket] = shardOf.get(bucket);
+        return copy;
+    }
+
+    int shardCount() {
+        return shardCount;
+    }
+}
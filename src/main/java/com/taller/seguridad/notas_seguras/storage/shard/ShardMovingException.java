@@ -0,0 +1,12 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+/**
+ * Las notas del usuario se están moviendo a otro shard y la escritura no pudo esperar a que
+ * terminara ({@code notes.store.sharded.move-wait-ms}). Se puede reintentar en unos segundos.
+ */
+public class ShardMovingException extends RuntimeException {
+
+    public ShardMovingException(int bucket) {
+        super("Las notas se están moviendo a otro shard (bucket " + bucket + "). Reintenta en unos segundos.");
+    }
+}
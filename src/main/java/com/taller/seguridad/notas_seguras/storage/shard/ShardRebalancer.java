@@ -0,0 +1,286 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reparte los buckets entre los shards sin parar la aplicación.
+ * <p>
+ * Cada bucket se mueve así:
+ * <ol>
+ *   <li>El destino crea el bucket congelado y el origen lo congela: las escrituras de ese bucket
+ *       esperan (y se reintentan en {@link ShardedNoteStore}); las lecturas siguen en el origen.</li>
+ *   <li>Se copian sus filas al destino en una transacción.</li>
+ *   <li>El catálogo pasa a apuntar al destino, el origen marca el bucket como movido (las
+ *       lecturas con el catálogo sin refrescar dejan de usarlo) y el destino lo abre.</li>
+ *   <li>Pasado {@code notes.store.sharded.cleanup-delay-ms}, cuando ya terminaron las lecturas
+ *       que empezaron antes de la marca, se borra la copia del origen.</li>
+ * </ol>
+ * Si algo falla antes del paso 3, se borra la copia del destino y el origen vuelve a aceptar
+ * escrituras. Lo que deje a medias una caída se repara al empezar la siguiente ejecución.
+ * <p>
+ * Solo puede haber un reparto en curso en todo el despliegue: la reparación borra las copias que
+ * no son del dueño según el catálogo, así que dos a la vez se borrarían los movimientos. Cada
+ * ejecución toma un {@link RebalanceLease} antes de reparar, lo renueva antes de cada movimiento
+ * y mientras espera para limpiar, y se detiene si lo pierde.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.store", havingValue = "sharded")
+public class ShardRebalancer implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    record Move(int bucket, int from, int to) {}
+
+    private final ShardedNoteStore store;
+    private final long cleanupDelayMillis;
+    private final RebalanceLease lease;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder moved = new LongAdder();
+
+    // Estado de la última ejecución, para /admin/shards
+    private volatile Map<String, Object> status = Map.of("running", false);
+
+    public ShardRebalancer(ShardedNoteStore store,
+                           @Value("${notes.store.sharded.cleanup-delay-ms:15000}") long cleanupDelayMillis,
+                           @Value("${notes.store.sharded.lease-ms:60000}") long leaseMillis) {
+        this.store = store;
+        this.cleanupDelayMillis = cleanupDelayMillis;
+        this.lease = new RebalanceLease(store.catalog(), leaseMillis);
+    }
+
+    /**
+     * Empieza a repartir en segundo plano, vaciando los shards de {@code drain}. Devuelve los
+     * movimientos planificados o null si ya hay un reparto en curso (en esta o en otra instancia).
+     */
+    public List<Map<String, Integer>> start(Set<Integer> drain) {
+        for (Integer shard : drain) {
+            if (shard < 0 || shard >= store.shards().size()) throw new IllegalArgumentException("No existe el shard " + shard);
+        }
+        if (drain.size() >= store.shards().size()) throw new IllegalArgumentException("Tiene que quedar al menos un shard");
+        if (!running.compareAndSet(false, true)) return null;
+
+        List<Move> plan;
+        try {
+            if (!lease.acquire()) {
+                running.set(false);
+                return null;
+            }
+            repair();
+            plan = plan(drain);
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+        update(plan.size(), 0, 0, null, LocalDateTime.now(), null);
+        Thread.ofVirtual().name("shard-rebalancer").start(() -> run(plan));
+        return plan.stream().map(m -> Map.of("bucket", m.bucket(), "from", m.from(), "to", m.to())).toList();
+    }
+
+    public Map<String, Object> status() {
+        return status;
+    }
+
+    /**
+     * Deja cada shard con sus buckets abiertos y sin restos de otros: reabre los que quedaron
+     * congelados y borra las copias de movimientos interrumpidos o sin limpiar.
+     */
+    void repair() {
+        store.refreshMap();
+        int[] assignment = store.map().snapshot();
+        for (NoteShard shard : store.shards()) {
+            List<Integer> owned = new ArrayList<>();
+            for (int bucket = 0; bucket < assignment.length; bucket++) {
+                if (assignment[bucket] == shard.index()) owned.add(bucket);
+            }
+            shard.openBuckets(owned);
+            shard.buckets().forEach((bucket, frozen) -> {
+                if (assignment[bucket] != shard.index()) {
+                    shard.dropBucket(bucket);
+                } else if (frozen) {
+                    shard.unfreeze(bucket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Vacía los shards de {@code drain} y después, de uno en uno, pasa buckets del shard con más
+     * notas al que tiene menos mientras la diferencia se reduzca. Un bucket pesa sus notas más
+     * uno, para que los vacíos también se repartan.
+     */
+    List<Move> plan(Set<Integer> drain) {
+        int[] assignment = store.map().snapshot();
+        List<Map<Integer, Long>> counts = store.scatter(NoteShard::notesPerBucket);
+        long[] weight = new long[assignment.length];
+        for (int bucket = 0; bucket < assignment.length; bucket++) {
+            weight[bucket] = counts.get(assignment[bucket]).getOrDefault(bucket, 0L) + 1;
+        }
+
+        Map<Integer, Long> load = new HashMap<>();
+        for (NoteShard shard : store.shards()) {
+            if (!drain.contains(shard.index())) load.put(shard.index(), 0L);
+        }
+        int[] target = assignment.clone();
+        List<Integer> draining = new ArrayList<>();
+        for (int bucket = 0; bucket < assignment.length; bucket++) {
+            if (load.containsKey(assignment[bucket])) load.merge(assignment[bucket], weight[bucket], Long::sum);
+            else draining.add(bucket);
+        }
+
+        draining.sort(Comparator.comparingLong((Integer b) -> weight[b]).reversed());
+        for (int bucket : draining) {
+            int lightest = lightest(load);
+            target[bucket] = lightest;
+            load.merge(lightest, weight[bucket], Long::sum);
+        }
+
+        for (int i = 0; i < assignment.length; i++) {
+            int heaviest = heaviest(load);
+            int lightest = lightest(load);
+            long gap = load.get(heaviest) - load.get(lightest);
+            int best = -1;
+            for (int bucket = 0; bucket < target.length; bucket++) {
+                if (target[bucket] == heaviest && weight[bucket] < gap && (best < 0 || weight[bucket] > weight[best])) best = bucket;
+            }
+            if (best < 0) break;
+            target[best] = lightest;
+            load.merge(heaviest, -weight[best], Long::sum);
+            load.merge(lightest, weight[best], Long::sum);
+        }
+
+        List<Move> moves = new ArrayList<>();
+        for (int bucket = 0; bucket < assignment.length; bucket++) {
+            if (target[bucket] != assignment[bucket]) moves.add(new Move(bucket, assignment[bucket], target[bucket]));
+        }
+        return moves;
+    }
+
+    private static int lightest(Map<Integer, Long> load) {
+        return load.entrySet().stream().min(Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+
+    private static int heaviest(Map<Integer, Long> load) {
+        return load.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+
+    private void run(List<Move> plan) {
+        LocalDateTime startedAt = (LocalDateTime) status.get("startedAt");
+        List<Move> done = new ArrayList<>();
+        int failed = 0;
+        String lastError = null;
+        try {
+            for (Move move : plan) {
+                if (!lease.renew()) {
+                    lastError = "Se perdió el lease del reparto; se detiene sin mover más buckets";
+                    log.warn(lastError);
+                    break;
+                }
+                try {
+                    move(move);
+                    done.add(move);
+                } catch (RuntimeException e) {
+                    failed++;
+                    lastError = "bucket " + move.bucket() + ": " + e.getMessage();
+                    log.warn("No se pudo mover el bucket {} del shard {} al {}", move.bucket(), move.from(), move.to(), e);
+                }
+                update(plan.size(), done.size(), failed, lastError, startedAt, null);
+            }
+            cleanup(done);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            update(plan.size(), done.size(), failed, lastError, startedAt, LocalDateTime.now());
+            release();
+        }
+        log.info("Reparto terminado: {} buckets movidos, {} fallidos", done.size(), failed);
+    }
+
+    /**
+     * Mueve un bucket; si falla antes de cambiar el catálogo, el origen sigue siendo el dueño.
+     */
+    void move(Move move) {
+        NoteShard source = store.shards().get(move.from());
+        NoteShard target = store.shards().get(move.to());
+        target.freeze(move.bucket());
+        try {
+            source.freeze(move.bucket());
+            target.copyBucketFrom(source, move.bucket());
+            if (!store.map().move(move.bucket(), move.from(), move.to())) {
+                throw new IllegalStateException("El catálogo ya no asigna el bucket al shard " + move.from());
+            }
+        } catch (RuntimeException e) {
+            target.dropBucket(move.bucket());
+            source.unfreeze(move.bucket());
+            throw e;
+        }
+        try {
+            source.markMoved(move.bucket());
+        } catch (RuntimeException e) {
+            // El movimiento ya está hecho; sin la marca, las lecturas atrasadas duran hasta el refresco
+            log.warn("No se pudo marcar el bucket {} como movido en el shard {}", move.bucket(), move.from(), e);
+        } finally {
+            target.unfreeze(move.bucket());
+        }
+        moved.increment();
+    }
+
+    // Una lectura que vio el bucket sin marcar aún puede estar leyendo del origen. El lease se
+    // sigue renovando mientras tanto: otra ejecución repararía (borraría) estas copias a su manera
+    private void cleanup(Collection<Move> done) throws InterruptedException {
+        if (done.isEmpty()) return;
+        long deadline = System.currentTimeMillis() + cleanupDelayMillis;
+        long step = Math.max(1, lease.ttlMillis() / 3);
+        for (long left = cleanupDelayMillis; left > 0; left = deadline - System.currentTimeMillis()) {
+            Thread.sleep(Math.min(left, step));
+            if (!lease.renew()) return; // la siguiente ejecución borra lo que quedó
+        }
+        for (Move move : done) store.shards().get(move.from()).dropBucket(move.bucket());
+    }
+
+    private void release() {
+        try {
+            lease.release();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void update(int planned, int done, int failed, String lastError, LocalDateTime startedAt, LocalDateTime finishedAt) {
+        Map<String, Object> next = new LinkedHashMap<>();
+        next.put("running", finishedAt == null);
+        next.put("planned", planned);
+        next.put("moved", done);
+        next.put("failed", failed);
+        next.put("lastError", lastError);
+        next.put("startedAt", startedAt);
+        next.put("finishedAt", finishedAt);
+        status = next;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("notes.shard.buckets.moved", moved, LongAdder::sum)
+                .description("Buckets de notas movidos de un shard a otro")
+                .register(registry);
+    }
+}
@@ -0,0 +1,454 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+import com.taller.seguridad.notas_seguras.model.NoteChunk;
+import com.taller.seguridad.notas_seguras.repository.NoteMetadata;
+import com.taller.seguridad.notas_seguras.repository.NoteShardBucketRepository;
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import com.taller.seguridad.notas_seguras.storage.NoteContentTooLargeException;
+import com.taller.seguridad.notas_seguras.storage.NoteDraft;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Notas repartidas entre varias bases de datos por dueño ({@code notes.store=sharded}).
+ * <p>
+ * Cada shard es una URL de {@code notes.store.sharded.urls} ({@link NoteShard}) y todas las notas
+ * de un dueño están en el mismo, el de su bucket según el catálogo ({@link ShardMap}). Como todas
+ * las operaciones del controlador son de un solo dueño, cada una va a un único shard, sin
+ * transacciones distribuidas. Lo que abarca a todos los dueños ({@link #count()},
+ * {@link #ownerIds()}, {@link #countByOwner}) se consulta en todos los shards en paralelo y se
+ * combina aquí.
+ * <p>
+ * Los ids de las notas salen por bloques de la secuencia {@code note_seq} de la base principal:
+ * son únicos entre shards y no cambian cuando {@link ShardRebalancer} mueve un bucket. Si un shard
+ * rechaza una escritura porque su bucket se está moviendo o ya se movió, se relee el catálogo y se
+ * reintenta, esperando como mucho {@code notes.store.sharded.move-wait-ms}. Las lecturas confían en
+ * el catálogo local: el shard comprueba en la misma consulta que siga teniendo el bucket y, si ya lo
+ * movió, se relee el catálogo y se repite en el shard nuevo.
+ * <p>
+ * Las notas que ya estuvieran en la tabla {@code note} (almacenamiento jpa) no se migran.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.store", havingValue = "sharded")
+public class ShardedNoteStore implements NoteStore, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedNoteStore.class);
+
+    // Mismo incremento que la secuencia note_seq de la entidad Note (allocationSize)
+    private static final int ID_BLOCK = 50;
+    private static final long RETRY_PAUSE_MILLIS = 50;
+
+    private final List<NoteShard> shards;
+    private final ShardMap map;
+    private final long moveWaitMillis;
+    private final long maxContentBytes;
+    private final Path spoolDir;
+    private final Duration changeRetention;
+
+    // Consultas en todos los shards a la vez; cada tarea espera a su base de datos
+    private final ExecutorService scatter = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final JdbcTemplate catalog;
+    private final String nextIdSql;
+    // ReentrantLock y no synchronized: no fija el hilo portador con hilos virtuales
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long idLimit;
+
+    private final LongAdder retries = new LongAdder();
+
+    public ShardedNoteStore(@Value("${notes.store.sharded.urls}") String urls,
+                            @Value("${notes.store.sharded.move-wait-ms:10000}") long moveWaitMillis,
+                            @Value("${notes.content.max-bytes:16777216}") long maxContentBytes,
+                            @Value("${notes.content.spool-dir:data/upload-spool}") String spoolDir,
+                            @Value("${notes.changes.retention:30d}") Duration changeRetention,
+                            DataSourceProperties properties,
+                            Environment environment,
+                            MeterRegistry registry,
+                            DataSource dataSource,
+                            EntityManagerFactory entityManagerFactory,
+                            NoteShardBucketRepository bucketRepository) throws IOException {
+        this.moveWaitMillis = moveWaitMillis;
+        this.maxContentBytes = maxContentBytes;
+        this.spoolDir = Path.of(spoolDir);
+        this.changeRetention = changeRetention;
+
+        // Restos de subidas interrumpidas por un reinicio
+        Files.createDirectories(this.spoolDir);
+        try (Stream<Path> leftovers = Files.list(this.spoolDir)) {
+            for (Path p : (Iterable<Path>) leftovers::iterator) Files.deleteIfExists(p);
+        }
+        this.catalog = new JdbcTemplate(dataSource);
+        this.nextIdSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect()
+                .getSequenceSupport().getSequenceNextValString("note_seq");
+
+        List<String> shardUrls = Arrays.stream(urls.split(",")).map(String::trim).filter(u -> !u.isEmpty()).toList();
+        if (shardUrls.isEmpty()) throw new IllegalStateException("notes.store=sharded necesita notes.store.sharded.urls");
+        List<NoteShard> created = new ArrayList<>(shardUrls.size());
+        for (String url : shardUrls) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            // spring.datasource.hikari.* se aplica igual a todos los pools
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("shard-" + created.size());
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            NoteShard shard = new NoteShard(created.size(), pool, maxContentBytes);
+            shard.createSchema();
+            created.add(shard);
+        }
+        this.shards = List.copyOf(created);
+
+        this.map = new ShardMap(bucketRepository, shards.size());
+        map.init();
+        // Cada shard abre los buckets que el catálogo le asigna y que aún no tiene (la primera vez, todos)
+        int[] assignment = map.snapshot();
+        for (NoteShard shard : shards) {
+            List<Integer> owned = new ArrayList<>();
+            for (int bucket = 0; bucket < assignment.length; bucket++) {
+                if (assignment[bucket] == shard.index()) owned.add(bucket);
+            }
+            shard.openBuckets(owned);
+        }
+        log.info("Notas repartidas en {} shards ({} buckets)", shards.size(), ShardMap.BUCKETS);
+    }
+
+    // --- Enrutamiento ---
+
+    private interface ShardOperation<T> {
+        T apply(NoteShard shard, int bucket);
+    }
+
+    // Para leer: si el catálogo local está atrasado, el shard lo dice en la misma consulta y se relee
+    private <T> T read(Long ownerId, ShardOperation<T> operation) {
+        int bucket = ShardMap.bucketOf(ownerId);
+        try {
+            return operation.apply(shards.get(map.shardOf(bucket)), bucket);
+        } catch (BucketMovedException e) {
+            retries.increment();
+            return operation.apply(shards.get(map.reload(bucket)), bucket);
+        }
+    }
+
+    private <T> T write(Long ownerId, ShardOperation<T> operation) {
+        int bucket = ShardMap.bucketOf(ownerId);
+        long deadline = System.currentTimeMillis() + moveWaitMillis;
+        while (true) {
+            int shard = map.shardOf(bucket);
+            try {
+                return operation.apply(shards.get(shard), bucket);
+            } catch (BucketNotWritableException e) {
+                retries.increment();
+                // Si el catálogo ya apunta a otro shard se reintenta allí; si no, el movimiento sigue en curso
+                if (map.reload(bucket) != shard) continue;
+                if (System.currentTimeMillis() > deadline) throw new ShardMovingException(bucket);
+                try {
+                    Thread.sleep(RETRY_PAUSE_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new ShardMovingException(bucket);
+                }
+            }
+        }
+    }
+
+    // Ejecuta la consulta en todos los shards en paralelo; los resultados van en el orden de los shards
+    <T> List<T> scatter(Function<NoteShard, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (NoteShard shard : shards) futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), scatter));
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private List<Long> allocateIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        idLock.lock();
+        try {
+            while (ids.size() < count) {
+                if (nextId == idLimit) {
+                    nextId = catalog.queryForObject(nextIdSql, Long.class);
+                    idLimit = nextId + ID_BLOCK;
+                }
+                ids.add(nextId++);
+            }
+        } finally {
+            idLock.unlock();
+        }
+        return ids;
+    }
+
+    // --- NoteStore ---
+
+    @Override
+    public NoteSummary create(Long ownerId, NoteDraft draft) {
+        long id = allocateIds(1).get(0);
+        return write(ownerId, (shard, bucket) -> shard.create(ownerId, bucket, id, draft));
+    }
+
+    @Override
+    public Optional<NoteSummary> find(Long ownerId, Long noteId) {
+        return read(ownerId, (shard, bucket) -> shard.find(ownerId, bucket, noteId));
+    }
+
+    @Override
+    public Optional<NoteSummary> update(Long ownerId, Long noteId, NoteDraft draft, Long expectedVersion) {
+        return write(ownerId, (shard, bucket) -> shard.update(ownerId, bucket, noteId, draft, expectedVersion));
+    }
+
+    @Override
+    public boolean delete(Long ownerId, Long noteId) {
+        return write(ownerId, (shard, bucket) -> shard.delete(ownerId, bucket, noteId));
+    }
+
+    @Override
+    public List<NoteMetadata> page(Long ownerId, long after, int limit) {
+        return read(ownerId, (shard, bucket) -> shard.page(ownerId, bucket, after, limit));
+    }
+
+    @Override
+    public List<NoteMetadata> metadata(Long ownerId, Collection<Long> noteIds) {
+        return read(ownerId, (shard, bucket) -> shard.metadata(ownerId, bucket, noteIds));
+    }
+
+    // Sin comprobar el bucket: el stream se recorre fuera de aquí. Una copia recién movida sigue
+    // completa hasta cleanup-delay-ms, más que lo que tarda en refrescarse el catálogo
+    @Override
+    public Stream<NoteSummary> stream(Long ownerId) {
+        return shards.get(map.shardOf(ShardMap.bucketOf(ownerId))).stream(ownerId);
+    }
+
+    @Override
+    public List<Long> ownerIds() {
+        // Durante un movimiento un dueño puede estar en dos shards
+        Set<Long> owners = new LinkedHashSet<>();
+        scatter(NoteShard::ownerIds).forEach(owners::addAll);
+        return new ArrayList<>(owners);
+    }
+
+    @Override
+    public Map<Long, Long> countByOwner(Collection<Long> ownerIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (ownerIds.isEmpty()) return counts;
+
+        // Cada dueño se cuenta solo en su shard: una copia a medio mover no se suma
+        Map<Integer, List<Long>> byShard = new HashMap<>();
+        for (Long ownerId : ownerIds) {
+            byShard.computeIfAbsent(map.shardOf(ShardMap.bucketOf(ownerId)), k -> new ArrayList<>()).add(ownerId);
+        }
+        scatter(shard -> {
+            List<Long> own = byShard.get(shard.index());
+            return own == null ? Map.<Long, Long>of() : shard.countByOwner(own);
+        }).forEach(counts::putAll);
+        return counts;
+    }
+
+    @Override
+    public long count() {
+        return scatter(NoteShard::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<NoteChange> changes(Long ownerId, long since, int limit) {
+        return read(ownerId, (shard, bucket) -> shard.changes(ownerId, bucket, since, limit));
+    }
+
+    @Override
+    public long changeSeq(Long ownerId) {
+        return read(ownerId, (shard, bucket) -> shard.changeSeq(ownerId, bucket));
+    }
+
+    @Scheduled(fixedDelayString = "${notes.changes.prune-interval-ms:3600000}")
+    public void pruneChanges() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(changeRetention);
+        scatter(shard -> {
+            shard.pruneChanges(cutoff);
+            return null;
+        });
+    }
+
+    @Override
+    public UpsertResult upsert(Long ownerId, List<NoteDraft> creates, Map<Long, NoteDraft> updates) {
+        List<Long> newIds = allocateIds(creates.size());
+        Map<Long, Boolean> written = write(ownerId, (shard, bucket) -> shard.upsert(ownerId, bucket, newIds, creates, updates));
+        Set<Long> updatedIds = new HashSet<>();
+        written.forEach((id, created) -> {
+            if (!created) updatedIds.add(id);
+        });
+        return new UpsertResult(newIds, updatedIds);
+    }
+
+    @Override
+    public Set<Long> deleteAll(Long ownerId, Collection<Long> noteIds) {
+        return write(ownerId, (shard, bucket) -> shard.deleteAll(ownerId, bucket, noteIds));
+    }
+
+    private interface Body {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * El cuerpo se lee entero antes de bloquear el bucket: en memoria si cabe en un bloque y si no
+     * en un archivo de {@code notes.content.spool-dir}, como en NoteContentStore. Así una subida lenta no detiene las demás
+     * escrituras del bucket ni su movimiento, y un reintento en otro shard vuelve a leer la copia.
+     */
+    @Override
+    public NoteMetadata writeContent(Long ownerId, Long noteId, InputStream in) throws IOException {
+        if (metadata(ownerId, List.of(noteId)).isEmpty()) return null;
+
+        byte[] block = in.readNBytes(NoteChunk.CHUNK_SIZE);
+        if (block.length < NoteChunk.CHUNK_SIZE) return writeContent(ownerId, noteId, () -> new ByteArrayInputStream(block));
+
+        Path spool = Files.createTempFile(spoolDir, "upload-", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(spool)) {
+                long total = block.length;
+                out.write(block);
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    total += n;
+                    if (total > maxContentBytes) throw new NoteContentTooLargeException(maxContentBytes);
+                    out.write(buffer, 0, n);
+                }
+            }
+            return writeContent(ownerId, noteId, () -> Files.newInputStream(spool));
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private NoteMetadata writeContent(Long ownerId, Long noteId, Body body) throws IOException {
+        try {
+            return write(ownerId, (shard, bucket) -> {
+                try (InputStream in = body.open()) {
+                    return shard.writeContent(ownerId, bucket, noteId, in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void copyContent(Long ownerId, Long noteId, long version, long start, long end, OutputStream out) throws IOException {
+        try {
+            read(ownerId, (shard, bucket) -> {
+                try {
+                    shard.copyContent(ownerId, bucket, noteId, version, start, end, out);
+                    return null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // --- Catálogo ---
+
+    @Scheduled(fixedDelayString = "${notes.store.sharded.map-refresh-ms:5000}")
+    public void refreshMap() {
+        map.refresh();
+    }
+
+    List<NoteShard> shards() {
+        return shards;
+    }
+
+    ShardMap map() {
+        return map;
+    }
+
+    // Base principal: catálogo y lease del reparto
+    JdbcTemplate catalog() {
+        return catalog;
+    }
+
+    /**
+     * Por shard: buckets asignados, notas, dueños y bytes de contenido (consultados en paralelo).
+     */
+    public List<Map<String, Object>> stats() {
+        int[] assignment = map.snapshot();
+        return scatter(shard -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("shard", shard.index());
+            stats.put("name", shard.name());
+            stats.put("buckets", Arrays.stream(assignment).filter(s -> s == shard.index()).count());
+            stats.putAll(shard.stats());
+            return stats;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("notes.shard.write.retries", retries, LongAdder::sum)
+                .description("Escrituras reintentadas y lecturas repetidas porque su bucket se estaba moviendo o ya se movió")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        scatter.shutdownNow();
+        shards.forEach(NoteShard::close);
+    }
+}
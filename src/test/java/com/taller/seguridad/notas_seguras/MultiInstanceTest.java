@@ -0,0 +1,130 @@
+package com.taller.seguridad.notas_seguras;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dos instancias de la aplicación sobre la misma base de datos: el token emitido por una
+ * sirve en la otra y ninguna respuesta crea sesión (no hacen falta sesiones "sticky").
+ */
+class MultiInstanceTest {
+
+    private static final String DB = "jdbc:h2:mem:multi-instance;DB_CLOSE_DELAY=-1";
+    private static final String PASSWORD = "P4ssw0rdLarga";
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    // Sin cookie jar: si alguna respuesta dependiera de la sesión, la otra instancia no la vería
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void start() {
+        first = start("a");
+        second = start("b");
+    }
+
+    @AfterAll
+    static void stop() {
+        if (second != null) second.close();
+        if (first != null) first.close();
+    }
+
+    private static ConfigurableApplicationContext start(String name) {
+        return SpringApplication.run(NotasSegurasApplication.class,
+                "--server.port=0",
+                "--spring.application.name=notas-" + name,
+                "--spring.datasource.url=" + DB,
+                "--spring.jpa.hibernate.ddl-auto=update", // la segunda instancia no recrea el esquema
+                "--security.revocation.sync-ms=100",
+                "--logging.level.root=WARN");
+    }
+
+    private static String url(ConfigurableApplicationContext ctx, String path) {
+        return "http://localhost:" + ((WebServerApplicationContext) ctx).getWebServer().getPort() + path;
+    }
+
+    @Test
+    void tokensAreInterchangeableBetweenInstances() throws Exception {
+        String admin = register(first, "admin@multi.com", true);
+        String user = register(second, "user@multi.com", false);
+
+        // Crear en una instancia y leer, listar y editar en la otra
+        HttpResponse<String> created = send(second, user, "POST", "/notes", "{\"title\":\"compartida\",\"content\":\"hola\"}");
+        assertEquals(200, created.statusCode());
+        Matcher id = ID.matcher(created.body());
+        assertTrue(id.find());
+        String path = "/notes/" + id.group(1);
+
+        assertEquals(200, send(first, user, "GET", path, null).statusCode());
+        assertTrue(send(first, user, "GET", "/notes", null).body().contains("compartida"));
+        assertEquals(200, send(first, user, "PUT", path, "{\"title\":\"editada\",\"content\":\"hola\"}").statusCode());
+        assertTrue(send(second, user, "GET", "/notes", null).body().contains("editada"));
+
+        // El rol viaja en el token: el admin lo es en ambas instancias y el usuario en ninguna
+        assertEquals(200, send(second, admin, "GET", "/admin/users", null).statusCode());
+        assertEquals(403, send(first, user, "GET", "/admin/users", null).statusCode());
+
+        // La nota de otro usuario no es visible en ninguna instancia
+        assertEquals(404, send(second, admin, "GET", path, null).statusCode());
+
+        assertEquals(200, send(second, user, "DELETE", path, null).statusCode());
+        assertEquals(404, send(first, user, "GET", path, null).statusCode());
+    }
+
+    @Test
+    void logoutRevokesTheTokenInEveryInstance() throws Exception {
+        String token = register(first, "logout@multi.com", false);
+        assertEquals(200, send(second, token, "GET", "/notes", null).statusCode());
+
+        assertEquals(200, send(first, token, "POST", "/auth/logout", null).statusCode());
+        assertEquals(401, send(first, token, "GET", "/notes", null).statusCode());
+
+        // La otra instancia lo ve en su próxima sincronización con la tabla
+        long deadline = System.currentTimeMillis() + 5_000;
+        int status;
+        do {
+            status = send(second, token, "GET", "/notes", null).statusCode();
+            if (status != 401) Thread.sleep(50);
+        } while (status != 401 && System.currentTimeMillis() < deadline);
+        assertEquals(401, status);
+    }
+
+    private String register(ConfigurableApplicationContext ctx, String email, boolean admin) throws Exception {
+        String body = "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\",\"admin\":" + admin + "}";
+        assertEquals(200, send(ctx, null, "POST", "/auth/register", body).statusCode());
+
+        HttpResponse<String> login = send(ctx, null, "POST", "/auth/login?username=" + email + "&password=" + PASSWORD, null);
+        Matcher m = TOKEN.matcher(login.body());
+        assertTrue(m.find(), login.body());
+        return m.group(1);
+    }
+
+    private HttpResponse<String> send(ConfigurableApplicationContext ctx, String token,
+                                      String method, String path, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url(ctx, path)))
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json));
+        if (json != null) request.header("Content-Type", "application/json");
+        if (token != null) request.header("Authorization", "Bearer " + token);
+
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.headers().firstValue("Set-Cookie").isEmpty(), "La respuesta creó una sesión: " + path);
+        return response;
+    }
+}
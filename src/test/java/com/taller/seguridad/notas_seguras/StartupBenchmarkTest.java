@@ -0,0 +1,159 @@
+package com.taller.seguridad.notas_seguras;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tiempo hasta el primer {@code /auth/login} correcto y memoria residente (RSS) de cada modo de
+ * arranque, con la aplicación ya empaquetada:
+ * <ul>
+ *   <li>{@code jvm}: el jar normal ({@code ./mvnw package}).</li>
+ *   <li>{@code aot}: el mismo jar con {@code -Dspring.aot.enabled=true}, si se empaquetó con {@code -Paot} o {@code -Pcds}.</li>
+ *   <li>{@code cds}: AOT más el archivo CDS de {@code target/cds} ({@code -Pcds}).</li>
+ *   <li>{@code native}: el ejecutable {@code target/notas-seguras} ({@code -Pnative native:compile}).</li>
+ * </ul>
+ * Los modos sin su artefacto se saltan. El tiempo se mide desde que se lanza el proceso, así que
+ * incluye el arranque de la JVM. El RSS se lee de /proc (solo Linux) justo después de ese login.
+ * Se ejecuta solo bajo demanda:
+ * ./mvnw -Pcds -DskipTests package && ./mvnw test -Dbenchmark=true -Dtest=StartupBenchmarkTest [-Dstartup.runs=5]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StartupBenchmarkTest {
+
+    private static final int RUNS = Integer.getInteger("startup.runs", 3);
+    private static final String PASSWORD = "P4ssw0rdLarga";
+    private static final Path TARGET = Path.of("target").toAbsolutePath();
+    private static final String JAR = "notas-seguras-0.0.1-SNAPSHOT.jar";
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    private record Mode(String name, Path workDir, List<String> command) {}
+
+    private record Sample(long millis, long rssKb) {}
+
+    @Test
+    void timeToFirstLogin() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Path jar = TARGET.resolve(JAR);
+
+        List<Mode> modes = new ArrayList<>();
+        if (Files.exists(jar)) {
+            modes.add(new Mode("jvm", TARGET, List.of(java, "-jar", jar.toString())));
+            if (isAotProcessed(jar)) {
+                modes.add(new Mode("aot", TARGET, List.of(java, "-Dspring.aot.enabled=true", "-jar", jar.toString())));
+            }
+        }
+        Path cds = TARGET.resolve("cds");
+        if (Files.exists(cds.resolve("application.jsa"))) {
+            // Mismas rutas relativas que en la ejecución de entrenamiento: si no, la JVM ignora el archivo
+            modes.add(new Mode("cds", cds, List.of(java, "-XX:SharedArchiveFile=application.jsa", "-Xshare:auto",
+                    "-Dspring.aot.enabled=true", "-jar", JAR)));
+        }
+        Path nativeImage = TARGET.resolve("notas-seguras");
+        if (Files.isExecutable(nativeImage)) {
+            modes.add(new Mode("native", TARGET, List.of(nativeImage.toString())));
+        }
+        assertTrue(!modes.isEmpty(), "No hay artefactos: ejecuta antes ./mvnw -Pcds -DskipTests package");
+
+        System.out.printf("%n%-8s %14s %14s %10s%n", "modo", "login p50 ms", "login máx ms", "RSS MB");
+        for (Mode mode : modes) {
+            List<Sample> samples = new ArrayList<>();
+            for (int i = 0; i < RUNS; i++) samples.add(run(mode));
+
+            long[] millis = samples.stream().mapToLong(Sample::millis).sorted().toArray();
+            long[] rss = samples.stream().mapToLong(Sample::rssKb).sorted().toArray();
+            System.out.printf("%-8s %14d %14d %10s%n", mode.name(), millis[millis.length / 2], millis[millis.length - 1],
+                    rss[rss.length / 2] < 0 ? "n/d" : String.valueOf(rss[rss.length / 2] / 1024));
+        }
+    }
+
+    private Sample run(Mode mode) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(mode.command());
+        command.addAll(Arrays.asList("--server.port=" + port, "--logging.level.root=WARN", "--rate-limit.enabled=false"));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(mode.workDir().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "startup-" + mode.name() + ".log"))
+                .start();
+        try {
+            String base = "http://localhost:" + port;
+            String email = "startup-" + mode.name() + "@demo.com";
+            String register = "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+            String login = "/auth/login?username=" + email + "&password=" + PASSWORD;
+
+            long deadline = start + TimeUnit.SECONDS.toNanos(120);
+            while (post(base, "/auth/register", register) != 200) {
+                assertTrue(process.isAlive(), mode.name() + ": el proceso terminó durante el arranque");
+                assertTrue(System.nanoTime() < deadline, mode.name() + ": no arrancó en 120 s");
+                Thread.sleep(10);
+            }
+            int status = post(base, login, null);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(status == 200, mode.name() + ": login respondió " + status);
+            return new Sample(millis, rssKb(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+
+    // -1 mientras el servidor todavía no acepta conexiones
+    private int post(String base, String path, String json) throws InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(10));
+        if (json != null) {
+            request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json));
+        } else {
+            request.POST(HttpRequest.BodyPublishers.noBody());
+        }
+        try {
+            return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isAotProcessed(Path jar) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            return file.getEntry("BOOT-INF/classes/com/taller/seguridad/notas_seguras/"
+                    + "NotasSegurasApplication__ApplicationContextInitializer.class") != null;
+        }
+    }
+
+    private static long rssKb(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fuera de Linux
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.taller.seguridad.notas_seguras;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comparación de carga de /auth/login y /notes con hilos de plataforma vs. hilos virtuales.
+ * Levanta la aplicación dos veces (una por modo) y reporta p50/p99 y throughput.
+ * Se ejecuta solo bajo demanda:
+ * ./mvnw test -Dbenchmark=true -Dtest=VirtualThreadsLoadTest [-Dload.concurrency=200]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadsLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 200);
+    private static final int LOGINS_PER_CLIENT = Integer.getInteger("load.logins", 3);
+    private static final int NOTES_PER_CLIENT = Integer.getInteger("load.notes", 50);
+    private static final String PASSWORD = "P4ssw0rdLarga";
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    @Test
+    void platformVsVirtualThreads() throws Exception {
+        for (boolean virtual : new boolean[]{false, true}) {
+            ConfigurableApplicationContext ctx = SpringApplication.run(NotasSegurasApplication.class,
+                    "--server.port=0",
+                    "--spring.threads.virtual.enabled=" + virtual,
+                    "--spring.datasource.url=jdbc:h2:mem:load-" + virtual,
+                    "--rate-limit.enabled=false",
+                    "--logging.level.root=WARN");
+            try {
+                int port = ((WebServerApplicationContext) ctx).getWebServer().getPort();
+                run(virtual ? "virtual" : "platform", "http://localhost:" + port);
+            } finally {
+                ctx.close();
+            }
+        }
+    }
+
+    private void run(String mode, String baseUrl) throws Exception {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            Client client = new Client(baseUrl, "load" + i + "@test.com");
+            client.register();
+            clients.add(client);
+        }
+
+        Result login = measure(clients, LOGINS_PER_CLIENT, Client::login);
+        Result notes = measure(clients, NOTES_PER_CLIENT, Client::listNotes);
+
+        System.out.printf("[%s] /auth/login %s%n", mode, login);
+        System.out.printf("[%s] /notes      %s%n", mode, notes);
+        assertTrue(notes.ok > 0, "Ninguna petición a /notes fue exitosa");
+    }
+
+    private interface Call {
+        int call(Client client) throws Exception;
+    }
+
+    private Result measure(List<Client> clients, int perClient, Call call) throws Exception {
+        long[] latencies = new long[clients.size() * perClient];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger ok = new AtomicInteger();
+
+        // Un hilo virtual por cliente: el generador de carga no debe ser el cuello de botella
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Client client : clients) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perClient; i++) {
+                        long t0 = System.nanoTime();
+                        int status = call.call(client);
+                        latencies[next.getAndIncrement()] = System.nanoTime() - t0;
+                        if (status == 200) ok.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(latencies, ok.get(), elapsed);
+    }
+
+    private static final class Result {
+        final long[] sorted;
+        final int ok;
+        final long elapsedNanos;
+
+        Result(long[] sorted, int ok, long elapsedNanos) {
+            this.sorted = sorted;
+            this.ok = ok;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double percentileMillis(double p) {
+            int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("peticiones=%d ok=%d p50=%.1fms p99=%.1fms throughput=%.0f req/s",
+                    sorted.length, ok, percentileMillis(50), percentileMillis(99), sorted.length / seconds);
+        }
+    }
+
+    // Cliente con su propio cliente HTTP y token
+    private static final class Client {
+        final String baseUrl;
+        final String email;
+        final HttpClient http;
+        String token;
+
+        Client(String baseUrl, String email) {
+            this.baseUrl = baseUrl;
+            this.email = email;
+            this.http = HttpClient.newHttpClient();
+        }
+
+        void register() throws Exception {
+            String body = "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+            while (send(HttpRequest.newBuilder(URI.create(baseUrl + "/auth/register"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))).statusCode() == 503) {
+                Thread.sleep(50);
+            }
+            while (login() == 503) {
+                Thread.sleep(50);
+            }
+        }
+
+        int login() throws Exception {
+            HttpResponse<String> response = send(HttpRequest.newBuilder(
+                    URI.create(baseUrl + "/auth/login?username=" + email + "&password=" + PASSWORD))
+                    .POST(HttpRequest.BodyPublishers.noBody()));
+            Matcher m = TOKEN.matcher(response.body());
+            if (m.find()) token = m.group(1);
+            return response.statusCode();
+        }
+
+        int listNotes() throws Exception {
+            return send(HttpRequest.newBuilder(URI.create(baseUrl + "/notes"))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()).statusCode();
+        }
+
+        HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+            return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.taller.seguridad.notas_seguras.audit;
+
+import com.jayway.jsonpath.JsonPath;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import com.taller.seguridad.notas_seguras.security.LoginAttemptTracker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Registro, login fallido y login correcto quedan en {@code audit_events} (escritos en segundo
+ * plano) y se consultan por páginas en {@code GET /admin/audit}; el último login se guarda en el
+ * usuario al vaciar el LoginAttemptTracker.
+ */
+@SpringBootTest(properties = {
+        "audit.flush-interval-ms=20",
+        "rate-limit.enabled=false"
+})
+@AutoConfigureMockMvc
+class AuditLogTest {
+
+    private static final String PASSWORD = "P4ssw0rdLarga";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private LoginAttemptTracker loginAttemptTracker;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void registraLosEventosDeAutenticacionYLosPagina() throws Exception {
+        String email = "audit" + System.nanoTime() + "@test.com";
+        perform(post("/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}"), 200);
+        perform(post("/auth/login").param("username", email).param("password", "otraClave123"), 401);
+        perform(post("/auth/login").param("username", email).param("password", PASSWORD), 200);
+        perform(post("/auth/login").param("username", "nadie@test.com").param("password", PASSWORD), 401);
+
+        long userId = userRepository.findByEmail(email).orElseThrow().getId();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (auditLog.getPending() > 0 || auditLog.getWritten() < 4) {
+            assertTrue(System.currentTimeMillis() < deadline, "la auditoría no se escribió en 5 s");
+            Thread.sleep(10);
+        }
+
+        User admin = new User();
+        admin.setEmail("audit-admin" + System.nanoTime() + "@test.com");
+        admin.setPassword("$2a$10$abcdefghijklmnopqrstuuJ1yV8Wj0eZpWm0sQzOq4H0h8b2g5k8e"); // no se usa para login
+        admin.setRole(User.Role.ADMIN);
+        admin = userRepository.save(admin);
+        String auth = "Bearer " + jwtService.generateToken(admin.getId(), admin.getEmail(), "ADMIN");
+
+        // Del más reciente al más antiguo, de dos en dos
+        String first = mockMvc.perform(get("/admin/audit").param("userId", String.valueOf(userId)).param("limit", "2")
+                        .header("Authorization", auth))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertEquals(List.of("LOGIN_SUCCESS", "LOGIN_FAILURE"), JsonPath.read(first, "$.items[*].type"));
+        String next = JsonPath.read(first, "$.next");
+        assertNotNull(next);
+
+        String second = mockMvc.perform(get("/admin/audit").param("userId", String.valueOf(userId)).param("limit", "2")
+                        .param("before", next).header("Authorization", auth))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertEquals(List.of("REGISTER"), JsonPath.read(second, "$.items[*].type"));
+        assertNull(JsonPath.read(second, "$.next"));
+
+        mockMvc.perform(get("/admin/audit").param("before", "42").header("Authorization", auth))
+                .andExpect(status().isBadRequest());
+
+        String unknown = mockMvc.perform(get("/admin/audit").param("type", "LOGIN_UNKNOWN_USER")
+                        .header("Authorization", auth))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertTrue(JsonPath.<List<String>>read(unknown, "$.items[*].email").contains("nadie@test.com"));
+
+        loginAttemptTracker.flush();
+        assertNotNull(userRepository.findByEmail(email).orElseThrow().getLastLogin());
+    }
+
+    // /auth/register y /auth/login responden de forma asíncrona
+    private void perform(RequestBuilder request, int expectedStatus) throws Exception {
+        MvcResult started = mockMvc.perform(request).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().is(expectedStatus));
+    }
+}
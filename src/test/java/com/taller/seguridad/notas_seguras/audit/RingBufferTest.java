@@ -0,0 +1,70 @@
+package com.taller.seguridad.notas_seguras.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void lleno_rechazaSinEsperarYSeReutilizaAlVaciar() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        List<Integer> out = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(out, 3));
+        assertEquals(List.of(0, 1, 2), out);
+        for (int i = 5; i < 8; i++) assertTrue(buffer.offer(i)); // las posiciones liberadas, en la vuelta siguiente
+        assertFalse(buffer.offer(8));
+
+        out.clear();
+        assertEquals(4, buffer.drainTo(out, 10));
+        assertEquals(List.of(3, 5, 6, 7), out);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void variosProductores_unConsumidor_nadaSePierdeNiSeDesordenaPorProductor() throws Exception {
+        int producers = 4;
+        int perProducer = 10_000;
+        RingBuffer<long[]> buffer = new RingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(producers)) {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                pool.submit(() -> {
+                    start.await();
+                    for (long seq = 0; seq < perProducer; seq++) {
+                        while (!buffer.offer(new long[]{producer, seq})) Thread.onSpinWait();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+
+            long[] nextSeq = new long[producers];
+            List<long[]> batch = new ArrayList<>();
+            long received = 0;
+            while (received < (long) producers * perProducer) {
+                batch.clear();
+                received += buffer.drainTo(batch, 256);
+                for (long[] item : batch) {
+                    assertEquals(nextSeq[(int) item[0]]++, item[1], "productor " + item[0]);
+                }
+            }
+            for (long seq : nextSeq) assertEquals(perProducer, seq);
+        }
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,100 @@
+package com.taller.seguridad.notas_seguras.controller;
+
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteRepository;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Benchmark de importación de 10k notas: una petición por nota vs. POST /notes/batch.
+ * Se ejecuta solo bajo demanda: ./mvnw test -Dbenchmark=true -Dtest=NoteBatchBenchmarkTest
+ */
+@SpringBootTest(properties = "rate-limit.enabled=false")
+@AutoConfigureMockMvc
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class NoteBatchBenchmarkTest {
+
+    private static final int NOTES = 10_000;
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void importSingleVsBatch() throws Exception {
+        long single = importSingle(newUser("single@bench.com"));
+        long batch = importBatch(newUser("batch@bench.com"));
+
+        System.out.printf("Importación de %d notas -> individual: %d ms, lote (%d): %d ms, aceleración x%.1f%n",
+                NOTES, single, BATCH_SIZE, batch, (double) single / batch);
+    }
+
+    private long importSingle(User user) throws Exception {
+        String auth = "Bearer " + jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NOTES; i++) {
+            mockMvc.perform(post("/notes")
+                            .header("Authorization", auth)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"title\":\"nota " + i + "\",\"content\":\"contenido " + i + "\"}"))
+                    .andExpect(status().isOk());
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(NOTES, noteRepository.findByOwner(user).size());
+        return elapsed;
+    }
+
+    private long importBatch(User user) throws Exception {
+        String auth = "Bearer " + jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
+
+        long start = System.nanoTime();
+        for (int from = 0; from < NOTES; from += BATCH_SIZE) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = from; i < from + BATCH_SIZE; i++) {
+                if (i > from) body.append(',');
+                body.append("{\"title\":\"nota ").append(i).append("\",\"content\":\"contenido ").append(i).append("\"}");
+            }
+            body.append(']');
+
+            mockMvc.perform(post("/notes/batch")
+                            .header("Authorization", auth)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body.toString()))
+                    .andExpect(status().isOk());
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(NOTES, noteRepository.findByOwner(user).size());
+        return elapsed;
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuJ1yV8Wj0eZpWm0sQzOq4H0h8b2g5k8e"); // no se usa para login
+        user.setRole(User.Role.USER);
+        return userRepository.save(user);
+    }
+}
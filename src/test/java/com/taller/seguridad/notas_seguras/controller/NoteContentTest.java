@@ -0,0 +1,141 @@
+package com.taller.seguridad.notas_seguras.controller;
+
+import com.taller.seguridad.notas_seguras.model.Note;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteRepository;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import com.taller.seguridad.notas_seguras.storage.NoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Subida y descarga en streaming del contenido: por bloques, por rangos y en línea.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class NoteContentTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private NoteStore noteStore;
+
+    private String auth;
+    private Long ownerId;
+    private Long noteId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail("content" + System.nanoTime() + "@test.com");
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuJ1yV8Wj0eZpWm0sQzOq4H0h8b2g5k8e"); // no se usa para login
+        user.setRole(User.Role.USER);
+        user = userRepository.save(user);
+        ownerId = user.getId();
+        auth = "Bearer " + jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
+        noteId = noteRepository.save(new Note("grande", "inicial", user)).getId();
+    }
+
+    @Test
+    void chunkedContentWithRanges() throws Exception {
+        byte[] content = new byte[200_000]; // 4 bloques de 64 KB
+        new Random(42).nextBytes(content);
+
+        mockMvc.perform(put("/notes/" + noteId + "/content").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content(content))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(content.length));
+
+        mockMvc.perform(get("/notes/" + noteId).header("Authorization", auth))
+                .andExpect(jsonPath("$.content").doesNotExist())
+                .andExpect(jsonPath("$.size").value(content.length));
+
+        assertArrayEquals(content, download(get("/notes/" + noteId + "/content"), 200));
+
+        // Rango que cruza el límite entre el primer y el segundo bloque
+        byte[] partial = download(get("/notes/" + noteId + "/content").header("Range", "bytes=65000-70000"), 206);
+        assertArrayEquals(Arrays.copyOfRange(content, 65000, 70001), partial);
+
+        byte[] suffix = download(get("/notes/" + noteId + "/content").header("Range", "bytes=-100"), 206);
+        assertArrayEquals(Arrays.copyOfRange(content, content.length - 100, content.length), suffix);
+
+        mockMvc.perform(get("/notes/" + noteId + "/content").header("Authorization", auth)
+                        .header("Range", "bytes=300000-"))
+                .andExpect(status().is(416))
+                .andExpect(header().string("Content-Range", "bytes */" + content.length));
+    }
+
+    @Test
+    void downloadOfReplacedVersionIsCut() throws Exception {
+        byte[] content = new byte[100_000];
+        new Random(7).nextBytes(content);
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(put("/notes/" + noteId + "/content").header("Authorization", auth)
+                            .contentType(MediaType.APPLICATION_OCTET_STREAM).content(content))
+                    .andExpect(status().isOk());
+        }
+        // Una versión por subida: la primera cambia la fila de la nota, la segunda solo los bloques
+        long version = noteStore.find(ownerId, noteId).orElseThrow().getVersion();
+        assertEquals(2, version);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        noteStore.copyContent(ownerId, noteId, version, 0, content.length - 1, out);
+        assertArrayEquals(content, out.toByteArray());
+
+        // Las cabeceras se armaron con la versión anterior: no se mezcla con el contenido nuevo
+        assertThrows(IOException.class,
+                () -> noteStore.copyContent(ownerId, noteId, version - 1, 0, content.length - 1, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void smallTextStaysInline() throws Exception {
+        mockMvc.perform(put("/notes/" + noteId + "/content").header("Authorization", auth)
+                        .contentType(MediaType.TEXT_PLAIN).content("texto pequeño"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/notes/" + noteId).header("Authorization", auth))
+                .andExpect(jsonPath("$.content").value("texto pequeño"));
+
+        assertEquals("texto", new String(download(get("/notes/" + noteId + "/content").header("Range", "bytes=0-4"), 206)));
+    }
+
+    private byte[] download(MockHttpServletRequestBuilder request, int expectedStatus) throws Exception {
+        MvcResult started = mockMvc.perform(request.header("Authorization", auth)).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().is(expectedStatus))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,101 @@
+package com.taller.seguridad.notas_seguras.controller;
+
+import com.taller.seguridad.notas_seguras.model.Note;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.NoteRepository;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ETags, If-None-Match (304) e If-Match (412) sobre la nota y el listado.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class NoteETagTest {
+
+    private static final String EDIT = "{\"title\":\"editada\",\"content\":\"nuevo\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private String auth;
+    private Long noteId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail("etag" + System.nanoTime() + "@test.com");
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuJ1yV8Wj0eZpWm0sQzOq4H0h8b2g5k8e"); // no se usa para login
+        user.setRole(User.Role.USER);
+        user = userRepository.save(user);
+        auth = "Bearer " + jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
+        noteId = noteRepository.save(new Note("original", "contenido", user)).getId();
+    }
+
+    @Test
+    void notaNoModificadaYEdicionConcurrente() throws Exception {
+        mockMvc.perform(get("/notes/" + noteId).header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""));
+
+        mockMvc.perform(get("/notes/" + noteId).header("Authorization", auth).header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/notes/" + noteId).header("Authorization", auth).header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(EDIT))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+
+        // Otro editor con la versión anterior no pisa el cambio
+        mockMvc.perform(put("/notes/" + noteId).header("Authorization", auth).header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(EDIT))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/notes/" + noteId).header("Authorization", auth).header("If-None-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+    }
+
+    @Test
+    void listadoNoModificado() throws Exception {
+        String etag = mockMvc.perform(get("/notes").header("Authorization", auth))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/notes").header("Authorization", auth).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/notes/" + noteId).header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON).content(EDIT))
+                .andExpect(status().isOk());
+
+        String changed = mockMvc.perform(get("/notes").header("Authorization", auth).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changed);
+    }
+}
@@ -0,0 +1,104 @@
+package com.taller.seguridad.notas_seguras.datasource;
+
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Enrutado a réplicas con varias bases H2 en memoria: la réplica 1 es la misma base que el
+ * primario (al día) y la réplica 2 otra base, primero sin la tabla de heartbeat y después con uno
+ * antiguo. Las revisiones se lanzan a mano.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "datasource.replica.urls=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1, " + DataSourceRoutingTest.STALE_URL,
+        "datasource.replica.check-interval-ms=3600000",
+        "datasource.replica.max-lag-ms=5000",
+        "rate-limit.enabled=false"
+})
+@AutoConfigureMockMvc
+class DataSourceRoutingTest {
+
+    static final String STALE_URL = "jdbc:h2:mem:routing-stale;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReplicaRouter router;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void enrutaLasLecturasSegunLaSaludDeLasReplicasYLasEscriturasRecientes() throws Exception {
+        String auth = newUser("lector");
+        ReplicaRouter.Replica upToDate = router.replicas().get(0);
+        ReplicaRouter.Replica stale = router.replicas().get(1);
+
+        router.checkReplicas();
+        assertTrue(upToDate.healthy);
+        assertFalse(stale.healthy, "sin tabla de heartbeat no es sana");
+
+        // Un GET de quien no escribió va a la réplica sana
+        long replicaReads = router.getReplicaReads();
+        long primaryReads = router.getPrimaryReads();
+        mockMvc.perform(get("/notes").header("Authorization", auth)).andExpect(status().isOk());
+        assertTrue(router.getReplicaReads() > replicaReads);
+        assertEquals(primaryReads, router.getPrimaryReads());
+
+        // Después de su propia escritura, sus lecturas van al primario
+        mockMvc.perform(post("/notes").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"t\",\"content\":\"c\"}"))
+                .andExpect(status().isOk());
+        primaryReads = router.getPrimaryReads();
+        mockMvc.perform(get("/notes").header("Authorization", auth)).andExpect(status().isOk());
+        assertTrue(router.getPrimaryReads() > primaryReads);
+
+        // Con un heartbeat de hace un minuto la réplica 2 sigue fuera por retraso
+        try (Connection connection = DriverManager.getConnection(STALE_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table replication_heartbeat (id integer primary key, updated_at bigint not null)");
+            statement.execute("insert into replication_heartbeat values (1, " + (System.currentTimeMillis() - 60_000) + ")");
+        }
+        router.checkReplicas();
+        assertFalse(stale.healthy);
+        assertTrue(stale.lagMillis >= 60_000);
+
+        // Si la réplica sana falla al dar una conexión, se salta y se lee del primario
+        upToDate.pool.close();
+        long fallbackReads = router.getFallbackReads();
+        mockMvc.perform(get("/notes").header("Authorization", newUser("otro"))).andExpect(status().isOk());
+        assertFalse(upToDate.healthy);
+        assertTrue(router.getFallbackReads() > fallbackReads);
+    }
+
+    private String newUser(String name) {
+        User user = new User();
+        user.setEmail(name + System.nanoTime() + "@test.com");
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuJ1yV8Wj0eZpWm0sQzOq4H0h8b2g5k8e"); // no se usa para login
+        user.setRole(User.Role.USER);
+        user = userRepository.save(user);
+        return "Bearer " + jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
+    }
+}
@@ -0,0 +1,293 @@
+package com.taller.seguridad.notas_seguras.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generador de carga contra una instancia levantada de la aplicación.
+ * <p>
+ * Ejecuta una mezcla de escenarios (recorrido completo de un usuario y ráfagas de
+ * logins fallidos) en modo cerrado (N usuarios concurrentes) o abierto (llegadas por
+ * segundo, independientes de lo que tarde el servidor) y registra la latencia de cada
+ * endpoint en histogramas HdrHistogram.
+ */
+public class LoadGenerator {
+
+    private static final String PASSWORD = "P4ssw0rdLarga";
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private static final IntPredicate OK = status -> status >= 200 && status < 300;
+    // En una ráfaga de logins fallidos 401/403 (o 429 del límite de peticiones) son la respuesta esperada
+    private static final IntPredicate REJECTED = status -> status == 401 || status == 403 || status == 429;
+
+    // --- Configuración ---
+    public static class Config {
+        public enum Mode { OPEN, CLOSED }
+
+        Mode mode = Mode.OPEN;
+        int concurrency = 50;          // usuarios en modo cerrado / máximo en vuelo en modo abierto
+        double arrivalsPerSecond = 20; // solo modo abierto
+        Duration duration = Duration.ofSeconds(30);
+        int notesPerUser = 5;
+        double stormShare = 0.2;       // fracción de escenarios que son ráfagas de logins fallidos
+        int stormAttempts = 10;
+
+        /**
+         * Lee la configuración de propiedades del sistema {@code load.*}.
+         */
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.mode = Mode.valueOf(System.getProperty("load.mode", c.mode.name()).toUpperCase());
+            c.concurrency = Integer.getInteger("load.concurrency", c.concurrency);
+            c.arrivalsPerSecond = Double.parseDouble(System.getProperty("load.rate", String.valueOf(c.arrivalsPerSecond)));
+            c.duration = Duration.ofSeconds(Long.getLong("load.duration", c.duration.toSeconds()));
+            c.notesPerUser = Integer.getInteger("load.notes", c.notesPerUser);
+            c.stormShare = Double.parseDouble(System.getProperty("load.storm-share", String.valueOf(c.stormShare)));
+            c.stormAttempts = Integer.getInteger("load.storm-attempts", c.stormAttempts);
+            return c;
+        }
+
+        @Override
+        public String toString() {
+            return mode == Mode.OPEN
+                    ? String.format("modo=abierto llegadas=%.1f/s máx-en-vuelo=%d duración=%ds notas=%d ráfagas=%.0f%%",
+                    arrivalsPerSecond, concurrency, duration.toSeconds(), notesPerUser, stormShare * 100)
+                    : String.format("modo=cerrado usuarios=%d duración=%ds notas=%d ráfagas=%.0f%%",
+                    concurrency, duration.toSeconds(), notesPerUser, stormShare * 100);
+        }
+    }
+
+    // --- Estadísticas por endpoint ---
+    static final class EndpointStats {
+        final Histogram latencyMicros = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean error) {
+            latencyMicros.recordValue(Math.max(1, nanos / 1_000));
+            if (error) errors.increment();
+        }
+    }
+
+    private final String baseUrl;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong userSequence = new AtomicLong();
+    private final LongAdder droppedArrivals = new LongAdder();
+    private final List<String> victims = new ArrayList<>();
+
+    public LoadGenerator(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public String run(Config config) throws Exception {
+        // Cuentas objetivo de las ráfagas de logins fallidos
+        for (int i = 0; i < 5; i++) {
+            VirtualUser victim = new VirtualUser();
+            victim.register();
+            victims.add(victim.email);
+        }
+        stats.clear();
+
+        long start = System.nanoTime();
+        long deadline = start + config.duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (config.mode == Config.Mode.CLOSED) {
+                for (int i = 0; i < config.concurrency; i++) {
+                    executor.submit(() -> {
+                        while (System.nanoTime() < deadline) {
+                            runScenario(config, System.nanoTime());
+                        }
+                        return null;
+                    });
+                }
+            } else {
+                runOpen(config, executor, start, deadline);
+            }
+        }
+
+        return report(config, System.nanoTime() - start);
+    }
+
+    // Llegadas a intervalos fijos; la latencia del escenario se mide desde el instante planificado
+    private void runOpen(Config config, ExecutorService executor, long start, long deadline) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.concurrency);
+        long interval = (long) (1_000_000_000L / config.arrivalsPerSecond);
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= deadline) break;
+
+            long wait = intended - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+
+            if (!inFlight.tryAcquire()) {
+                droppedArrivals.increment();
+                continue;
+            }
+            executor.submit(() -> {
+                try {
+                    runScenario(config, intended);
+                } finally {
+                    inFlight.release();
+                }
+                return null;
+            });
+        }
+    }
+
+    private void runScenario(Config config, long intendedStart) {
+        boolean storm = ThreadLocalRandom.current().nextDouble() < config.stormShare;
+        String name = storm ? "escenario: ráfaga logins fallidos" : "escenario: recorrido usuario";
+        boolean failed = false;
+        try {
+            if (storm) {
+                failedLoginStorm(config);
+            } else {
+                userJourney(config);
+            }
+        } catch (Exception e) {
+            failed = true;
+        }
+        stats(name).record(System.nanoTime() - intendedStart, failed);
+    }
+
+    // register → login → crear N notas → listar → obtener / actualizar / eliminar cada una
+    private void userJourney(Config config) throws Exception {
+        VirtualUser user = new VirtualUser();
+        user.register();
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < config.notesPerUser; i++) {
+            String note = "{\"title\":\"nota " + i + "\",\"content\":\"contenido de prueba " + i + "\"}";
+            HttpResponse<String> created = user.send("POST /notes", OK, json(uri("/notes")).POST(body(note)));
+            Matcher m = ID.matcher(created.body());
+            if (m.find()) ids.add(Long.parseLong(m.group(1)));
+        }
+
+        user.send("GET /notes", OK, HttpRequest.newBuilder(uri("/notes")).GET());
+
+        for (Long id : ids) {
+            user.send("GET /notes/{id}", OK, HttpRequest.newBuilder(uri("/notes/" + id)).GET());
+        }
+        for (Long id : ids) {
+            String update = "{\"title\":\"editada " + id + "\",\"content\":\"contenido editado\"}";
+            user.send("PUT /notes/{id}", OK, json(uri("/notes/" + id)).PUT(body(update)));
+        }
+        for (Long id : ids) {
+            user.send("DELETE /notes/{id}", OK, HttpRequest.newBuilder(uri("/notes/" + id)).DELETE());
+        }
+    }
+
+    private void failedLoginStorm(Config config) throws Exception {
+        String victim = victims.get(ThreadLocalRandom.current().nextInt(victims.size()));
+        VirtualUser attacker = new VirtualUser();
+        for (int i = 0; i < config.stormAttempts; i++) {
+            attacker.send("POST /auth/login (fallido)", REJECTED, HttpRequest.newBuilder(
+                    uri("/auth/login?username=" + victim + "&password=incorrecta" + i))
+                    .POST(HttpRequest.BodyPublishers.noBody()));
+        }
+    }
+
+    // --- Reporte ---
+    private String report(Config config, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Carga: %s, transcurrido=%.1fs, llegadas descartadas=%d%n",
+                config, seconds, droppedArrivals.sum()));
+        out.append(String.format("%-36s %8s %8s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "n", "err%", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        for (Map.Entry<String, EndpointStats> e : new TreeMap<>(stats).entrySet()) {
+            Histogram h = e.getValue().latencyMicros;
+            long n = h.getTotalCount();
+            out.append(String.format("%-36s %8d %7.2f%% %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    e.getKey(), n, n == 0 ? 0 : 100.0 * e.getValue().errors.sum() / n, n / seconds,
+                    h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0,
+                    h.getValueAtPercentile(99) / 1000.0, h.getValueAtPercentile(99.9) / 1000.0,
+                    h.getMaxValue() / 1000.0));
+        }
+        return out.toString();
+    }
+
+    public long totalRequests() {
+        return stats.entrySet().stream()
+                .filter(e -> !e.getKey().startsWith("escenario"))
+                .mapToLong(e -> e.getValue().latencyMicros.getTotalCount())
+                .sum();
+    }
+
+    private EndpointStats stats(String endpoint) {
+        return stats.computeIfAbsent(endpoint, k -> new EndpointStats());
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static HttpRequest.Builder json(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/json");
+    }
+
+    private static HttpRequest.BodyPublisher body(String json) {
+        return HttpRequest.BodyPublishers.ofString(json);
+    }
+
+    // Usuario virtual: su propio cliente HTTP y token (la API no usa sesión)
+    private final class VirtualUser {
+        final String email = "carga" + userSequence.incrementAndGet() + "@test.com";
+        final HttpClient http = HttpClient.newHttpClient();
+        String token;
+
+        void register() throws Exception {
+            String json = "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}";
+            send("POST /auth/register", OK, json(uri("/auth/register")).POST(body(json)));
+
+            HttpResponse<String> login = send("POST /auth/login", OK, HttpRequest.newBuilder(
+                    uri("/auth/login?username=" + email + "&password=" + PASSWORD))
+                    .POST(HttpRequest.BodyPublishers.noBody()));
+            Matcher m = TOKEN.matcher(login.body());
+            if (m.find()) token = m.group(1);
+        }
+
+        HttpResponse<String> send(String endpoint, IntPredicate expected, HttpRequest.Builder request) throws Exception {
+            if (token != null) request.header("Authorization", "Bearer " + token);
+
+            long t0 = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            } catch (Exception e) {
+                stats(endpoint).record(System.nanoTime() - t0, true);
+                throw e;
+            }
+            boolean error = !expected.test(response.statusCode());
+            stats(endpoint).record(System.nanoTime() - t0, error);
+            if (error && expected == OK) {
+                throw new IllegalStateException(endpoint + " -> " + response.statusCode());
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.taller.seguridad.notas_seguras.load;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga de extremo a extremo (filtros JWT, validación, JPA) en un puerto aleatorio.
+ * Se ejecuta solo bajo demanda, por ejemplo:
+ * ./mvnw test -Dbenchmark=true -Dtest=LoadGeneratorTest -Dload.mode=open -Dload.rate=50 -Dload.duration=60
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "rate-limit.enabled=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LoadGeneratorTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void scenarioMix() throws Exception {
+        LoadGenerator generator = new LoadGenerator("http://localhost:" + port);
+        System.out.print(generator.run(LoadGenerator.Config.fromSystemProperties()));
+
+        assertTrue(generator.totalRequests() > 0, "No se ejecutó ninguna petición");
+    }
+}
@@ -0,0 +1,42 @@
+package com.taller.seguridad.notas_seguras.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OwnerIndexTest {
+
+    private static List<Long> search(OwnerIndex index, String term, boolean prefix) {
+        return index.search(List.of(term), List.of(prefix), 10);
+    }
+
+    @Test
+    void rankingPrefijosYBorrado() {
+        OwnerIndex index = new OwnerIndex();
+        index.upsert(1L, "Compras", "leche y pan para la reunión");
+        index.upsert(2L, "Reunión de equipo", "agenda del lunes");
+
+        // El título pesa más que el contenido; las tildes se ignoran
+        assertEquals(List.of(2L, 1L), search(index, "reunion", false));
+        assertEquals(List.of(2L), index.search(List.of("reun", "lunes"), List.of(true, false), 10));
+
+        index.upsert(2L, "Equipo", "sin agenda");
+        assertEquals(List.of(1L), search(index, "reunion", false));
+
+        index.remove(1L);
+        assertTrue(search(index, "reunion", false).isEmpty());
+    }
+
+    @Test
+    void compactaIdsDeDocumentoLibres() {
+        OwnerIndex index = new OwnerIndex();
+        for (long id = 1; id <= 500; id++) index.upsert(id, "nota " + id, "texto comun");
+        for (long id = 1; id <= 450; id++) index.remove(id);
+
+        assertEquals(50, index.search(List.of("comun"), List.of(false), 100).size());
+        assertEquals(List.of(500L), search(index, "500", false));
+    }
+}
@@ -0,0 +1,60 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void rafagaRecargaYDesalojo() {
+        AtomicLong now = new AtomicLong(1_000 * SECOND);
+        RateLimiter limiter = new RateLimiter(100, now::get);
+        RateLimiter.Limit limit = RateLimiter.Limit.parse("5/10s"); // un token cada 2 s
+
+        for (int i = 0; i < 5; i++) assertEquals(0, limiter.tryAcquire("ip:1", limit));
+        assertEquals(2 * SECOND, limiter.tryAcquire("ip:1", limit));
+        // Otra clave tiene su propio bucket
+        assertEquals(0, limiter.tryAcquire("ip:2", limit));
+
+        now.addAndGet(2 * SECOND);
+        assertEquals(0, limiter.tryAcquire("ip:1", limit));
+        assertTrue(limiter.tryAcquire("ip:1", limit) > 0);
+
+        // Con los buckets llenos de nuevo no queda nada que recordar
+        now.addAndGet(10 * SECOND);
+        limiter.evictIdle();
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void clavesNuevasCompartenUnBucketCuandoElMapaEstaLleno() throws InterruptedException {
+        AtomicLong now = new AtomicLong(0);
+        RateLimiter limiter = new RateLimiter(2, now::get);
+        RateLimiter.Limit limit = RateLimiter.Limit.parse("1/1m");
+
+        assertEquals(0, limiter.tryAcquire("a", limit));
+        assertEquals(0, limiter.tryAcquire("b", limit));
+        // "c" y "d" no caben: usan el bucket de desborde y la segunda se rechaza
+        assertEquals(0, limiter.tryAcquire("c", limit));
+        assertTrue(limiter.tryAcquire("d", limit) > 0);
+
+        // Con "a" y "b" ya inactivas, una clave nueva lanza el barrido en segundo plano (queda el
+        // bucket de desborde, que "e" acaba de usar)
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertEquals(0, limiter.tryAcquire("e", limit));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (limiter.size() > 1) {
+            assertTrue(System.currentTimeMillis() < deadline, "el barrido no terminó en 5 s");
+            Thread.sleep(10);
+        }
+        assertEquals(0, limiter.tryAcquire("f", limit));
+        assertTrue(limiter.tryAcquire("f", limit) > 0, "\"f\" tiene su propio bucket");
+    }
+}
@@ -0,0 +1,45 @@
+package com.taller.seguridad.notas_seguras.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevokedTokenSetTest {
+
+    @Test
+    void sinFalsosNegativosAlCrecerNiAlPurgar() throws Exception {
+        RevokedTokenSet set = new RevokedTokenSet(100);
+        long later = System.currentTimeMillis() + 60_000;
+        List<String> revoked = new ArrayList<>();
+        // Más del doble de lo previsto: el filtro se reconstruye más grande
+        for (int i = 0; i < 250; i++) {
+            String jti = UUID.randomUUID().toString();
+            set.add(jti, later);
+            revoked.add(jti);
+        }
+        String expiring = UUID.randomUUID().toString();
+        set.add(expiring, System.currentTimeMillis() + 50);
+
+        for (String jti : revoked) assertTrue(set.contains(jti), jti);
+        assertTrue(set.contains(expiring));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (set.contains(UUID.randomUUID().toString())) falsePositives++;
+        }
+        assertEquals(0, falsePositives); // el conjunto exacto descarta los positivos del filtro
+        assertTrue(set.getFalsePositives() < 500, "demasiados positivos del filtro: " + set.getFalsePositives());
+
+        Thread.sleep(100);
+        assertFalse(set.contains(expiring));
+        assertEquals(1, set.evictExpired());
+        assertEquals(250, set.size());
+        for (String jti : revoked) assertTrue(set.contains(jti), jti);
+    }
+}
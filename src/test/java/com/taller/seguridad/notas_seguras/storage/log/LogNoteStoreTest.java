@@ -0,0 +1,179 @@
+package com.taller.seguridad.notas_seguras.storage.log;
+
+import com.taller.seguridad.notas_seguras.repository.NoteSummary;
+import com.taller.seguridad.notas_seguras.storage.ChangeHistoryExpiredException;
+import com.taller.seguridad.notas_seguras.storage.NoteChange;
+import com.taller.seguridad.notas_seguras.storage.NoteDraft;
+import com.taller.seguridad.notas_seguras.storage.NoteVersionConflictException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Las "caídas" se simulan abriendo otra instancia sobre el mismo directorio sin cerrar la anterior
+class LogNoteStoreTest {
+
+    private static final long OWNER = 1L;
+    private static final long OTHER = 2L;
+
+    @TempDir
+    Path dir;
+
+    private LogNoteStore open(int segmentBytes) throws Exception {
+        return new LogNoteStore(dir.toString(), segmentBytes, 16 * 1024, false, 0.5, 256);
+    }
+
+    @Test
+    void recuperaElEstadoTrasUnaCaida() throws Exception {
+        LogNoteStore store = open(1024 * 1024);
+        Long a = store.create(OWNER, new NoteDraft("A", "uno")).getId();
+        Long b = store.create(OWNER, new NoteDraft("B", "dos")).getId();
+        Long c = store.create(OTHER, new NoteDraft("C", "tres")).getId();
+        store.update(OWNER, a, new NoteDraft("A2", "uno editado"), null);
+        store.delete(OWNER, b);
+
+        byte[] large = new byte[10_000];
+        new Random(1).nextBytes(large);
+        store.writeContent(OTHER, c, new ByteArrayInputStream(large));
+
+        LogNoteStore reopened = open(1024 * 1024);
+        assertEquals("uno editado", reopened.find(OWNER, a).orElseThrow().getContent());
+        assertEquals(1, reopened.find(OWNER, a).orElseThrow().getVersion());
+        assertThrows(NoteVersionConflictException.class,
+                () -> reopened.update(OWNER, a, new NoteDraft("A3", "con versión vieja"), 0L));
+        assertTrue(reopened.find(OWNER, b).isEmpty());
+        assertTrue(reopened.find(OWNER, c).isEmpty()); // ajena
+
+        NoteSummary chunked = reopened.find(OTHER, c).orElseThrow();
+        assertNull(chunked.getContent());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reopened.copyContent(OTHER, c, chunked.getVersion(), 0, large.length - 1, out);
+        assertArrayEquals(large, out.toByteArray());
+        // Una descarga que empezó con otra versión no lee el registro nuevo
+        assertThrows(IOException.class,
+                () -> reopened.copyContent(OTHER, c, chunked.getVersion() - 1, 0, large.length - 1, new ByteArrayOutputStream()));
+
+        // Los ids no se reutilizan
+        assertTrue(reopened.create(OWNER, new NoteDraft("D", "cuatro")).getId() > c);
+    }
+
+    @Test
+    void descartaUnRegistroIncompletoAlFinal() throws Exception {
+        LogNoteStore store = open(1024 * 1024);
+        Long kept = store.create(OWNER, new NoteDraft("Primera", "se conserva")).getId();
+        Long torn = store.create(OWNER, new NoteDraft("Ultima", "ULTIMA-NOTA-A-MEDIAS")).getId();
+
+        // Se corrompe un byte del último registro: el CRC ya no coincide
+        Path segment = singleSegment();
+        byte[] data = Files.readAllBytes(segment);
+        int at = indexOf(data, "ULTIMA-NOTA".getBytes(StandardCharsets.UTF_8));
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{'X'}), at);
+        }
+
+        LogNoteStore recovered = open(1024 * 1024);
+        assertEquals("se conserva", recovered.find(OWNER, kept).orElseThrow().getContent());
+        assertTrue(recovered.find(OWNER, torn).isEmpty());
+
+        // Se sigue escribiendo a partir del último registro válido
+        Long next = recovered.create(OWNER, new NoteDraft("Nueva", "despues de la caida")).getId();
+        LogNoteStore again = open(1024 * 1024);
+        assertEquals("despues de la caida", again.find(OWNER, next).orElseThrow().getContent());
+        assertEquals(List.of(kept, next), again.page(OWNER, 0, 10).stream().map(m -> m.getId()).toList());
+    }
+
+    @Test
+    void compactaSegmentosYConservaElEstado() throws Exception {
+        LogNoteStore store = open(64 * 1024);
+        String text = "x".repeat(300);
+        for (int i = 0; i < 200; i++) store.create(OWNER, new NoteDraft("nota " + i, text));
+        for (int round = 0; round < 3; round++) {
+            for (long id = 1; id <= 200; id++) store.update(OWNER, id, new NoteDraft("nota " + id, text + round), null);
+        }
+        for (long id = 1; id <= 200; id += 2) store.delete(OWNER, id);
+
+        long before = segmentCount();
+        store.compact();
+        assertTrue(segmentCount() < before, "la compactación no liberó segmentos");
+
+        LogNoteStore reopened = open(64 * 1024);
+        assertEquals(100, reopened.page(OWNER, 0, 1000).size());
+        for (long id = 1; id <= 200; id++) {
+            if (id % 2 == 1) {
+                assertFalse(reopened.find(OWNER, id).isPresent(), "reapareció la nota " + id);
+            } else {
+                assertEquals(text + 2, reopened.find(OWNER, id).orElseThrow().getContent());
+            }
+        }
+    }
+
+    @Test
+    void registraCambiosYExpiraElHistorialPorUsuario() throws Exception {
+        LogNoteStore store = new LogNoteStore(dir.toString(), 1024 * 1024, 16 * 1024, false, 0.5, 3);
+        long start = store.changeSeq(OWNER);
+        Long a = store.create(OWNER, new NoteDraft("A", "uno")).getId();
+        Long b = store.create(OWNER, new NoteDraft("B", "dos")).getId();
+        store.create(OTHER, new NoteDraft("C", "tres")); // no cuenta para OWNER
+        store.update(OWNER, a, new NoteDraft("A2", "uno editado"), null);
+
+        List<NoteChange> changes = store.changes(OWNER, start, 10);
+        assertEquals(List.of(a, b, a), changes.stream().map(NoteChange::getNoteId).toList());
+        assertEquals(List.of(NoteChange.Type.CREATED, NoteChange.Type.CREATED, NoteChange.Type.UPDATED),
+                changes.stream().map(NoteChange::getType).toList());
+        assertEquals(changes.get(2).getSeq(), store.changeSeq(OWNER));
+        assertEquals(1, store.changes(OWNER, changes.get(1).getSeq(), 10).size());
+
+        // Con 3 cambios por usuario, el cuarto expulsa al primero: desde start ya no se puede seguir
+        store.delete(OWNER, b);
+        assertThrows(ChangeHistoryExpiredException.class, () -> store.changes(OWNER, start, 10));
+        NoteChange last = store.changes(OWNER, changes.get(0).getSeq(), 10).get(2);
+        assertEquals(NoteChange.Type.DELETED, last.getType());
+        assertEquals(b, last.getNoteId());
+
+        // Tras reiniciar el historial empieza de nuevo
+        LogNoteStore reopened = open(1024 * 1024);
+        assertThrows(ChangeHistoryExpiredException.class, () -> reopened.changes(OWNER, last.getSeq(), 10));
+        assertTrue(reopened.changes(OWNER, reopened.changeSeq(OWNER), 10).isEmpty());
+    }
+
+    private Path singleSegment() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Segment::isSegment).findFirst().orElseThrow();
+        }
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(Segment::isSegment).count();
+        }
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        throw new IllegalStateException("patrón no encontrado");
+    }
+}
@@ -0,0 +1,191 @@
+package com.taller.seguridad.notas_seguras.storage.shard;
+
+import com.jayway.jsonpath.JsonPath;
+import com.taller.seguridad.notas_seguras.model.User;
+import com.taller.seguridad.notas_seguras.repository.UserRepository;
+import com.taller.seguridad.notas_seguras.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Notas repartidas en dos bases H2 en memoria: cada usuario queda en un solo shard, los totales
+ * suman los dos, y después de vaciar el shard 1 y volver a repartir las notas (con su contenido
+ * en bloques) se siguen leyendo y escribiendo. Dos repartidores (como dos instancias) no pueden
+ * repartir a la vez.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sharded-main;DB_CLOSE_DELAY=-1",
+        "notes.store=sharded",
+        "notes.store.sharded.urls=jdbc:h2:mem:sharded-0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:sharded-1;DB_CLOSE_DELAY=-1",
+        "notes.store.sharded.cleanup-delay-ms=0",
+        "rate-limit.enabled=false"
+})
+@AutoConfigureMockMvc
+class ShardedNoteStoreTest {
+
+    private static final int OWNERS = 12;
+    private static final int NOTES_PER_OWNER = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ShardedNoteStore store;
+
+    @Autowired
+    private ShardRebalancer rebalancer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void repartePorUsuarioYMueveLosBucketsSinPerderNotas() throws Exception {
+        Map<Long, String> auth = new HashMap<>();
+        List<Long> owners = new ArrayList<>();
+        for (int i = 0; i < OWNERS; i++) {
+            User user = newUser("shard" + i, User.Role.USER);
+            owners.add(user.getId());
+            auth.put(user.getId(), token(user));
+            for (int n = 0; n < NOTES_PER_OWNER; n++) createNote(auth.get(user.getId()), "nota " + n);
+        }
+        assertOnePlacePerOwner(owners);
+        assertEquals(OWNERS * NOTES_PER_OWNER, store.count());
+        assertTrue(store.ownerIds().containsAll(owners));
+
+        // Contenido de más de un bloque para que la copia incluya shard_note_chunks
+        Long owner = owners.get(0);
+        long noteId = createNote(auth.get(owner), "grande");
+        byte[] content = new byte[200_000];
+        Arrays.fill(content, (byte) 'x');
+        mockMvc.perform(put("/notes/" + noteId + "/content").header("Authorization", auth.get(owner))
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content(content))
+                .andExpect(status().isOk());
+
+        String admin = token(newUser("admin-shards", User.Role.ADMIN));
+        mockMvc.perform(get("/admin/shards").header("Authorization", admin)).andExpect(status().isOk());
+
+        // Vaciar el shard 1: todo queda en el 0
+        mockMvc.perform(post("/admin/shards/rebalance?drain=1").header("Authorization", admin))
+                .andExpect(status().isAccepted());
+        awaitRebalance();
+        assertEquals(0L, store.shards().get(1).count());
+        assertTrue(store.shards().get(1).buckets().isEmpty(), "el origen borra sus buckets al terminar");
+        assertEquals(ShardMap.BUCKETS, store.shards().get(0).buckets().size());
+        assertEquals(OWNERS * NOTES_PER_OWNER + 1, store.count());
+
+        // Repartir de nuevo entre los dos
+        mockMvc.perform(post("/admin/shards/rebalance").header("Authorization", admin))
+                .andExpect(status().isAccepted());
+        awaitRebalance();
+        assertEquals(0, rebalancer.status().get("failed"));
+        assertTrue(store.shards().get(1).count() > 0);
+        assertOnePlacePerOwner(owners);
+
+        MvcResult started = mockMvc.perform(get("/notes/" + noteId + "/content").header("Authorization", auth.get(owner)))
+                .andReturn();
+        byte[] downloaded = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(content, downloaded);
+
+        // Cada usuario sigue viendo y escribiendo sus notas en su shard actual
+        for (Long id : owners) {
+            assertEquals(id.equals(owner) ? NOTES_PER_OWNER + 1 : NOTES_PER_OWNER, store.page(id, 0, 100).size());
+            createNote(auth.get(id), "después");
+        }
+        assertOnePlacePerOwner(owners);
+        assertEquals(Long.valueOf(NOTES_PER_OWNER + 1), store.countByOwner(List.of(owners.get(1))).get(owners.get(1)));
+
+        // Un catálogo atrasado que apunta al shard sin el bucket: la misma lectura lo detecta
+        int bucket = ShardMap.bucketOf(owner);
+        NoteShard stale = store.shards().get(1 - store.map().shardOf(bucket));
+        assertThrows(BucketMovedException.class, () -> stale.page(owner, bucket, 0, 100));
+    }
+
+    @Test
+    void dosRepartidoresSobreLosMismosShards_soloUnoALaVez() throws Exception {
+        // Otra instancia de la aplicación: mismo catálogo y mismos shards, distinto proceso
+        ShardRebalancer other = new ShardRebalancer(store, 300, 60_000);
+        assertNotNull(other.start(Set.of(1)));
+        assertNull(rebalancer.start(Set.of()), "el lease lo tiene el otro repartidor");
+        awaitRebalance(other);
+        assertEquals(0, other.status().get("failed"));
+        assertTrue(store.shards().get(1).buckets().isEmpty());
+
+        // Al terminar suelta el lease y el otro ya puede repartir
+        assertNotNull(rebalancer.start(Set.of()));
+        awaitRebalance(rebalancer);
+        assertEquals(0, rebalancer.status().get("failed"));
+        assertFalse(store.shards().get(1).buckets().isEmpty());
+    }
+
+    // Las notas de cada usuario están en un único shard: el que dice el catálogo
+    private void assertOnePlacePerOwner(List<Long> owners) {
+        for (Long owner : owners) {
+            int expected = store.map().shardOf(ShardMap.bucketOf(owner));
+            for (NoteShard shard : store.shards()) {
+                boolean has = shard.countByOwner(List.of(owner)).getOrDefault(owner, 0L) > 0;
+                assertEquals(shard.index() == expected, has, "usuario " + owner + " en el shard " + shard.index());
+            }
+        }
+    }
+
+    private void awaitRebalance() throws InterruptedException {
+        awaitRebalance(rebalancer);
+    }
+
+    private void awaitRebalance(ShardRebalancer rebalancer) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (Boolean.TRUE.equals(rebalancer.status().get("running"))) {
+            assertTrue(System.currentTimeMillis() < deadline, "el reparto no terminó en 30 s");
+            Thread.sleep(20);
+        }
+        assertFalse((Boolean) rebalancer.status().get("running"));
+    }
+
+    private long createNote(String auth, String title) throws Exception {
+        String body = mockMvc.perform(post("/notes").header("Authorization", auth)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"title\":\"" + title + "\",\"content\":\"c\"}"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+    private User newUser(String name, User.Role role) {
+        User user = new User();
+        user.setEmail(name + System.nanoTime() + "@test.com");
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuJ1yV8Wj0eZpWm0sQzOq4H0h8b2g5k8e"); // no se usa para login
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private String token(User user) {
+        return "Bearer " + jwtService.generateToken(user.getId(), user.getEmail(), user.getRole().name());
+    }
+}